@@ -0,0 +1,38 @@
+package org.example;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+// Benchmark fixtures written by FeedGenerator: two days of feeds in which every store carries
+// every SKU, so a catalog of the given number of products is products / stores SKUs.
+final class BenchmarkFeeds {
+    private BenchmarkFeeds() {
+    }
+
+    static FeedGenerator generator(int products, int stores) {
+        FeedGenerator generator = new FeedGenerator(42);
+        generator.setStoreCount(stores);
+        generator.setSkuCount(Math.max(1, products / stores));
+        generator.setStoreCoverage(1);
+        generator.setDayCount(2);
+        return generator;
+    }
+
+    // a new temporary directory holding the generator's feeds
+    static Path write(FeedGenerator generator) throws IOException {
+        Path directory = Files.createTempDirectory("jmh-feeds");
+        generator.generate(directory);
+        return directory;
+    }
+
+    static void delete(Path directory) throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            for (Path file : (Iterable<Path>) files.sorted(Comparator.reverseOrder())::iterator) {
+                Files.delete(file);
+            }
+        }
+    }
+}
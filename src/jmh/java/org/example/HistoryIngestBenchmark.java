@@ -0,0 +1,78 @@
+package org.example;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Ingesting a whole day of a store, its price file and its discount file listing every
+// product, on top of histories of growing length. IngestBenchmark adds small files to a
+// short history; here the history is what grows. Nothing loaded before the new day should be
+// copied or sorted again, so a day should cost about the same after ten days as after a
+// thousand. Each iteration reloads the history, then ingests one file per invocation.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, batchSize = HistoryIngestBenchmark.FILES)
+@Measurement(iterations = 5, batchSize = HistoryIngestBenchmark.FILES)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class HistoryIngestBenchmark {
+    private static final int PRODUCTS = 2000;
+    private static final int NEW_DAYS = 10;
+    static final int FILES = 2 * NEW_DAYS;
+
+    @Param({"10", "100", "1000"})
+    int historyDays;
+
+    private Path directory;
+    private Path deltaDirectory;
+    private FeedGenerator generator;
+    private final List<Path> deltas = new ArrayList<>();
+    private PriceComparator comparator;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void writeFeeds() throws IOException {
+        generator = BenchmarkFeeds.generator(PRODUCTS, 1);
+        generator.setDayCount(historyDays + NEW_DAYS);
+        directory = BenchmarkFeeds.write(generator);
+
+        // the files of the last days are moved out, to be ingested one by one in date order
+        String store = generator.getStore(0);
+        deltaDirectory = Files.createTempDirectory("jmh-deltas");
+        for (int day = historyDays; day < historyDays + NEW_DAYS; day++) {
+            String date = generator.getEndDate().minusDays(historyDays + NEW_DAYS - 1 - day).toString();
+            for (String file : List.of("prices/" + store + "_" + date + ".csv",
+                    "discounts/" + store + "_discounts_" + date + ".csv")) {
+                Path delta = deltaDirectory.resolve(Path.of(file).getFileName());
+                Files.move(directory.resolve(file), delta);
+                deltas.add(delta);
+            }
+        }
+    }
+
+    @Setup(Level.Iteration)
+    public void load() {
+        comparator = new PriceComparator();
+        comparator.setQuiet(true);
+        comparator.setCurrentDate(generator.getEndDate());
+        comparator.setFeedDirectory(directory);
+        comparator.loadAllData();
+        next = 0;
+    }
+
+    @TearDown(Level.Trial)
+    public void deleteFeeds() throws IOException {
+        BenchmarkFeeds.delete(directory);
+        BenchmarkFeeds.delete(deltaDirectory);
+    }
+
+    @Benchmark
+    public List<PriceChange> ingestFeed() {
+        return comparator.ingestFeed(deltas.get(next++));
+    }
+}
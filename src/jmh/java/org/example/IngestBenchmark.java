@@ -0,0 +1,75 @@
+package org.example;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+// Ingesting a small price file (one store, a hundred products, a new day) into catalogs of
+// growing size across 3 stores. A delta ingest should cost about the same whatever the
+// catalog holds. Each iteration reloads the catalog, then ingests one new dated file per
+// invocation.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, batchSize = IngestBenchmark.FILES)
+@Measurement(iterations = 5, batchSize = IngestBenchmark.FILES)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class IngestBenchmark {
+    static final int FILES = 200;
+    private static final int ROWS = 100;
+
+    @Param({"1000", "100000", "1000000"})
+    int products;
+
+    private Path directory;
+    private Path deltaDirectory;
+    private FeedGenerator generator;
+    private final List<Path> deltas = new ArrayList<>();
+    private PriceComparator comparator;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void writeFeeds() throws IOException {
+        generator = BenchmarkFeeds.generator(products, 3);
+        directory = BenchmarkFeeds.write(generator);
+
+        // the first rows of the last price file of a store, as files for the days after it
+        String store = generator.getStore(0);
+        List<String> lines;
+        try (Stream<String> file = Files.lines(directory.resolve("prices/" + store + "_" + generator.getEndDate() + ".csv"))) {
+            lines = file.limit(ROWS + 1).collect(Collectors.toList());
+        }
+        deltaDirectory = Files.createTempDirectory("jmh-deltas");
+        for (int i = 1; i <= FILES; i++) {
+            deltas.add(Files.write(deltaDirectory.resolve(store + "_" + generator.getEndDate().plusDays(i) + ".csv"), lines));
+        }
+    }
+
+    @Setup(Level.Iteration)
+    public void load() {
+        comparator = new PriceComparator();
+        comparator.setQuiet(true);
+        comparator.setCurrentDate(generator.getEndDate());
+        comparator.setFeedDirectory(directory);
+        comparator.loadAllData();
+        next = 0;
+    }
+
+    @TearDown(Level.Trial)
+    public void deleteFeeds() throws IOException {
+        BenchmarkFeeds.delete(directory);
+        BenchmarkFeeds.delete(deltaDirectory);
+    }
+
+    @Benchmark
+    public List<PriceChange> ingestFeed() {
+        return comparator.ingestFeed(deltas.get(next++));
+    }
+}
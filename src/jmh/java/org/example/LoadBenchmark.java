@@ -0,0 +1,46 @@
+package org.example;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+// Full load of a synthetic feed directory: parsing, the columnar catalog and every index.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class LoadBenchmark {
+    @Param({"1000", "100000", "1000000"})
+    int products;
+
+    @Param({"3", "50"})
+    int stores;
+
+    private FeedGenerator generator;
+    private Path feedDirectory;
+
+    @Setup(Level.Trial)
+    public void writeFeeds() throws IOException {
+        generator = BenchmarkFeeds.generator(products, stores);
+        feedDirectory = BenchmarkFeeds.write(generator);
+    }
+
+    @TearDown(Level.Trial)
+    public void deleteFeeds() throws IOException {
+        BenchmarkFeeds.delete(feedDirectory);
+    }
+
+    @Benchmark
+    public PriceSnapshot loadAllData() {
+        PriceComparator comparator = new PriceComparator();
+        comparator.setQuiet(true);
+        comparator.setCurrentDate(generator.getEndDate());
+        comparator.setFeedDirectory(feedDirectory);
+        comparator.loadAllData();
+        return comparator.getSnapshot();
+    }
+}
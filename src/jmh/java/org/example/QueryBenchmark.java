@@ -0,0 +1,97 @@
+package org.example;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+// The query methods over a loaded synthetic catalog. Each call takes the next search term
+// from a fixed rotation of product names and bare nouns, so both narrow and broad matches
+// are measured.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class QueryBenchmark {
+    private static final int TERMS = 64; // a power of two, see nextTerm
+
+    @Param({"1000", "100000", "1000000"})
+    int products;
+
+    @Param({"3", "50"})
+    int stores;
+
+    private PriceComparator comparator;
+    private int today;
+    private String[] terms;
+    private List<ShoppingItem> shoppingList;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void load() throws IOException {
+        FeedGenerator generator = BenchmarkFeeds.generator(products, stores);
+        Path feedDirectory = BenchmarkFeeds.write(generator);
+        try {
+            comparator = new PriceComparator();
+            comparator.setQuiet(true);
+            comparator.setCurrentDate(generator.getEndDate());
+            comparator.setFeedDirectory(feedDirectory);
+            comparator.loadAllData();
+        } finally {
+            BenchmarkFeeds.delete(feedDirectory);
+        }
+        today = (int) generator.getEndDate().toEpochDay();
+
+        int skus = Math.max(1, products / stores);
+        terms = new String[TERMS];
+        for (int i = 0; i < TERMS; i++) {
+            terms[i] = i % 4 == 0 ? generator.getItemName(i) : generator.getProductName((i * 7919) % skus);
+        }
+        shoppingList = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            shoppingList.add(new ShoppingItem(terms[i * 5 + 1], 1 + i % 3));
+        }
+    }
+
+    private String nextTerm() {
+        return terms[next++ & (TERMS - 1)];
+    }
+
+    @Benchmark
+    public Map<String, List<Price>> comparePrices() {
+        return comparator.comparePrices(nextTerm());
+    }
+
+    // through the best-deal cache: mostly hits once warmed up
+    @Benchmark
+    public BestDeal findBestDealForProduct() {
+        return comparator.findBestDealForProduct(nextTerm(), 1);
+    }
+
+    // the lookup behind the cache
+    @Benchmark
+    public BestDeal findBestDealUncached() {
+        return comparator.getSnapshot().findBestDeal(nextTerm(), today);
+    }
+
+    @Benchmark
+    public List<ValuePerUnitItem> analyzeValuePerUnit() {
+        return comparator.analyzeValuePerUnit(nextTerm());
+    }
+
+    @Benchmark
+    public List<PricePoint> getPriceHistory() {
+        return comparator.getPriceHistory(nextTerm());
+    }
+
+    @Benchmark
+    public ShoppingPlan generateOptimizedShoppingPlan() {
+        return comparator.generateOptimizedShoppingPlan(shoppingList);
+    }
+}
@@ -0,0 +1,310 @@
+package org.example;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+// Price alerts indexed by their normalized search term. Each term keeps its alerts sorted by
+// target price and the products it matches, so the alerts a product price triggers are a
+// single tail of that sorted map, found without looking at any other alert.
+//
+// The engine remembers the effective price (discount applied) of every product from the last
+// evaluation, by doc id. A new load re-prices every product; an ingested file only the products
+// it lists; a date change only the products whose discount starts or ends between the two days
+// (see DiscountTimeline.forEachChangedBetween). Listeners hear about the alerts that became
+// triggered: those with a target between the new price and the old one.
+//
+// Matches are queued while the engine is locked and handed to the listeners by deliver(), which
+// callers run once they hold no lock, so a listener may block or call back from any thread.
+class AlertEngine {
+    private final Map<String, TermAlerts> alertsByTerm = new HashMap<>();
+    private final Map<PriceAlert, TermAlerts> termOfAlert = new IdentityHashMap<>();
+    private final List<AlertListener> listeners = new CopyOnWriteArrayList<>();
+    private final Queue<AlertMatch> pending = new ConcurrentLinkedQueue<>();
+
+    private PriceSnapshot snapshot; // the data of the last evaluation
+    private int day; // and its day
+    private final List<List<TermAlerts>> termsByDoc = new ArrayList<>();
+    private int[] prices = new int[0]; // effective price per doc, in cents
+    private Discount[] discounts = new Discount[0];
+
+    interface AlertListener {
+        void onAlert(AlertMatch match);
+    }
+
+    public void addListener(AlertListener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(AlertListener listener) {
+        listeners.remove(listener);
+    }
+
+    // registers the alert and notifies listeners if current prices already trigger it
+    public void add(PriceAlert alert) {
+        synchronized (this) {
+            String term = TextNormalizer.normalize(alert.getProductName());
+            TermAlerts termAlerts = alertsByTerm.get(term);
+            if (termAlerts == null) {
+                termAlerts = new TermAlerts(term);
+                alertsByTerm.put(term, termAlerts);
+                if (snapshot != null) {
+                    attach(termAlerts);
+                }
+            }
+            termAlerts.add(alert);
+            termOfAlert.put(alert, termAlerts);
+
+            for (int doc : termAlerts.docs) {
+                if (prices[doc] <= thresholdOf(alert)) {
+                    pending.add(match(alert, doc, day));
+                }
+            }
+        }
+        deliver();
+    }
+
+    public synchronized void remove(PriceAlert alert) {
+        TermAlerts termAlerts = termOfAlert.remove(alert);
+        if (termAlerts != null && termAlerts.remove(alert)) {
+            alertsByTerm.remove(termAlerts.term);
+            for (int doc : termAlerts.docs) {
+                termsByDoc.get(doc).remove(termAlerts);
+            }
+        }
+    }
+
+    // Re-prices the products of the snapshot on the given day and queues the alerts that are
+    // triggered now but were not at the previous evaluation. A new search index (after a load)
+    // is matched against every term once; a date change on the same data only re-prices the
+    // products whose price or discount changed between the two days.
+    public synchronized void refresh(PriceSnapshot snapshot, int epochDay) {
+        PriceSnapshot previous = this.snapshot;
+        this.snapshot = snapshot;
+        if (previous == null || snapshot.getSearchIndex() != previous.getSearchIndex()) {
+            attachAll();
+            repriceAll(previous, epochDay);
+        } else if (snapshot.getDiscountIndex() != previous.getDiscountIndex()) {
+            repriceAll(previous, epochDay);
+        } else if (epochDay != day) {
+            ColumnarCatalog catalog = snapshot.getCatalog();
+            catalog.forEachProductChangedBetween(Math.min(day, epochDay), Math.max(day, epochDay), doc -> {
+                if (doc < prices.length) {
+                    evaluate(doc, epochDay, prices[doc]);
+                }
+            });
+            snapshot.getDiscountTimeline().forEachChangedBetween(day, epochDay, (store, discount) -> {
+                int doc = catalog.findProduct(store, discount.getProductId());
+                if (doc >= 0 && doc < prices.length) {
+                    evaluate(doc, epochDay, prices[doc]);
+                }
+            });
+        }
+        day = epochDay;
+    }
+
+    // Same as refresh, limited to the given products, for a snapshot derived from the one the
+    // engine uses (see PriceSnapshot.withFeed) on the same day, where every other doc is
+    // unchanged. Their term matches are redone too, as a product may be new or renamed.
+    public synchronized void refreshProducts(PriceSnapshot snapshot, int[] docs, int epochDay) {
+        if (this.snapshot == null || epochDay != day) {
+            refresh(snapshot, epochDay);
+            return;
+        }
+        this.snapshot = snapshot;
+        int size = snapshot.getSearchIndex().size();
+        if (size > prices.length) {
+            int known = prices.length;
+            int capacity = Math.max(size, known * 2); // so that ingests adding products stay cheap
+            prices = Arrays.copyOf(prices, capacity);
+            Arrays.fill(prices, known, capacity, Integer.MAX_VALUE); // new products had no price
+            discounts = Arrays.copyOf(discounts, capacity);
+        }
+        while (termsByDoc.size() < size) {
+            termsByDoc.add(new ArrayList<>(1));
+        }
+        for (int doc : docs) {
+            reattach(doc);
+            evaluate(doc, epochDay, prices[doc]);
+        }
+    }
+
+    // every doc of the snapshot; a product's previous price is looked up by store and id in
+    // the previous snapshot, whose doc ids may differ
+    private void repriceAll(PriceSnapshot previous, int epochDay) {
+        ColumnarCatalog catalog = snapshot.getCatalog();
+        ColumnarCatalog previousCatalog = previous != null ? previous.getCatalog() : null;
+        int[] previousPrices = prices;
+        int size = snapshot.getSearchIndex().size();
+        prices = new int[size];
+        discounts = new Discount[size];
+        for (int doc = 0; doc < size; doc++) {
+            int previousDoc = previousCatalog == null ? -1
+                    : previousCatalog == catalog ? doc
+                    : previousCatalog.findProduct(catalog.getStore(doc), catalog.getProductId(doc));
+            evaluate(doc, epochDay, previousDoc >= 0 && previousDoc < previousPrices.length
+                    ? previousPrices[previousDoc] : Integer.MAX_VALUE);
+        }
+    }
+
+    // prices the doc at the version listed on the day and queues the alerts it triggers that it
+    // did not trigger at its previous price: targets in [price, previous price). A product not
+    // listed by the day has no price and triggers nothing.
+    private void evaluate(int doc, int epochDay, int previousPrice) {
+        ProductSearchIndex searchIndex = snapshot.getSearchIndex();
+        int cents = snapshot.getCatalog().getCentsAsOf(doc, epochDay);
+        Discount discount = cents < 0 ? null : snapshot.getDiscountIndex()
+                .findActiveDiscount(searchIndex.getStore(doc), searchIndex.getProductId(doc), epochDay);
+        int price = cents < 0 ? Integer.MAX_VALUE : DiscountIndex.applyDiscount(cents, discount);
+        prices[doc] = price;
+        discounts[doc] = discount;
+
+        if (price >= previousPrice) {
+            return; // nothing newly triggered; alerts below the old price stay as they were
+        }
+        for (TermAlerts termAlerts : termsByDoc.get(doc)) {
+            for (List<PriceAlert> alerts : termAlerts.byThreshold.subMap(price, true, previousPrice, false).values()) {
+                for (PriceAlert alert : alerts) {
+                    if (alert.isActive()) {
+                        pending.add(match(alert, doc, epochDay));
+                    }
+                }
+            }
+        }
+    }
+
+    // hands the queued matches to the listeners; call it holding no lock
+    public void deliver() {
+        AlertMatch match;
+        while ((match = pending.poll()) != null) {
+            for (AlertListener listener : listeners) {
+                listener.onAlert(match);
+            }
+        }
+    }
+
+    // every (alert, product) pair triggered at the last evaluated prices
+    public synchronized List<AlertMatch> getTriggered() {
+        List<AlertMatch> matches = new ArrayList<>();
+        for (TermAlerts termAlerts : alertsByTerm.values()) {
+            for (int doc : termAlerts.docs) {
+                if (prices[doc] == Integer.MAX_VALUE) {
+                    continue; // not listed on the day
+                }
+                for (List<PriceAlert> alerts : termAlerts.byThreshold.tailMap(prices[doc], true).values()) {
+                    for (PriceAlert alert : alerts) {
+                        if (alert.isActive()) {
+                            matches.add(match(alert, doc, day));
+                        }
+                    }
+                }
+            }
+        }
+        return matches;
+    }
+
+    private AlertMatch match(PriceAlert alert, int doc, int epochDay) {
+        Discount discount = discounts[doc];
+        return new AlertMatch(alert, snapshot.getSearchIndex().getStore(doc),
+                snapshot.getCatalog().getName(snapshot.getCatalog().getDescriptionAsOf(doc, epochDay)), prices[doc] / 100.0,
+                discount != null, discount != null ? discount.getDiscountPercentage() : 0);
+    }
+
+    private void attachAll() {
+        termsByDoc.clear();
+        for (int doc = 0; doc < snapshot.getSearchIndex().size(); doc++) {
+            termsByDoc.add(new ArrayList<>(1));
+        }
+        for (TermAlerts termAlerts : alertsByTerm.values()) {
+            attach(termAlerts);
+        }
+    }
+
+    private void reattach(int doc) {
+        List<TermAlerts> before = termsByDoc.get(doc);
+        List<TermAlerts> after = new ArrayList<>(1);
+        for (TermAlerts termAlerts : alertsByTerm.values()) {
+            if (snapshot.getSearchIndex().matches(doc, termAlerts.term, PriceComparator.PRODUCT_FIELDS)) {
+                after.add(termAlerts);
+            }
+        }
+        for (TermAlerts termAlerts : before) {
+            if (!after.contains(termAlerts)) {
+                termAlerts.removeDoc(doc);
+            }
+        }
+        for (TermAlerts termAlerts : after) {
+            if (!before.contains(termAlerts)) {
+                termAlerts.addDoc(doc);
+            }
+        }
+        termsByDoc.set(doc, after);
+    }
+
+    private void attach(TermAlerts termAlerts) {
+        termAlerts.docs = snapshot.getSearchIndex().search(termAlerts.term, PriceComparator.PRODUCT_FIELDS);
+        for (int doc : termAlerts.docs) {
+            termsByDoc.get(doc).add(termAlerts);
+        }
+    }
+
+    // terms the doc is attached to
+    synchronized int getTermCount(int doc) {
+        return termsByDoc.get(doc).size();
+    }
+
+    // a price in cents triggers the alert when price / 100.0 <= target
+    static int thresholdOf(PriceAlert alert) {
+        return (int) Math.floor(alert.getTargetPrice() * 100 + 1e-6);
+    }
+
+    private static class TermAlerts {
+        final String term;
+        final TreeMap<Integer, List<PriceAlert>> byThreshold = new TreeMap<>();
+        int[] docs = new int[0];
+        int count;
+
+        TermAlerts(String term) {
+            this.term = term;
+        }
+
+        void addDoc(int doc) {
+            int pos = Arrays.binarySearch(docs, doc);
+            if (pos < 0) {
+                pos = -pos - 1;
+                int[] grown = new int[docs.length + 1];
+                System.arraycopy(docs, 0, grown, 0, pos);
+                grown[pos] = doc;
+                System.arraycopy(docs, pos, grown, pos + 1, docs.length - pos);
+                docs = grown;
+            }
+        }
+
+        void removeDoc(int doc) {
+            int pos = Arrays.binarySearch(docs, doc);
+            if (pos >= 0) {
+                int[] shrunk = new int[docs.length - 1];
+                System.arraycopy(docs, 0, shrunk, 0, pos);
+                System.arraycopy(docs, pos + 1, shrunk, pos, docs.length - pos - 1);
+                docs = shrunk;
+            }
+        }
+
+        void add(PriceAlert alert) {
+            byThreshold.computeIfAbsent(thresholdOf(alert), k -> new ArrayList<>(1)).add(alert);
+            count++;
+        }
+
+        // true when no alert is left
+        boolean remove(PriceAlert alert) {
+            List<PriceAlert> alerts = byThreshold.get(thresholdOf(alert));
+            if (alerts != null && alerts.remove(alert)) {
+                count--;
+                if (alerts.isEmpty()) {
+                    byThreshold.remove(thresholdOf(alert));
+                }
+            }
+            return count == 0;
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package org.example;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Every user's price alerts, safe to change from any thread. Each alert gets its own id, so
+// any number of users can watch the same product at any thresholds. Lookups by id, by user and
+// by product (normalized name) are hash lookups; the secondary indexes are concurrent sets.
+class AlertRegistry {
+    private final AtomicLong nextId = new AtomicLong(1);
+    private final ConcurrentHashMap<String, PriceAlert> alertsById = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, Set<PriceAlert>> alertsByUser = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, Set<PriceAlert>> alertsByProduct = new ConcurrentHashMap<>();
+
+    public PriceAlert add(String userId, String productName, double targetPrice) {
+        PriceAlert alert = new PriceAlert("alert-" + nextId.getAndIncrement(), userId, productName, targetPrice);
+        alertsById.put(alert.getAlertId(), alert);
+        addToIndex(alertsByUser, userId, alert);
+        addToIndex(alertsByProduct, productKey(productName), alert);
+        return alert;
+    }
+
+    // the removed alert, or null if there was none with this id
+    public PriceAlert remove(String alertId) {
+        PriceAlert alert = alertsById.remove(alertId);
+        if (alert == null) {
+            return null;
+        }
+        alert.setActive(false);
+        removeFromIndex(alertsByUser, alert.getUserId(), alert);
+        removeFromIndex(alertsByProduct, productKey(alert.getProductName()), alert);
+        return alert;
+    }
+
+    public PriceAlert get(String alertId) {
+        return alertsById.get(alertId);
+    }
+
+    public Set<PriceAlert> findByUser(String userId) {
+        return Collections.unmodifiableSet(alertsByUser.getOrDefault(userId, Collections.emptySet()));
+    }
+
+    // alerts of every user for the product, matched on the normalized name
+    public Set<PriceAlert> findByProduct(String productName) {
+        return Collections.unmodifiableSet(alertsByProduct.getOrDefault(productKey(productName), Collections.emptySet()));
+    }
+
+    // every alert, oldest first
+    public List<PriceAlert> getAll() {
+        List<PriceAlert> alerts = new ArrayList<>(alertsById.values());
+        alerts.sort(Comparator.comparingLong(AlertRegistry::sequence));
+        return alerts;
+    }
+
+    public int size() {
+        return alertsById.size();
+    }
+
+    public boolean isEmpty() {
+        return alertsById.isEmpty();
+    }
+
+    static long sequence(PriceAlert alert) {
+        return Long.parseLong(alert.getAlertId().substring("alert-".length()));
+    }
+
+    private static String productKey(String productName) {
+        return TextNormalizer.normalize(productName);
+    }
+
+    // index sets are only changed inside compute, so a concurrent remove dropping an emptied
+    // set cannot lose an alert being added to it
+    private static void addToIndex(ConcurrentHashMap<String, Set<PriceAlert>> index, String key, PriceAlert alert) {
+        index.compute(key, (k, alerts) -> {
+            Set<PriceAlert> set = alerts != null ? alerts : ConcurrentHashMap.newKeySet();
+            set.add(alert);
+            return set;
+        });
+    }
+
+    private static void removeFromIndex(ConcurrentHashMap<String, Set<PriceAlert>> index, String key, PriceAlert alert) {
+        index.computeIfPresent(key, (k, alerts) -> {
+            alerts.remove(alert);
+            return alerts.isEmpty() ? null : alerts;
+        });
+    }
+}
@@ -0,0 +1,81 @@
+package org.example;
+
+import java.util.AbstractList;
+import java.util.List;
+import java.util.RandomAccess;
+
+// A list that is never changed once built; plus returns a longer one without copying. The
+// longer list writes its new elements into the same array past this list's end, which this
+// list never reads, so the two share everything before it. Only the first list extended from
+// a given one can do that; extending it again, or past the array's capacity, copies, and the
+// capacity doubles, so appending stays O(1) amortized however long the list gets.
+final class AppendList<T> extends AbstractList<T> implements RandomAccess {
+    private static final AppendList<Object> EMPTY = new AppendList<>(new Buffer(0), 0);
+
+    // the elements of every list sharing the array, and the end of the longest of them
+    private static final class Buffer {
+        final Object[] elements;
+        int end;
+
+        Buffer(int capacity) {
+            elements = new Object[capacity];
+        }
+    }
+
+    private final Buffer buffer;
+    private final int size;
+
+    private AppendList(Buffer buffer, int size) {
+        this.buffer = buffer;
+        this.size = size;
+    }
+
+    @SuppressWarnings("unchecked") // holds no elements
+    public static <T> AppendList<T> empty() {
+        return (AppendList<T>) EMPTY;
+    }
+
+    public static <T> AppendList<T> of(List<? extends T> elements) {
+        return AppendList.<T>empty().plus(elements);
+    }
+
+    // this list followed by the given elements
+    public AppendList<T> plus(List<? extends T> added) {
+        if (added.isEmpty()) {
+            return this;
+        }
+        int newSize = size + added.size();
+        Buffer target = buffer;
+        synchronized (buffer) {
+            if (buffer.end == size && newSize <= buffer.elements.length) {
+                buffer.end = newSize;
+            } else {
+                target = new Buffer(Math.max(newSize, Math.max(4, size * 2)));
+                System.arraycopy(buffer.elements, 0, target.elements, 0, size);
+                target.end = newSize;
+            }
+        }
+        for (int i = 0; i < added.size(); i++) {
+            target.elements[size + i] = added.get(i);
+        }
+        return new AppendList<>(target, newSize);
+    }
+
+    public AppendList<T> plus(T element) {
+        return plus(List.of(element));
+    }
+
+    @Override
+    @SuppressWarnings("unchecked") // only plus stores elements
+    public T get(int index) {
+        if (index >= size) {
+            throw new IndexOutOfBoundsException("Index " + index + " out of bounds for length " + size);
+        }
+        return (T) buffer.elements[index];
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+}
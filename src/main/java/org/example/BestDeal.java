@@ -1,11 +1,15 @@
 package org.example;
 
+import java.util.Collections;
+import java.util.List;
+
 class BestDeal {
     private String store;
     private int regularPrice;
     private int finalPrice;
     private boolean discounted;
     private String productName; // Added field to store actual product name
+    private List<ShoppingPack> packs = Collections.emptyList(); // for an amount, see findBestDealForAmount
 
     public BestDeal(String store, int regularPrice, int finalPrice, boolean discounted, String productName) {
         this.store = store;
@@ -15,6 +19,18 @@ class BestDeal {
         this.productName = productName;
     }
 
+    // prices are the totals over all packs
+    public BestDeal(String store, int regularPrice, int finalPrice, boolean discounted, String productName,
+                    List<ShoppingPack> packs) {
+        this(store, regularPrice, finalPrice, discounted, productName);
+        this.packs = packs;
+    }
+
+    // the same deal for the given number of units, with the prices totalled over them
+    public BestDeal times(int quantity) {
+        return new BestDeal(store, regularPrice * quantity, finalPrice * quantity, discounted, productName, packs);
+    }
+
     public String getStore() {
         return store;
     }
@@ -34,4 +50,8 @@ class BestDeal {
     public String getProductName() {
         return productName;
     }
+
+    public List<ShoppingPack> getPacks() {
+        return packs;
+    }
 }
\ No newline at end of file
@@ -0,0 +1,133 @@
+package org.example;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+// Bounded LRU cache of best-deal lookups by product name and quantity. The keys are split over a fixed
+// number of stripes, each an access-ordered LinkedHashMap behind its own lock, so concurrent
+// callers rarely wait on each other and a hit costs one short synchronized map lookup.
+// Lookups are computed outside the lock; a result computed before invalidate() is not stored.
+class BestDealCache {
+    private static final int STRIPES = 16;
+    private static final Object NO_DEAL = new Object(); // cached "no store sells it"
+
+    private final Stripe[] stripes = new Stripe[STRIPES];
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private volatile int generation;
+
+    public BestDealCache(int maxSize) {
+        int stripeSize = Math.max(1, (maxSize + STRIPES - 1) / STRIPES);
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new Stripe(stripeSize);
+        }
+    }
+
+    public BestDeal get(String productName, int quantity, Function<String, BestDeal> lookup) {
+        Key key = new Key(productName, quantity);
+        Stripe stripe = stripes[(key.hashCode() & 0x7fffffff) % STRIPES];
+        Object cached;
+        synchronized (stripe) {
+            cached = stripe.get(key);
+        }
+        if (cached != null) {
+            hits.increment();
+            return cached == NO_DEAL ? null : (BestDeal) cached;
+        }
+
+        misses.increment();
+        int lookupGeneration = generation;
+        BestDeal deal = lookup.apply(productName);
+        synchronized (stripe) {
+            if (lookupGeneration == generation) {
+                stripe.put(key, deal != null ? deal : NO_DEAL);
+            }
+        }
+        return deal;
+    }
+
+    // drops every entry; called when the data or the current date changes
+    public void invalidate() {
+        generation++;
+        for (Stripe stripe : stripes) {
+            synchronized (stripe) {
+                stripe.clear();
+            }
+        }
+    }
+
+    public int size() {
+        int size = 0;
+        for (Stripe stripe : stripes) {
+            synchronized (stripe) {
+                size += stripe.size();
+            }
+        }
+        return size;
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    public long getEvictions() {
+        return evictions.sum();
+    }
+
+    // hits, misses and evictions from zero; lookups running meanwhile may land on either side
+    public void resetCounts() {
+        hits.reset();
+        misses.reset();
+        evictions.reset();
+    }
+
+    private static final class Key {
+        final String productName;
+        final int quantity;
+
+        Key(String productName, int quantity) {
+            this.productName = productName;
+            this.quantity = quantity;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Key)) return false;
+            Key other = (Key) o;
+            return quantity == other.quantity && productName.equals(other.productName);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(productName, quantity);
+        }
+    }
+
+    @SuppressWarnings("serial") // never serialized
+    private class Stripe extends LinkedHashMap<Key, Object> {
+        private final int maxSize;
+
+        Stripe(int maxSize) {
+            super(16, 0.75f, true);
+            this.maxSize = maxSize;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Key, Object> eldest) {
+            if (size() > maxSize) {
+                evictions.increment();
+                return true;
+            }
+            return false;
+        }
+    }
+}
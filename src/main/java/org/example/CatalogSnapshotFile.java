@@ -0,0 +1,408 @@
+package org.example;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+
+// Binary image of a loaded PriceSnapshot, so a restart with unchanged feeds skips CSV parsing.
+// Layout (big-endian, every block length-prefixed):
+//   magic, version
+//   feeds: the name (see FeedFile.getName) and the modification time it was read at of every
+//          feed file, in load order
+//   string table: the catalog's string pool first, then discount text and n-grams
+//   catalog: units, currencies, then the ColumnarCatalog columns as they are
+//   discount feeds: row count, then one column per field (string columns as table ids)
+//   search index: posting lists keyed by gram, or -1 when the index was not a full build
+// The catalog columns are read straight into a ColumnarCatalog; only discounts are built as
+// objects, which the discount indexes need. The file is mapped a region at a time, so it may
+// be larger than one mapping can hold. The snapshot is fresh while every feed it was built from
+// still has the time it was read at, and there are no others: its own time does not matter,
+// so a feed replaced by an older copy, or one written while the snapshot was, is seen.
+class CatalogSnapshotFile {
+    private static final int MAGIC = 0x50435331; // "PCS1"
+    private static final int VERSION = 4;
+    // a mapping may not exceed 2 GB; larger files are read one region at a time
+    private static final long MAX_MAPPED_REGION = 1L << 30;
+
+    private final int feedCount;
+    private final ColumnarCatalog catalog;
+    private final List<LoadedFeed> discountFeeds;
+    private final Map<String, int[]> postings;
+
+    private CatalogSnapshotFile(int feedCount, ColumnarCatalog catalog, List<LoadedFeed> discountFeeds,
+                                Map<String, int[]> postings) {
+        this.feedCount = feedCount;
+        this.catalog = catalog;
+        this.discountFeeds = discountFeeds;
+        this.postings = postings;
+    }
+
+    // price and discount feeds
+    public int getFeedCount() {
+        return feedCount;
+    }
+
+    public ColumnarCatalog getCatalog() {
+        return catalog;
+    }
+
+    // in load order
+    public List<LoadedFeed> getDiscountFeeds() {
+        return discountFeeds;
+    }
+
+    // null when the search index is to be built
+    public Map<String, int[]> getPostings() {
+        return postings;
+    }
+
+    // null when there is no snapshot, or it was written for other feeds, or a feed changed since
+    // it was read
+    public static CatalogSnapshotFile readIfFresh(Path snapshot, List<FeedFile> expectedFeeds) throws IOException {
+        return readIfFresh(snapshot, expectedFeeds, MAX_MAPPED_REGION);
+    }
+
+    static CatalogSnapshotFile readIfFresh(Path snapshot, List<FeedFile> expectedFeeds, long regionSize) throws IOException {
+        if (!Files.isRegularFile(snapshot)) {
+            return null;
+        }
+        Map<String, FeedFile> feedsByName = new HashMap<>();
+        expectedFeeds.forEach(feed -> feedsByName.put(feed.getName(), feed));
+        try (FileChannel channel = FileChannel.open(snapshot, StandardOpenOption.READ)) {
+            MappedInput in = new MappedInput(channel, regionSize);
+            if (in.getInt() != MAGIC || in.getInt() != VERSION) {
+                throw new IOException("Not a catalog snapshot: " + snapshot);
+            }
+
+            // the rest is only read if the snapshot holds exactly the expected feeds
+            List<String> names = new ArrayList<>();
+            int feedCount = in.getInt();
+            for (int f = 0; f < feedCount; f++) {
+                String name = in.getString();
+                long readTime = in.getLong();
+                FeedFile feed = feedsByName.get(name);
+                // Long.MAX_VALUE: the time could not be told, so the feed may have changed
+                if (feed == null || readTime == Long.MAX_VALUE || FeedLoader.lastModified(feed) != readTime) {
+                    return null;
+                }
+                names.add(name);
+            }
+            if (names.size() != feedsByName.size()) {
+                return null;
+            }
+
+            String[] strings = new String[in.getInt()];
+            for (int i = 0; i < strings.length; i++) {
+                strings[i] = in.getString();
+            }
+            ColumnarCatalog catalog = readCatalog(in, strings);
+
+            List<LoadedFeed> discountFeeds = new ArrayList<>();
+            for (String name : names) {
+                FeedFile feed = feedsByName.get(name);
+                if (feed.getType() == FeedFile.Type.DISCOUNTS) {
+                    discountFeeds.add(LoadedFeed.ofDiscounts(feed, readDiscounts(in, strings)));
+                }
+            }
+
+            int postingCount = in.getInt();
+            if (postingCount < 0) {
+                return new CatalogSnapshotFile(feedCount, catalog, discountFeeds, null);
+            }
+            Map<String, int[]> postings = new HashMap<>(postingCount * 2);
+            for (int p = 0; p < postingCount; p++) {
+                String gram = strings[in.getInt()];
+                postings.put(gram, in.getInts(in.getInt()));
+            }
+            return new CatalogSnapshotFile(feedCount, catalog, discountFeeds, postings);
+        }
+    }
+
+    private static ColumnarCatalog readCatalog(MappedInput in, String[] strings) throws IOException {
+        ColumnarCatalog.Columns columns = new ColumnarCatalog.Columns();
+        columns.strings = Arrays.copyOf(strings, in.getInt());
+        columns.units = new ArrayList<>();
+        for (int i = in.getInt(); i > 0; i--) {
+            columns.units.add(strings[in.getInt()]);
+        }
+        columns.currencies = new ArrayList<>();
+        for (int i = in.getInt(); i > 0; i--) {
+            columns.currencies.add(strings[in.getInt()]);
+        }
+
+        int descriptions = in.getInt();
+        columns.descriptionCount = descriptions;
+        columns.name = in.getInts(descriptions);
+        columns.brand = in.getInts(descriptions);
+        columns.category = in.getInts(descriptions);
+        columns.quantity = in.getFloats(descriptions);
+        columns.unit = in.getBytes(descriptions);
+        columns.currency = in.getBytes(descriptions);
+
+        int products = in.getInt();
+        columns.productCount = products;
+        columns.productStore = in.getInts(products);
+        columns.productId = in.getInts(products);
+        columns.versionStart = in.getInts(products + 1);
+        int versions = columns.versionStart[products];
+        columns.versionDay = in.getInts(versions);
+        columns.versionDescription = in.getInts(versions);
+        columns.seriesStart = in.getInts(products + 1);
+        columns.seriesSize = in.getInts(products);
+        columns.seriesData = in.getBytes(columns.seriesStart[products]);
+        return new ColumnarCatalog(columns);
+    }
+
+    private static List<Discount> readDiscounts(MappedInput in, String[] strings) throws IOException {
+        int rows = in.getInt();
+        int[] ids = in.getInts(rows), names = in.getInts(rows), brands = in.getInts(rows);
+        float[] quantities = in.getFloats(rows);
+        int[] units = in.getInts(rows), categories = in.getInts(rows), fromDates = in.getInts(rows), toDates = in.getInts(rows);
+        float[] percentages = in.getFloats(rows);
+        List<Discount> discounts = new ArrayList<>(rows);
+        for (int r = 0; r < rows; r++) {
+            discounts.add(new Discount(strings[ids[r]], strings[names[r]], strings[brands[r]], quantities[r],
+                    strings[units[r]], strings[categories[r]], strings[fromDates[r]], strings[toDates[r]], percentages[r]));
+        }
+        return discounts;
+    }
+
+    // Written to a temporary file first and moved into place, so readers never see half a
+    // snapshot. The snapshot is published, so nothing writes to its columns meanwhile.
+    public static void write(Path snapshot, PriceSnapshot data) throws IOException {
+        ColumnarCatalog.Columns columns = data.getCatalog().getColumns();
+        Map<String, List<Discount>> discountsByFeed = data.getDiscountsByFeed();
+
+        // the catalog's ids stay the same
+        Map<String, Integer> table = new LinkedHashMap<>();
+        for (String value : columns.strings) {
+            table.put(value, table.size());
+        }
+        columns.units.forEach(unit -> id(table, unit));
+        columns.currencies.forEach(currency -> id(table, currency));
+        for (List<Discount> discounts : discountsByFeed.values()) {
+            for (Discount discount : discounts) {
+                id(table, discount.getProductId());
+                id(table, discount.getProductName());
+                id(table, discount.getBrand());
+                id(table, discount.getPackageUnit());
+                id(table, discount.getProductCategory());
+                id(table, discount.getFromDate());
+                id(table, discount.getToDate());
+            }
+        }
+        // after ingests the posting lists miss the scanned docs; the index is then built on load
+        ProductSearchIndex searchIndex = data.getSearchIndex();
+        Map<String, int[]> postings = searchIndex.getScannedCount() == 0 ? searchIndex.getPostings() : null;
+        if (postings != null) {
+            postings.keySet().forEach(gram -> id(table, gram));
+        }
+
+        Path parent = snapshot.toAbsolutePath().getParent();
+        Files.createDirectories(parent);
+        Path temp = Files.createTempFile(parent, "catalog", ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp), 1 << 16))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+
+            Map<String, Long> feedTimes = data.getFeedTimes();
+            Set<String> feedNames = feedTimes.keySet();
+            out.writeInt(feedNames.size());
+            for (String name : feedNames) {
+                writeString(out, name);
+                out.writeLong(feedTimes.get(name));
+            }
+
+            out.writeInt(table.size());
+            for (String value : table.keySet()) {
+                writeString(out, value);
+            }
+
+            writeCatalog(out, table, columns);
+
+            for (String name : feedNames) {
+                List<Discount> discounts = discountsByFeed.get(name);
+                if (discounts != null) {
+                    writeDiscounts(out, table, discounts);
+                }
+            }
+
+            if (postings == null) {
+                out.writeInt(-1);
+            } else {
+                out.writeInt(postings.size());
+                for (Map.Entry<String, int[]> posting : postings.entrySet()) {
+                    out.writeInt(table.get(posting.getKey()));
+                    out.writeInt(posting.getValue().length);
+                    for (int doc : posting.getValue()) {
+                        out.writeInt(doc);
+                    }
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(temp);
+            throw e;
+        }
+        Files.move(temp, snapshot, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static void writeCatalog(DataOutputStream out, Map<String, Integer> table, ColumnarCatalog.Columns columns)
+            throws IOException {
+        out.writeInt(columns.strings.length);
+        out.writeInt(columns.units.size());
+        for (String unit : columns.units) out.writeInt(table.get(unit));
+        out.writeInt(columns.currencies.size());
+        for (String currency : columns.currencies) out.writeInt(table.get(currency));
+
+        int descriptions = columns.descriptionCount;
+        out.writeInt(descriptions);
+        writeInts(out, columns.name, descriptions);
+        writeInts(out, columns.brand, descriptions);
+        writeInts(out, columns.category, descriptions);
+        for (int i = 0; i < descriptions; i++) out.writeFloat(columns.quantity[i]);
+        out.write(columns.unit, 0, descriptions);
+        out.write(columns.currency, 0, descriptions);
+
+        int products = columns.productCount;
+        out.writeInt(products);
+        writeInts(out, columns.productStore, products);
+        writeInts(out, columns.productId, products);
+        writeInts(out, columns.versionStart, products + 1);
+        int versions = columns.versionStart[products];
+        writeInts(out, columns.versionDay, versions);
+        writeInts(out, columns.versionDescription, versions);
+        writeInts(out, columns.seriesStart, products + 1);
+        writeInts(out, columns.seriesSize, products);
+        out.write(columns.seriesData, 0, columns.seriesStart[products]);
+    }
+
+    private static void writeDiscounts(DataOutputStream out, Map<String, Integer> table, List<Discount> discounts)
+            throws IOException {
+        out.writeInt(discounts.size());
+        for (Discount d : discounts) out.writeInt(table.get(d.getProductId()));
+        for (Discount d : discounts) out.writeInt(table.get(d.getProductName()));
+        for (Discount d : discounts) out.writeInt(table.get(d.getBrand()));
+        for (Discount d : discounts) out.writeFloat(d.getPackageQuantity());
+        for (Discount d : discounts) out.writeInt(table.get(d.getPackageUnit()));
+        for (Discount d : discounts) out.writeInt(table.get(d.getProductCategory()));
+        for (Discount d : discounts) out.writeInt(table.get(d.getFromDate()));
+        for (Discount d : discounts) out.writeInt(table.get(d.getToDate()));
+        for (Discount d : discounts) out.writeFloat(d.getDiscountPercentage());
+    }
+
+    private static void writeInts(DataOutputStream out, int[] values, int count) throws IOException {
+        for (int i = 0; i < count; i++) {
+            out.writeInt(values[i]);
+        }
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static void id(Map<String, Integer> table, String value) {
+        table.putIfAbsent(value, table.size());
+    }
+
+    // reads a file through read-only mappings of at most regionSize bytes, moving the mapping
+    // on when the next value does not fit in what is left of it
+    private static class MappedInput {
+        private final FileChannel channel;
+        private final long size;
+        private final long regionSize;
+        private long regionStart;
+        private ByteBuffer region;
+        private byte[] stringBytes = new byte[256];
+
+        MappedInput(FileChannel channel, long regionSize) throws IOException {
+            this.channel = channel;
+            this.regionSize = regionSize;
+            size = channel.size();
+            map(0);
+        }
+
+        private void map(long offset) throws IOException {
+            regionStart = offset;
+            region = channel.map(FileChannel.MapMode.READ_ONLY, offset, Math.min(size - offset, regionSize));
+        }
+
+        // at least the given number of bytes left in the region
+        private void require(int bytes) throws IOException {
+            if (region.remaining() < bytes) {
+                map(regionStart + region.position());
+                if (region.remaining() < bytes) {
+                    throw new IOException("Snapshot ends before its last value, at offset " + regionStart);
+                }
+            }
+        }
+
+        int getInt() throws IOException {
+            require(Integer.BYTES);
+            return region.getInt();
+        }
+
+        // as two ints, so that a region need only hold four bytes
+        long getLong() throws IOException {
+            long high = getInt();
+            return (high << 32) | (getInt() & 0xFFFFFFFFL);
+        }
+
+        String getString() throws IOException {
+            int length = getInt();
+            if (stringBytes.length < length) {
+                stringBytes = new byte[length];
+            }
+            get(stringBytes, length);
+            return new String(stringBytes, 0, length, StandardCharsets.UTF_8);
+        }
+
+        int[] getInts(int count) throws IOException {
+            int[] values = new int[count];
+            for (int done = 0; done < count; ) {
+                require(Integer.BYTES);
+                int n = Math.min(count - done, region.remaining() / Integer.BYTES);
+                region.asIntBuffer().get(values, done, n);
+                region.position(region.position() + n * Integer.BYTES);
+                done += n;
+            }
+            return values;
+        }
+
+        float[] getFloats(int count) throws IOException {
+            float[] values = new float[count];
+            for (int done = 0; done < count; ) {
+                require(Float.BYTES);
+                int n = Math.min(count - done, region.remaining() / Float.BYTES);
+                region.asFloatBuffer().get(values, done, n);
+                region.position(region.position() + n * Float.BYTES);
+                done += n;
+            }
+            return values;
+        }
+
+        byte[] getBytes(int count) throws IOException {
+            byte[] values = new byte[count];
+            get(values, count);
+            return values;
+        }
+
+        private void get(byte[] values, int count) throws IOException {
+            for (int done = 0; done < count; ) {
+                require(1);
+                int n = Math.min(count - done, region.remaining());
+                region.get(values, done, n);
+                done += n;
+            }
+        }
+    }
+}
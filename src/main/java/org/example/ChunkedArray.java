@@ -0,0 +1,45 @@
+package org.example;
+
+import java.util.Arrays;
+
+// The object counterpart of ChunkedIntArray: copies share chunks until they write to them.
+// Unwritten slots read as null. The values themselves are shared, not copied.
+final class ChunkedArray<T> {
+    private static final int CHUNK_BITS = 10;
+    private static final int CHUNK_SIZE = 1 << CHUNK_BITS;
+
+    private Object[][] chunks = new Object[0][];
+    private boolean[] owned = new boolean[0]; // chunks no copy shares
+
+    public ChunkedArray<T> copy() {
+        ChunkedArray<T> copy = new ChunkedArray<>();
+        copy.chunks = chunks.clone();
+        copy.owned = new boolean[chunks.length];
+        owned = new boolean[chunks.length];
+        return copy;
+    }
+
+    @SuppressWarnings("unchecked") // only set() stores values
+    public T get(int index) {
+        int chunk = index >>> CHUNK_BITS;
+        Object[] values = chunk < chunks.length ? chunks[chunk] : null;
+        return values != null ? (T) values[index & (CHUNK_SIZE - 1)] : null;
+    }
+
+    public void set(int index, T value) {
+        writable(index >>> CHUNK_BITS)[index & (CHUNK_SIZE - 1)] = value;
+    }
+
+    private Object[] writable(int chunk) {
+        if (chunk >= chunks.length) {
+            int capacity = Math.max(chunk + 1, chunks.length * 2);
+            chunks = Arrays.copyOf(chunks, capacity);
+            owned = Arrays.copyOf(owned, capacity);
+        }
+        if (!owned[chunk]) {
+            chunks[chunk] = chunks[chunk] != null ? chunks[chunk].clone() : new Object[CHUNK_SIZE];
+            owned[chunk] = true;
+        }
+        return chunks[chunk];
+    }
+}
@@ -0,0 +1,45 @@
+package org.example;
+
+import java.util.Arrays;
+
+// An int array in fixed-size chunks that copies share until they write to them: copy() costs
+// one reference per chunk, and the first write to a chunk copies just that chunk. Unwritten
+// slots read as 0, and chunks nothing was written to are never allocated.
+final class ChunkedIntArray {
+    private static final int CHUNK_BITS = 10;
+    private static final int CHUNK_SIZE = 1 << CHUNK_BITS;
+
+    private int[][] chunks = new int[0][];
+    private boolean[] owned = new boolean[0]; // chunks no copy shares
+
+    public ChunkedIntArray copy() {
+        ChunkedIntArray copy = new ChunkedIntArray();
+        copy.chunks = chunks.clone();
+        copy.owned = new boolean[chunks.length];
+        owned = new boolean[chunks.length];
+        return copy;
+    }
+
+    public int get(int index) {
+        int chunk = index >>> CHUNK_BITS;
+        int[] values = chunk < chunks.length ? chunks[chunk] : null;
+        return values != null ? values[index & (CHUNK_SIZE - 1)] : 0;
+    }
+
+    public void set(int index, int value) {
+        writable(index >>> CHUNK_BITS)[index & (CHUNK_SIZE - 1)] = value;
+    }
+
+    private int[] writable(int chunk) {
+        if (chunk >= chunks.length) {
+            int capacity = Math.max(chunk + 1, chunks.length * 2);
+            chunks = Arrays.copyOf(chunks, capacity);
+            owned = Arrays.copyOf(owned, capacity);
+        }
+        if (!owned[chunk]) {
+            chunks[chunk] = chunks[chunk] != null ? chunks[chunk].clone() : new int[CHUNK_SIZE];
+            owned[chunk] = true;
+        }
+        return chunks[chunk];
+    }
+}
@@ -0,0 +1,711 @@
+package org.example;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.IntConsumer;
+
+// Every loaded price (all stores, all dated files) by product instead of one Price object per
+// row. A "product" is one (store, product id) pair. Its dated list prices are its PriceSeries,
+// a few bytes a day, which is the only place they are kept. Its name, brand, category and pack
+// are a description number per version: a version starts on a day the description changed, so
+// a product that keeps its name and pack has one version and stores them once. Text is
+// dictionary-encoded through one shared pool and units and currencies are byte codes.
+//
+// Price objects are built on demand (toPrice) for callers that need them.
+//
+// A catalog that has been published to readers is never written again: fork() returns a copy
+// to add to, which shares the description and product columns (it only writes past this
+// catalog's last entries) and copies the series and version lists it changes, and the chunks
+// holding them (see ChunkedArray), so a fork costs the same whatever the size of the catalog.
+// Only the first fork can write past a catalog's entries. Products and strings it adds stay
+// in maps of its own until it is forked in turn, so a fork that is dropped half-way (a file
+// that failed to load) leaves nothing behind, and the next fork of the same catalog copies
+// the columns instead of sharing them.
+class ColumnarCatalog {
+    private static final int[] NO_VERSIONS = new int[0];
+
+    private final StringPool strings;
+    private final List<String> units;
+    private final List<String> currencies;
+    private boolean forked; // a fork writes past this catalog's entries
+
+    // description columns
+    private int descriptionCount;
+    private int[] name = new int[16];
+    private int[] brand = new int[16];
+    private int[] category = new int[16];
+    private float[] quantity = new float[16];
+    private byte[] unit = new byte[16];
+    private byte[] currency = new byte[16];
+
+    // product columns
+    private int productCount;
+    private int[] productStore = new int[16];
+    private int[] productId = new int[16];
+    private ChunkedArray<PriceSeries> series = new ChunkedArray<>();
+    private ChunkedArray<int[]> versions = new ChunkedArray<>(); // (first day, description) pairs, oldest first
+    private int sharedProducts; // products whose series belong to the catalog forked from
+    private BitSet copiedSeries = new BitSet();
+    // shared by the forks that share columns; entries at or past a catalog's product count
+    // belong to later forks. A fork that shares them keeps the products it adds in its own
+    // map (null otherwise) until it is forked.
+    private final Map<String, Map<String, Integer>> productsByStore;
+    private final Map<String, Map<String, Integer>> addedProducts;
+    private final List<String> stores;
+
+    // Products whose price or description changed on a day, in runs of the same day (one per
+    // file, as files are added one at a time), so that the products priced differently on two
+    // days are found without reading every series. Shared by forks like the columns above.
+    private int changeCount;
+    private int[] changeProduct = new int[64];
+    private int segmentCount;
+    private int[] segmentDay = new int[16];
+    private int[] segmentStart = new int[16];
+
+    public ColumnarCatalog() {
+        strings = new StringPool();
+        units = new ArrayList<>();
+        currencies = new ArrayList<>();
+        productsByStore = new ConcurrentHashMap<>();
+        addedProducts = null;
+        stores = new ArrayList<>();
+    }
+
+    // a catalog with the given columns, e.g. read back from a snapshot file
+    public ColumnarCatalog(Columns columns) {
+        strings = new StringPool(columns.strings);
+        units = new ArrayList<>(columns.units);
+        currencies = new ArrayList<>(columns.currencies);
+        descriptionCount = columns.descriptionCount;
+        name = columns.name;
+        brand = columns.brand;
+        category = columns.category;
+        quantity = columns.quantity;
+        unit = columns.unit;
+        currency = columns.currency;
+        productCount = columns.productCount;
+        productStore = columns.productStore;
+        productId = columns.productId;
+        productsByStore = new ConcurrentHashMap<>();
+        addedProducts = null;
+        stores = new ArrayList<>();
+        mapProducts();
+
+        for (int product = 0; product < productCount; product++) {
+            int from = columns.versionStart[product];
+            int to = columns.versionStart[product + 1];
+            int[] productVersions = new int[(to - from) * 2];
+            for (int v = from; v < to; v++) {
+                productVersions[(v - from) * 2] = columns.versionDay[v];
+                productVersions[(v - from) * 2 + 1] = columns.versionDescription[v];
+            }
+            versions.set(product, productVersions);
+            PriceSeries productSeries = PriceSeries.decode(Arrays.copyOfRange(columns.seriesData,
+                    columns.seriesStart[product], columns.seriesStart[product + 1]), columns.seriesSize[product]);
+            productSeries.freeze();
+            series.set(product, productSeries);
+        }
+        logAllChanges();
+    }
+
+    // a fork of base that shares its columns and maps, or has copies of them
+    private ColumnarCatalog(ColumnarCatalog base, boolean shared) {
+        units = new ArrayList<>(base.units);
+        currencies = new ArrayList<>(base.currencies);
+        descriptionCount = base.descriptionCount;
+        productCount = base.productCount;
+        series = base.series.copy();
+        versions = base.versions.copy();
+        sharedProducts = base.productCount;
+        stores = new ArrayList<>(base.stores);
+        changeCount = base.changeCount;
+        segmentCount = base.segmentCount;
+        if (shared) {
+            strings = new StringPool(base.strings, true);
+            name = base.name;
+            brand = base.brand;
+            category = base.category;
+            quantity = base.quantity;
+            unit = base.unit;
+            currency = base.currency;
+            productStore = base.productStore;
+            productId = base.productId;
+            changeProduct = base.changeProduct;
+            segmentDay = base.segmentDay;
+            segmentStart = base.segmentStart;
+            productsByStore = base.productsByStore;
+            addedProducts = new HashMap<>();
+        } else {
+            strings = new StringPool(base.strings, false);
+            name = Arrays.copyOf(base.name, Math.max(16, descriptionCount));
+            brand = Arrays.copyOf(base.brand, name.length);
+            category = Arrays.copyOf(base.category, name.length);
+            quantity = Arrays.copyOf(base.quantity, name.length);
+            unit = Arrays.copyOf(base.unit, name.length);
+            currency = Arrays.copyOf(base.currency, name.length);
+            productStore = Arrays.copyOf(base.productStore, Math.max(16, productCount));
+            productId = Arrays.copyOf(base.productId, productStore.length);
+            changeProduct = Arrays.copyOf(base.changeProduct, Math.max(64, changeCount));
+            segmentDay = Arrays.copyOf(base.segmentDay, Math.max(16, segmentCount));
+            segmentStart = Arrays.copyOf(base.segmentStart, segmentDay.length);
+            productsByStore = new ConcurrentHashMap<>();
+            addedProducts = null;
+            mapProducts();
+        }
+    }
+
+    // A copy to add prices to; this catalog stays as it is and can no longer be added to. The
+    // first fork shares this catalog's columns. Another one (a fork of it was dropped, or is
+    // still being added to) copies them, which costs as much as the catalog.
+    public ColumnarCatalog fork() {
+        // what this catalog added is kept now that it is forked
+        if (addedProducts != null && !forked) {
+            addedProducts.forEach((store, products) ->
+                    productsByStore.computeIfAbsent(store, k -> new ConcurrentHashMap<>()).putAll(products));
+            strings.keepAdded();
+        }
+        boolean shared = !forked;
+        forked = true;
+        return new ColumnarCatalog(this, shared);
+    }
+
+    // the product maps of a catalog with its own, from its product columns
+    private void mapProducts() {
+        for (int product = 0; product < productCount; product++) {
+            String store = getStore(product);
+            Map<String, Integer> storeProducts = productsByStore.computeIfAbsent(store, k -> new ConcurrentHashMap<>());
+            if (storeProducts.isEmpty()) {
+                stores.add(store);
+            }
+            storeProducts.put(getProductId(product), product);
+        }
+    }
+
+    // A new catalog with the store's prices of the day (one dated file) replaced by the given
+    // prices, as if the file had listed them from the start. Products that only the old file
+    // listed are left out; products new to the store take the place of the first product the
+    // old or new file lists. Reads every series.
+    public ColumnarCatalog replacing(String store, int epochDay, List<Price> prices) {
+        Map<String, Price> replacements = new LinkedHashMap<>();
+        prices.forEach(price -> replacements.put(price.getProductId(), price));
+        ColumnarCatalog replaced = new ColumnarCatalog();
+        boolean placed = false;
+        for (int product = 0; product < productCount; product++) {
+            String productStoreName = getStore(product);
+            boolean inStore = productStoreName.equals(store);
+            Price replacement = inStore ? replacements.get(getProductId(product)) : null;
+            if (!placed && inStore && (replacement != null || isListedOn(product, epochDay))) {
+                for (Price price : replacements.values()) {
+                    if (findProduct(store, price.getProductId()) < 0) {
+                        replaced.add(store, epochDay, price);
+                    }
+                }
+                placed = true;
+            }
+            int current = product;
+            boolean[] added = {replacement == null};
+            getSeries(product).scan(Integer.MIN_VALUE, Integer.MAX_VALUE, (day, cents) -> {
+                if (!added[0] && day >= epochDay) {
+                    replaced.add(store, epochDay, replacement);
+                    added[0] = true;
+                }
+                if (day != epochDay || !inStore) {
+                    replaced.add(productStoreName, day, toPrice(current, getDescriptionAsOf(current, day), cents));
+                }
+            });
+            if (!added[0]) {
+                replaced.add(store, epochDay, replacement);
+            }
+        }
+        if (!placed) {
+            replacements.values().forEach(price -> replaced.add(store, epochDay, price));
+        }
+        replaced.sortChanges();
+        return replaced;
+    }
+
+    private void checkNotForked() {
+        if (forked) {
+            throw new IllegalStateException("Catalog was forked; add to the fork instead");
+        }
+    }
+
+    // the product's price and description from the day on; a second file for the same day
+    // replaces what the first one listed
+    public void add(String store, int epochDay, Price price) {
+        checkNotForked();
+        int product = findProduct(store, price.getProductId());
+        if (product < 0) {
+            if (!stores.contains(store)) {
+                stores.add(store);
+            }
+            product = newProduct(store, price.getProductId());
+            Map<String, Map<String, Integer>> products = addedProducts != null ? addedProducts : productsByStore;
+            products.computeIfAbsent(store, k -> new ConcurrentHashMap<>()).put(price.getProductId(), product);
+        }
+
+        PriceSeries productSeries = writableSeries(product);
+        int previousCents = productSeries.priceAsOf(epochDay);
+        int previousDescription = getDescriptionAsOf(product, epochDay);
+        boolean late = productSeries.size() > 0 && epochDay <= productSeries.getLastDay();
+        int description = description(previousDescription, price);
+        productSeries.record(epochDay, price.getPrice());
+        setDescription(product, epochDay, description, previousDescription);
+
+        if (late) {
+            // the point after it may now differ from this one, where it did not before
+            logChange(product, epochDay);
+            int next = productSeries.nextDay(epochDay);
+            if (next != Integer.MAX_VALUE) {
+                logChange(product, next);
+            }
+        } else if (previousCents != price.getPrice() || previousDescription != description) {
+            logChange(product, epochDay);
+        }
+    }
+
+    // the given description when the price has the same one, otherwise a new one
+    private int description(int current, Price price) {
+        int nameId = strings.id(price.getProductName());
+        int brandId = strings.id(price.getBrand());
+        int categoryId = strings.id(price.getProductCategory());
+        byte unitCode = code(units, price.getPackageUnit());
+        byte currencyCode = code(currencies, price.getCurrency());
+        if (current >= 0 && name[current] == nameId && brand[current] == brandId && category[current] == categoryId
+                && quantity[current] == price.getPackageQuantity() && unit[current] == unitCode
+                && currency[current] == currencyCode) {
+            return current;
+        }
+
+        int description = descriptionCount;
+        if (description == name.length) {
+            int capacity = Math.max(16, description * 2);
+            name = Arrays.copyOf(name, capacity);
+            brand = Arrays.copyOf(brand, capacity);
+            category = Arrays.copyOf(category, capacity);
+            quantity = Arrays.copyOf(quantity, capacity);
+            unit = Arrays.copyOf(unit, capacity);
+            currency = Arrays.copyOf(currency, capacity);
+        }
+        name[description] = nameId;
+        brand[description] = brandId;
+        category[description] = categoryId;
+        quantity[description] = price.getPackageQuantity();
+        unit[description] = unitCode;
+        currency[description] = currencyCode;
+        descriptionCount++;
+        return description;
+    }
+
+    private int newProduct(String store, String id) {
+        int product = productCount;
+        if (product == productStore.length) {
+            int capacity = Math.max(16, product * 2);
+            productStore = Arrays.copyOf(productStore, capacity);
+            productId = Arrays.copyOf(productId, capacity);
+        }
+        productStore[product] = strings.id(store);
+        productId[product] = strings.id(id);
+        PriceSeries productSeries = new PriceSeries();
+        productSeries.freeze();
+        series.set(product, productSeries);
+        versions.set(product, NO_VERSIONS);
+        productCount++;
+        return product;
+    }
+
+    // the product's series, copied first if the catalog forked from holds it
+    private PriceSeries writableSeries(int product) {
+        PriceSeries productSeries = series.get(product);
+        if (product < sharedProducts && !copiedSeries.get(product)) {
+            productSeries = productSeries.copy();
+            productSeries.freeze();
+            series.set(product, productSeries);
+            copiedSeries.set(product);
+        }
+        return productSeries;
+    }
+
+    // Makes the description the one of the point just recorded on the day, where the one in
+    // effect before was previous, keeping one version per change: the day starts a version
+    // unless the one before has the same description, and the next point keeps the previous
+    // description unless it starts a version itself. Version lists are replaced, not written
+    // to, so forks share them.
+    private void setDescription(int product, int epochDay, int description, int previous) {
+        if (description == previous) {
+            return;
+        }
+        int[] old = versions.get(product);
+        int next = getSeries(product).nextDay(epochDay);
+        boolean nextStartsVersion = false;
+        for (int v = 0; v < old.length; v += 2) {
+            nextStartsVersion |= old[v] == next;
+        }
+        int[] updated = new int[old.length + 4];
+        int size = 0;
+        for (int v = 0; v < old.length && old[v] < epochDay; v += 2) {
+            size = addVersion(updated, size, old[v], old[v + 1]);
+        }
+        size = addVersion(updated, size, epochDay, description);
+        if (next != Integer.MAX_VALUE && !nextStartsVersion && previous >= 0) {
+            size = addVersion(updated, size, next, previous);
+        }
+        for (int v = 0; v < old.length; v += 2) {
+            if (old[v] > epochDay) {
+                size = addVersion(updated, size, old[v], old[v + 1]);
+            }
+        }
+        versions.set(product, Arrays.copyOf(updated, size));
+    }
+
+    // appends a version unless the last one has the same description; returns the new size
+    private static int addVersion(int[] versions, int size, int epochDay, int description) {
+        if (size == 0 || versions[size - 1] != description) {
+            versions[size] = epochDay;
+            versions[size + 1] = description;
+            size += 2;
+        }
+        return size;
+    }
+
+    private void logChange(int product, int epochDay) {
+        if (segmentCount == 0 || segmentDay[segmentCount - 1] != epochDay) {
+            if (segmentCount == segmentDay.length) {
+                segmentDay = Arrays.copyOf(segmentDay, segmentCount * 2);
+                segmentStart = Arrays.copyOf(segmentStart, segmentCount * 2);
+            }
+            segmentDay[segmentCount] = epochDay;
+            segmentStart[segmentCount] = changeCount;
+            segmentCount++;
+        }
+        if (changeCount == changeProduct.length) {
+            changeProduct = Arrays.copyOf(changeProduct, changeCount * 2);
+        }
+        changeProduct[changeCount++] = product;
+    }
+
+    // the change log of a catalog built product by product, from its series and versions
+    private void logAllChanges() {
+        for (int product = 0; product < productCount; product++) {
+            int current = product;
+            int[] previous = {-1, -1};
+            getSeries(product).scan(Integer.MIN_VALUE, Integer.MAX_VALUE, (day, cents) -> {
+                int description = getDescriptionAsOf(current, day);
+                if (cents != previous[0] || description != previous[1]) {
+                    logChange(current, day);
+                }
+                previous[0] = cents;
+                previous[1] = description;
+            });
+        }
+        sortChanges();
+    }
+
+    // one run per day, for a log written product by product
+    private void sortChanges() {
+        long[] byDay = new long[changeCount];
+        for (int segment = 0; segment < segmentCount; segment++) {
+            int end = segment + 1 < segmentCount ? segmentStart[segment + 1] : changeCount;
+            for (int change = segmentStart[segment]; change < end; change++) {
+                byDay[change] = ((long) segmentDay[segment] << 32) | change;
+            }
+        }
+        Arrays.sort(byDay);
+        int[] products = changeProduct;
+        changeProduct = new int[Math.max(64, changeCount)];
+        changeCount = 0;
+        segmentCount = 0;
+        for (long entry : byDay) {
+            logChange(products[(int) entry], (int) (entry >> 32));
+        }
+    }
+
+    private static byte code(List<String> table, String value) {
+        int code = table.indexOf(value);
+        if (code < 0) {
+            if (table.size() == 256) {
+                throw new IllegalStateException("More than 256 distinct values for a byte-coded column: " + value);
+            }
+            table.add(value);
+            code = table.size() - 1;
+        }
+        return (byte) code;
+    }
+
+    // distinct product descriptions; at most one per version
+    public int getDescriptionCount() {
+        return descriptionCount;
+    }
+
+    public int getProductCount() {
+        return productCount;
+    }
+
+    // in the order they were first added
+    public List<String> getStores() {
+        return Collections.unmodifiableList(stores);
+    }
+
+    // product number, or -1
+    public int findProduct(String store, String id) {
+        Map<String, Integer> storeProducts = productsByStore.get(store);
+        Integer product = storeProducts != null ? storeProducts.get(id) : null;
+        if (product == null && addedProducts != null) {
+            storeProducts = addedProducts.get(store);
+            product = storeProducts != null ? storeProducts.get(id) : null;
+        }
+        return product != null && product < productCount ? product : -1;
+    }
+
+    public String getStore(int product) {
+        return strings.get(productStore[product]);
+    }
+
+    public String getProductId(int product) {
+        return strings.get(productId[product]);
+    }
+
+    // dated list prices of the product, frozen
+    public PriceSeries getSeries(int product) {
+        PriceSeries productSeries = series.get(product);
+        return productSeries != null ? productSeries : PriceSeries.EMPTY;
+    }
+
+    // descriptions the product had, one per change
+    public int getVersionCount(int product) {
+        return versions.get(product).length / 2;
+    }
+
+    // true if a file of the day listed the product
+    public boolean isListedOn(int product, int epochDay) {
+        return getSeries(product).nextDay(epochDay - 1) == epochDay;
+    }
+
+    // description of the product as listed on the day (by the latest file dated on or before
+    // it), or -1 if it was not listed by then
+    public int getDescriptionAsOf(int product, int epochDay) {
+        int[] productVersions = versions.get(product);
+        int lo = 0;
+        int hi = productVersions.length / 2 - 1;
+        int found = -1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            if (productVersions[mid * 2] <= epochDay) {
+                found = productVersions[mid * 2 + 1];
+                lo = mid + 1;
+            } else {
+                hi = mid - 1;
+            }
+        }
+        return found;
+    }
+
+    // list price of the product on the day, in cents, or -1 if it was not listed by then
+    public int getCentsAsOf(int product, int epochDay) {
+        return getSeries(product).priceAsOf(epochDay);
+    }
+
+    public int getLatestDescription(int product) {
+        int[] productVersions = versions.get(product);
+        return productVersions[productVersions.length - 1];
+    }
+
+    public int getLatestCents(int product) {
+        return getSeries(product).getLastCents();
+    }
+
+    // every product whose price or description changed on a day after fromDay and on or
+    // before toDay, possibly more than once: those that may be priced differently on the two
+    public void forEachProductChangedBetween(int fromDay, int toDay, IntConsumer action) {
+        for (int segment = 0; segment < segmentCount; segment++) {
+            if (segmentDay[segment] <= fromDay || segmentDay[segment] > toDay) {
+                continue;
+            }
+            int end = segment + 1 < segmentCount ? segmentStart[segment + 1] : changeCount;
+            for (int change = segmentStart[segment]; change < end; change++) {
+                action.accept(changeProduct[change]);
+            }
+        }
+    }
+
+    public float getQuantity(int description) {
+        return quantity[description];
+    }
+
+    public String getUnit(int description) {
+        return units.get(unit[description] & 0xFF);
+    }
+
+    public String getCurrency(int description) {
+        return currencies.get(currency[description] & 0xFF);
+    }
+
+    public String getName(int description) {
+        return strings.get(name[description]);
+    }
+
+    public String getBrand(int description) {
+        return strings.get(brand[description]);
+    }
+
+    public String getCategory(int description) {
+        return strings.get(category[description]);
+    }
+
+    // the product as listed on the day, or null if it was not listed by then
+    public Price toPrice(int product, int epochDay) {
+        int description = getDescriptionAsOf(product, epochDay);
+        return description < 0 ? null : toPrice(product, description, getCentsAsOf(product, epochDay));
+    }
+
+    public Price toLatestPrice(int product) {
+        return toPrice(product, getLatestDescription(product), getLatestCents(product));
+    }
+
+    private Price toPrice(int product, int description, int cents) {
+        return new Price(getProductId(product), getName(description), getCategory(description), getBrand(description),
+                getQuantity(description), getUnit(description), cents, getCurrency(description));
+    }
+
+    // The columns for writing them out: the description and product columns as they are (they
+    // may be longer than their count and must not be changed), the versions and series of
+    // every product one after the other.
+    public Columns getColumns() {
+        Columns columns = new Columns();
+        columns.strings = strings.values();
+        columns.units = new ArrayList<>(units);
+        columns.currencies = new ArrayList<>(currencies);
+        columns.descriptionCount = descriptionCount;
+        columns.name = name;
+        columns.brand = brand;
+        columns.category = category;
+        columns.quantity = quantity;
+        columns.unit = unit;
+        columns.currency = currency;
+        columns.productCount = productCount;
+        columns.productStore = productStore;
+        columns.productId = productId;
+
+        columns.versionStart = new int[productCount + 1];
+        columns.seriesStart = new int[productCount + 1];
+        columns.seriesSize = new int[productCount];
+        for (int product = 0; product < productCount; product++) {
+            columns.versionStart[product + 1] = columns.versionStart[product] + getVersionCount(product);
+            columns.seriesStart[product + 1] = columns.seriesStart[product] + getSeries(product).getEncodedSize();
+            columns.seriesSize[product] = getSeries(product).size();
+        }
+        columns.versionDay = new int[columns.versionStart[productCount]];
+        columns.versionDescription = new int[columns.versionStart[productCount]];
+        columns.seriesData = new byte[columns.seriesStart[productCount]];
+        for (int product = 0; product < productCount; product++) {
+            int[] productVersions = versions.get(product);
+            for (int v = 0; v < productVersions.length / 2; v++) {
+                columns.versionDay[columns.versionStart[product] + v] = productVersions[v * 2];
+                columns.versionDescription[columns.versionStart[product] + v] = productVersions[v * 2 + 1];
+            }
+            byte[] encoded = getSeries(product).getEncoded();
+            System.arraycopy(encoded, 0, columns.seriesData, columns.seriesStart[product], encoded.length);
+        }
+        return columns;
+    }
+
+    // the stored columns of a catalog (see getColumns); name, brand, category, productStore and
+    // productId hold indexes into strings, unit and currency into units and currencies. The
+    // versions of product p are entries versionStart[p] to versionStart[p + 1] of versionDay and
+    // versionDescription; its series is seriesSize[p] points encoded in seriesData from
+    // seriesStart[p] to seriesStart[p + 1] (see PriceSeries.getEncoded).
+    static class Columns {
+        String[] strings;
+        List<String> units;
+        List<String> currencies;
+        int descriptionCount;
+        int[] name;
+        int[] brand;
+        int[] category;
+        float[] quantity;
+        byte[] unit;
+        byte[] currency;
+        int productCount;
+        int[] productStore;
+        int[] productId;
+        int[] versionStart;
+        int[] versionDay;
+        int[] versionDescription;
+        int[] seriesStart;
+        int[] seriesSize;
+        byte[] seriesData;
+    }
+
+    // one shared copy of every distinct string
+    // (the maps are only read by the catalog adding prices; readers only look at values)
+    private static class StringPool {
+        private String[] values;
+        private int size;
+        private final Map<String, Integer> ids;
+        private final Map<String, Integer> added; // of a pool sharing ids, until keepAdded; else null
+
+        StringPool() {
+            values = new String[64];
+            ids = new HashMap<>();
+            added = null;
+        }
+
+        StringPool(String[] values) {
+            this.values = values;
+            size = values.length;
+            ids = new HashMap<>(values.length * 2);
+            for (int id = 0; id < size; id++) {
+                ids.put(values[id], id);
+            }
+            added = null;
+        }
+
+        // a pool for a fork: sharing the base's values and ids (see ColumnarCatalog.fork), or
+        // with copies of them
+        StringPool(StringPool base, boolean shared) {
+            size = base.size;
+            if (shared) {
+                values = base.values;
+                ids = base.ids;
+                added = new HashMap<>();
+            } else {
+                values = Arrays.copyOf(base.values, Math.max(64, size));
+                ids = new HashMap<>(size * 2);
+                for (int id = 0; id < size; id++) {
+                    ids.put(values[id], id);
+                }
+                added = null;
+            }
+        }
+
+        int id(String value) {
+            Integer id = ids.get(value);
+            if (id == null && added != null) {
+                id = added.get(value);
+            }
+            if (id != null) {
+                return id;
+            }
+            int next = size++;
+            if (next == values.length) {
+                values = Arrays.copyOf(values, Math.max(64, next * 2));
+            }
+            values[next] = value;
+            (added != null ? added : ids).put(value, next);
+            return next;
+        }
+
+        // the strings this pool added go into the ids it shares
+        void keepAdded() {
+            ids.putAll(added);
+        }
+
+        String get(int id) {
+            return values[id];
+        }
+
+        String[] values() {
+            return Arrays.copyOf(values, size);
+        }
+    }
+}
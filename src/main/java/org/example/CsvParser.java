@@ -0,0 +1,103 @@
+package org.example;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+// Semicolon separated feed parser working directly on the bytes. Each line is handed to the
+// handler as a reusable CsvRecord holding field offsets, so no line String or String[] is
+// built; callers decode only the fields they need, and prices go straight to integer cents.
+class CsvParser {
+    private static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
+    private static final byte SEPARATOR = ';';
+
+    private final RecordHandler handler;
+    private final CsvRecord record = new CsvRecord();
+    private boolean headerPending;
+    private boolean firstChunk = true;
+
+    public CsvParser(boolean skipHeader, RecordHandler handler) {
+        this.headerPending = skipHeader;
+        this.handler = handler;
+    }
+
+    interface RecordHandler {
+        void onRecord(CsvRecord record);
+    }
+
+    public static void parse(InputStream in, boolean skipHeader, RecordHandler handler) throws IOException {
+        new CsvParser(skipHeader, handler).parse(in);
+    }
+
+    public void parse(InputStream in) throws IOException {
+        byte[] buffer = new byte[DEFAULT_BUFFER_SIZE];
+        int filled = 0;
+        int read;
+        while ((read = in.read(buffer, filled, buffer.length - filled)) != -1) {
+            filled += read;
+            int consumed = parse(ByteBuffer.wrap(buffer, 0, filled), false);
+            // keep the unfinished last line for the next read
+            System.arraycopy(buffer, consumed, buffer, 0, filled - consumed);
+            filled -= consumed;
+            if (filled == buffer.length) {
+                buffer = Arrays.copyOf(buffer, buffer.length * 2); // line longer than the buffer
+            }
+        }
+        parse(ByteBuffer.wrap(buffer, 0, filled), true);
+    }
+
+    // Parses the complete lines between position and limit and returns the absolute offset
+    // right after the last one. With lastChunk set, a trailing line without newline counts too.
+    public int parse(ByteBuffer buffer, boolean lastChunk) {
+        int pos = buffer.position();
+        int limit = buffer.limit();
+        if (firstChunk) {
+            if (limit - pos < 3 && !lastChunk) {
+                return pos; // too short to tell whether it starts with a byte order mark
+            }
+            if (limit - pos >= 3
+                    && buffer.get(pos) == (byte) 0xEF && buffer.get(pos + 1) == (byte) 0xBB && buffer.get(pos + 2) == (byte) 0xBF) {
+                pos += 3; // UTF-8 byte order mark
+            }
+            firstChunk = false;
+        }
+
+        while (pos < limit) {
+            int end = pos;
+            while (end < limit && buffer.get(end) != '\n') {
+                end++;
+            }
+            if (end == limit && !lastChunk) {
+                break;
+            }
+            int next = end < limit ? end + 1 : end;
+            if (end > pos && buffer.get(end - 1) == '\r') {
+                end--;
+            }
+            if (end > pos) {
+                emit(buffer, pos, end);
+            }
+            pos = next;
+        }
+        return pos;
+    }
+
+    private void emit(ByteBuffer buffer, int start, int end) {
+        record.reset(buffer, start);
+        int fieldStart = start;
+        for (int i = start; i < end; i++) {
+            if (buffer.get(i) == SEPARATOR) {
+                record.addField(fieldStart, i);
+                fieldStart = i + 1;
+            }
+        }
+        record.addField(fieldStart, end);
+
+        if (headerPending) {
+            headerPending = false;
+            return;
+        }
+        handler.onRecord(record);
+    }
+}
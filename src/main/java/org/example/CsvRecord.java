@@ -0,0 +1,197 @@
+package org.example;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+// One line of a feed file as field offsets into the parser's buffer. The instance is reused
+// for every line, so it must not be kept after the handler returns.
+class CsvRecord {
+    private static final int SHARED_STRINGS = 256;
+
+    private ByteBuffer buffer;
+    private int lineStart;
+    private int[] fieldStarts = new int[16];
+    private int[] fieldEnds = new int[16];
+    private int fieldCount;
+    private long lineNumber;
+    private byte[] scratch = new byte[256];
+
+    // small cache for the low-cardinality columns (unit, currency, brand, category)
+    private final byte[][] sharedBytes = new byte[SHARED_STRINGS][];
+    private final String[] sharedStrings = new String[SHARED_STRINGS];
+
+    void reset(ByteBuffer buffer, int lineStart) {
+        this.buffer = buffer;
+        this.lineStart = lineStart;
+        this.fieldCount = 0;
+        this.lineNumber++;
+    }
+
+    void addField(int start, int end) {
+        if (fieldCount == fieldStarts.length) {
+            fieldStarts = Arrays.copyOf(fieldStarts, fieldCount * 2);
+            fieldEnds = Arrays.copyOf(fieldEnds, fieldCount * 2);
+        }
+        fieldStarts[fieldCount] = start;
+        fieldEnds[fieldCount] = end;
+        fieldCount++;
+    }
+
+    public int getFieldCount() {
+        return fieldCount;
+    }
+
+    // 1-based, counting the header
+    public long getLineNumber() {
+        return lineNumber;
+    }
+
+    public String getString(int field) {
+        int start = fieldStarts[field];
+        int length = fieldEnds[field] - start;
+        if (buffer.hasArray()) {
+            return new String(buffer.array(), buffer.arrayOffset() + start, length, StandardCharsets.UTF_8);
+        }
+        return new String(copy(start, length), 0, length, StandardCharsets.UTF_8);
+    }
+
+    // same as getString, but repeated values return the same instance without decoding again
+    public String getSharedString(int field) {
+        int start = fieldStarts[field];
+        int end = fieldEnds[field];
+        int hash = 0;
+        for (int i = start; i < end; i++) {
+            hash = 31 * hash + buffer.get(i);
+        }
+        int slot = (hash ^ (hash >>> 16)) & (SHARED_STRINGS - 1);
+
+        byte[] cached = sharedBytes[slot];
+        if (cached != null && cached.length == end - start) {
+            boolean same = true;
+            for (int i = 0; i < cached.length && same; i++) {
+                same = cached[i] == buffer.get(start + i);
+            }
+            if (same) {
+                return sharedStrings[slot];
+            }
+        }
+
+        byte[] bytes = new byte[end - start];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = buffer.get(start + i);
+        }
+        String value = new String(bytes, StandardCharsets.UTF_8);
+        sharedBytes[slot] = bytes;
+        sharedStrings[slot] = value;
+        return value;
+    }
+
+    // decimal amount such as "9.90", "12" or "-0.5" as integer cents, rounding half up
+    // past the second decimal; no float is involved, so 9.90 is exactly 990
+    public int getCents(int field) {
+        int pos = fieldStarts[field];
+        int end = fieldEnds[field];
+        boolean negative = false;
+        if (pos < end && (buffer.get(pos) == '-' || buffer.get(pos) == '+')) {
+            negative = buffer.get(pos) == '-';
+            pos++;
+        }
+        if (pos == end) {
+            throw invalidNumber(field);
+        }
+
+        long units = 0;
+        int digits = 0;
+        for (; pos < end && buffer.get(pos) != '.' && buffer.get(pos) != ','; pos++) {
+            units = units * 10 + digit(field, pos);
+            digits++;
+            if (units > Integer.MAX_VALUE) {
+                throw invalidNumber(field); // before the long can overflow
+            }
+        }
+        long cents = units * 100;
+        if (pos < end) {
+            pos++; // decimal separator
+            int scale = 10;
+            for (; pos < end; pos++) {
+                int d = digit(field, pos);
+                digits++;
+                if (scale > 0) {
+                    cents += d * scale;
+                    scale /= 10;
+                } else if (scale == 0) {
+                    cents += d >= 5 ? 1 : 0;
+                    scale = -1;
+                }
+            }
+        }
+        if (digits == 0 || cents > Integer.MAX_VALUE) {
+            throw invalidNumber(field);
+        }
+        return (int) (negative ? -cents : cents);
+    }
+
+    public float getFloat(int field) {
+        int pos = fieldStarts[field];
+        int end = fieldEnds[field];
+        boolean negative = false;
+        if (pos < end && (buffer.get(pos) == '-' || buffer.get(pos) == '+')) {
+            negative = buffer.get(pos) == '-';
+            pos++;
+        }
+
+        long mantissa = 0;
+        int decimals = 0;
+        int digits = 0;
+        boolean fraction = false;
+        for (; pos < end; pos++) {
+            byte b = buffer.get(pos);
+            if ((b == '.' || b == ',') && !fraction) {
+                fraction = true;
+            } else if (b >= '0' && b <= '9' && digits < 18) {
+                mantissa = mantissa * 10 + (b - '0');
+                digits++;
+                if (fraction) {
+                    decimals++;
+                }
+            } else {
+                return Float.parseFloat(getString(field)); // exponents and other rare forms
+            }
+        }
+        if (digits == 0) {
+            throw invalidNumber(field);
+        }
+        double value = mantissa / Math.pow(10, decimals);
+        return (float) (negative ? -value : value);
+    }
+
+    // the whole line, for error messages
+    public String getLine() {
+        int end = fieldEnds[fieldCount - 1];
+        int length = end - lineStart;
+        return new String(copy(lineStart, length), 0, length, StandardCharsets.UTF_8);
+    }
+
+    private int digit(int field, int pos) {
+        int d = buffer.get(pos) - '0';
+        if (d < 0 || d > 9) {
+            throw invalidNumber(field);
+        }
+        return d;
+    }
+
+    private NumberFormatException invalidNumber(int field) {
+        return new NumberFormatException("For input string: \"" + getString(field) + "\"");
+    }
+
+    private byte[] copy(int start, int length) {
+        if (scratch.length < length) {
+            scratch = new byte[Math.max(length, scratch.length * 2)];
+        }
+        for (int i = 0; i < length; i++) {
+            scratch[i] = buffer.get(start + i);
+        }
+        return scratch;
+    }
+}
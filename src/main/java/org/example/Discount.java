@@ -1,5 +1,7 @@
 package org.example;
 
+import java.time.LocalDate;
+
 class Discount {
     private String product_id;
     private String product_name;
@@ -10,6 +12,12 @@ class Discount {
     private String from_date;
     private String to_date;
     private float discount_percentage; // Added field for percentage discount
+    private int from_epoch_day; // validity parsed once at load, inclusive
+    private int to_epoch_day;
+    // normalized search keys, computed once when the row is loaded
+    private String normalized_name;
+    private String normalized_brand;
+    private String normalized_category;
 
     public Discount(String product_id, String product_name, String brand,
                     float package_quantity, String package_unit, String product_category,
@@ -23,6 +31,11 @@ class Discount {
         this.from_date = from_date;
         this.to_date = to_date;
         this.discount_percentage = discount_percentage;
+        this.from_epoch_day = (int) LocalDate.parse(from_date).toEpochDay();
+        this.to_epoch_day = (int) LocalDate.parse(to_date).toEpochDay();
+        this.normalized_name = TextNormalizer.key(product_name);
+        this.normalized_brand = TextNormalizer.key(brand);
+        this.normalized_category = TextNormalizer.key(product_category);
     }
 
     public String getProductId() {
@@ -61,6 +74,30 @@ class Discount {
         return discount_percentage;
     }
 
+    public int getFromEpochDay() {
+        return from_epoch_day;
+    }
+
+    public int getToEpochDay() {
+        return to_epoch_day;
+    }
+
+    public String getNormalizedName() {
+        return normalized_name;
+    }
+
+    public String getNormalizedBrand() {
+        return normalized_brand;
+    }
+
+    public String getNormalizedCategory() {
+        return normalized_category;
+    }
+
+    public boolean isValidOn(int epochDay) {
+        return epochDay >= from_epoch_day && epochDay <= to_epoch_day;
+    }
+
     @Override
     public String toString() {
         return "src.main.java.src.main.java.org.priceComparator.priceComparator.Discount{" +
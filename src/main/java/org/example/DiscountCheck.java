@@ -0,0 +1,66 @@
+package org.example;
+
+// A discount measured against the product's own recent list prices rather than the price it
+// was cut from (see PriceSnapshot.checkDiscount). A base price raised shortly before the
+// discount started makes the advertised percentage bigger than the real saving.
+class DiscountCheck {
+    private final String store;
+    private final Discount discount;
+    private final int regularCents; // list price on the first day of the discount
+    private final int lowestBeforeCents; // lowest list price in the days before; -1 if none
+    private final int discountedCents;
+
+    public DiscountCheck(String store, Discount discount, int regularCents, int lowestBeforeCents, int discountedCents) {
+        this.store = store;
+        this.discount = discount;
+        this.regularCents = regularCents;
+        this.lowestBeforeCents = lowestBeforeCents;
+        this.discountedCents = discountedCents;
+    }
+
+    public String getStore() {
+        return store;
+    }
+
+    public Discount getDiscount() {
+        return discount;
+    }
+
+    public int getRegularCents() {
+        return regularCents;
+    }
+
+    public int getLowestBeforeCents() {
+        return lowestBeforeCents;
+    }
+
+    public int getDiscountedCents() {
+        return discountedCents;
+    }
+
+    public boolean hasHistory() {
+        return lowestBeforeCents >= 0;
+    }
+
+    // the base price was above the lowest recent price
+    public boolean isInflated() {
+        return hasHistory() && regularCents > lowestBeforeCents;
+    }
+
+    // saving against the lowest recent price (negative when the "discount" costs more);
+    // the advertised percentage when there is no earlier price to compare with
+    public double getRealPercentage() {
+        if (!hasHistory()) {
+            return discount.getDiscountPercentage();
+        }
+        return 100.0 * (lowestBeforeCents - discountedCents) / lowestBeforeCents;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s %s: %.0f%% off %.2f, %.1f%% off the lowest recent %.2f%s", store,
+                discount.getProductName(), discount.getDiscountPercentage(), regularCents / 100.0,
+                getRealPercentage(), (hasHistory() ? lowestBeforeCents : regularCents) / 100.0,
+                isInflated() ? " (inflated base)" : "");
+    }
+}
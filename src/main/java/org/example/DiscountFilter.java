@@ -0,0 +1,28 @@
+package org.example;
+
+// Which discounts a top-discounts query ranks: those of one store, of one product category,
+// or both. Null means any; names are compared ignoring case and diacritics.
+class DiscountFilter {
+    public static final DiscountFilter ALL = new DiscountFilter(null, null);
+
+    private String store;
+    private String category;
+
+    public DiscountFilter(String store, String category) {
+        this.store = store != null ? TextNormalizer.normalize(store) : null;
+        this.category = category != null ? TextNormalizer.normalize(category) : null;
+    }
+
+    public static DiscountFilter store(String store) {
+        return new DiscountFilter(store, null);
+    }
+
+    public static DiscountFilter category(String category) {
+        return new DiscountFilter(null, category);
+    }
+
+    public boolean accepts(String store, Discount discount) {
+        return (this.store == null || this.store.equals(store))
+                && (category == null || category.equals(discount.getNormalizedCategory()));
+    }
+}
@@ -0,0 +1,81 @@
+package org.example;
+
+import java.util.*;
+
+// Discounts grouped by store and product id, so a price lookup only looks at
+// the handful of discounts that can apply to that exact product. A product's discounts are an
+// AppendList, so adding to them does not copy the ones loaded before.
+class DiscountIndex {
+    private final Map<String, Map<String, AppendList<Discount>>> discountsByStoreAndProduct;
+
+    public DiscountIndex() {
+        this(new HashMap<>());
+    }
+
+    private DiscountIndex(Map<String, Map<String, AppendList<Discount>>> discountsByStoreAndProduct) {
+        this.discountsByStoreAndProduct = discountsByStoreAndProduct;
+    }
+
+    public void add(String store, Discount discount) {
+        add(discountsByStoreAndProduct.computeIfAbsent(store, k -> new HashMap<>()), discount);
+    }
+
+    private static void add(Map<String, AppendList<Discount>> storeDiscounts, Discount discount) {
+        storeDiscounts.put(discount.getProductId(),
+                storeDiscounts.getOrDefault(discount.getProductId(), AppendList.empty()).plus(discount));
+    }
+
+    public void addAll(String store, List<Discount> discounts) {
+        for (Discount discount : discounts) {
+            add(store, discount);
+        }
+    }
+
+    // a new index with the store's discounts added after its existing ones; this one is left
+    // untouched and shares every product's discounts with it
+    public DiscountIndex withDiscounts(String store, List<Discount> discounts) {
+        Map<String, Map<String, AppendList<Discount>>> byStore = new HashMap<>(discountsByStoreAndProduct);
+        Map<String, AppendList<Discount>> storeDiscounts = new HashMap<>(byStore.getOrDefault(store, Collections.emptyMap()));
+        for (Discount discount : discounts) {
+            add(storeDiscounts, discount);
+        }
+        byStore.put(store, storeDiscounts);
+        return new DiscountIndex(byStore);
+    }
+
+    // first discount (in load order) valid on the given day, or null
+    public Discount findActiveDiscount(String store, String productId, int epochDay) {
+        Map<String, AppendList<Discount>> storeDiscounts = discountsByStoreAndProduct.get(store);
+        if (storeDiscounts == null) {
+            return null;
+        }
+        List<Discount> candidates = storeDiscounts.get(productId);
+        if (candidates == null) {
+            return null;
+        }
+        for (int i = 0; i < candidates.size(); i++) {
+            Discount discount = candidates.get(i);
+            if (discount.isValidOn(epochDay)) {
+                return discount;
+            }
+        }
+        return null;
+    }
+
+    public EffectivePrice getEffectivePrice(String store, Price price, int epochDay) {
+        Discount discount = findActiveDiscount(store, price.getProductId(), epochDay);
+        int regularPrice = price.getPrice();
+        if (discount == null) {
+            return new EffectivePrice(regularPrice, regularPrice, null);
+        }
+        return new EffectivePrice(regularPrice, applyDiscount(regularPrice, discount), discount);
+    }
+
+    // discounted price in cents; the regular price when the discount is null
+    public static int applyDiscount(int regularPrice, Discount discount) {
+        if (discount == null) {
+            return regularPrice;
+        }
+        return (int) Math.round(regularPrice * (1 - discount.getDiscountPercentage() / 100.0));
+    }
+}
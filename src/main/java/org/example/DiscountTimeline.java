@@ -0,0 +1,323 @@
+package org.example;
+
+import java.util.*;
+
+// Discounts ordered by start day, with a max-end segment tree on top, so that
+// "valid on day D" and "started between A and B" are answered without a full scan. A second
+// order by end day answers "ended between A and B".
+//
+// A timeline is not changed once built; withDiscounts returns one with a store's new
+// discounts added. So that this does not sort every discount again, the discounts are held
+// in a few levels, each built on its own and more than twice the size of the next one: new
+// discounts become the last level, merged with the levels before it that are not that much
+// bigger. A discount is merged O(log n) times in all, and a query visits O(log n) levels.
+// Discounts are visited in start order, ties in load order (store by store, in the order the
+// stores were first loaded), however they are split into levels.
+class DiscountTimeline {
+    private final Level[] levels; // biggest first
+    private final List<String> stores; // in the order they were first loaded
+    private final int[] storeSizes; // discounts of each store
+    private final int size;
+
+    public DiscountTimeline(Map<String, ? extends List<Discount>> discountsByStore) {
+        stores = new ArrayList<>(discountsByStore.keySet());
+        storeSizes = new int[stores.size()];
+        int total = 0;
+        for (List<Discount> storeDiscounts : discountsByStore.values()) {
+            total += storeDiscounts.size();
+        }
+        String[] entryStores = new String[total];
+        Discount[] entries = new Discount[total];
+        long[] sequences = new long[total];
+        int n = 0;
+        for (int rank = 0; rank < stores.size(); rank++) {
+            for (Discount discount : discountsByStore.get(stores.get(rank))) {
+                entryStores[n] = stores.get(rank);
+                entries[n] = discount;
+                sequences[n++] = sequence(rank, storeSizes[rank]++);
+            }
+        }
+        size = total;
+        levels = total == 0 ? new Level[0] : new Level[]{new Level(entryStores, entries, sequences)};
+    }
+
+    private DiscountTimeline(Level[] levels, List<String> stores, int[] storeSizes, int size) {
+        this.levels = levels;
+        this.stores = stores;
+        this.storeSizes = storeSizes;
+        this.size = size;
+    }
+
+    // load order: a store's rank, then the discount's position among that store's
+    private static long sequence(int storeRank, int position) {
+        return ((long) storeRank << 32) | position;
+    }
+
+    // a new timeline with the store's discounts loaded after every discount of this one
+    public DiscountTimeline withDiscounts(String store, List<Discount> discounts) {
+        if (discounts.isEmpty()) {
+            return this;
+        }
+        List<String> newStores = stores;
+        int rank = stores.indexOf(store);
+        if (rank < 0) {
+            newStores = new ArrayList<>(stores);
+            newStores.add(store);
+            rank = stores.size();
+        }
+        int[] newSizes = Arrays.copyOf(storeSizes, newStores.size());
+        String[] entryStores = new String[discounts.size()];
+        Discount[] entries = new Discount[discounts.size()];
+        long[] sequences = new long[discounts.size()];
+        for (int i = 0; i < entries.length; i++) {
+            entryStores[i] = store;
+            entries[i] = discounts.get(i);
+            sequences[i] = sequence(rank, newSizes[rank]++);
+        }
+
+        Level added = new Level(entryStores, entries, sequences);
+        int kept = levels.length;
+        while (kept > 0 && levels[kept - 1].size <= 2 * added.size) {
+            added = Level.merge(levels[--kept], added);
+        }
+        Level[] newLevels = Arrays.copyOf(levels, kept + 1);
+        newLevels[kept] = added;
+        return new DiscountTimeline(newLevels, newStores, newSizes, size + discounts.size());
+    }
+
+    public int size() {
+        return size;
+    }
+
+    // all discounts valid on the given day, in start order
+    public void forEachValidOn(int epochDay, StoreDiscountConsumer consumer) {
+        if (levels.length == 1) {
+            levels[0].forEachValidOn(epochDay, position -> consumer.accept(levels[0].stores[position],
+                    levels[0].discounts[position]));
+            return;
+        }
+        Positions[] found = new Positions[levels.length];
+        for (int l = 0; l < levels.length; l++) {
+            found[l] = new Positions();
+            levels[l].forEachValidOn(epochDay, found[l]::add);
+        }
+        visitInOrder(found, consumer);
+    }
+
+    public List<Discount> validOn(int epochDay) {
+        List<Discount> result = new ArrayList<>();
+        forEachValidOn(epochDay, (store, discount) -> result.add(discount));
+        return result;
+    }
+
+    // product id -> first valid discount, for one store on one day
+    public Map<String, Discount> validOn(String store, int epochDay) {
+        Map<String, Discount> result = new HashMap<>();
+        forEachValidOn(epochDay, (discountStore, discount) -> {
+            if (discountStore.equals(store)) {
+                result.putIfAbsent(discount.getProductId(), discount);
+            }
+        });
+        return result;
+    }
+
+    // discounts whose start day falls in [fromDay, toDay], in start order
+    public List<Discount> startedBetween(int fromDay, int toDay) {
+        Positions[] found = new Positions[levels.length];
+        for (int l = 0; l < levels.length; l++) {
+            Level level = levels[l];
+            found[l] = new Positions();
+            for (int i = level.lowerBound(level.fromDays, fromDay); i < level.size && level.fromDays[i] <= toDay; i++) {
+                found[l].add(i);
+            }
+        }
+        List<Discount> result = new ArrayList<>();
+        visitInOrder(found, (store, discount) -> result.add(discount));
+        return result;
+    }
+
+    // Discounts running on exactly one of the two days: the ones that can change a price when
+    // the date moves from one day to the other. Only discounts starting or ending between the
+    // two days are looked at.
+    public void forEachChangedBetween(int day, int otherDay, StoreDiscountConsumer consumer) {
+        for (Level level : levels) {
+            level.forEachChangedBetween(day, otherDay, consumer);
+        }
+    }
+
+    // the discounts at the positions found in each level, in start order across the levels
+    private void visitInOrder(Positions[] found, StoreDiscountConsumer consumer) {
+        int[] next = new int[levels.length];
+        while (true) {
+            int first = -1;
+            for (int l = 0; l < levels.length; l++) {
+                if (next[l] < found[l].size && (first < 0 || levels[l].before(found[l].positions[next[l]],
+                        levels[first], found[first].positions[next[first]]))) {
+                    first = l;
+                }
+            }
+            if (first < 0) {
+                return;
+            }
+            int position = found[first].positions[next[first]++];
+            consumer.accept(levels[first].stores[position], levels[first].discounts[position]);
+        }
+    }
+
+    // positions in one level, in start order
+    private static final class Positions {
+        int[] positions = new int[8];
+        int size;
+
+        void add(int position) {
+            if (size == positions.length) {
+                positions = Arrays.copyOf(positions, size * 2);
+            }
+            positions[size++] = position;
+        }
+    }
+
+    // some of the discounts, sorted by start day and load order
+    private static final class Level {
+        final String[] stores;
+        final Discount[] discounts;
+        final long[] sequences;
+        final int[] fromDays;
+        final int[] maxToDays; // segment tree over the start-sorted positions
+        final int[] endOrder; // start-sorted positions ordered by end day
+        final int[] toDays; // end day of each endOrder entry
+        final int size;
+
+        Level(String[] entryStores, Discount[] entries, long[] entrySequences) {
+            size = entries.length;
+            Integer[] order = new Integer[size];
+            for (int i = 0; i < size; i++) {
+                order[i] = i;
+            }
+            Arrays.sort(order, Comparator.<Integer>comparingInt(i -> entries[i].getFromEpochDay())
+                    .thenComparingLong(i -> entrySequences[i]));
+
+            stores = new String[size];
+            discounts = new Discount[size];
+            sequences = new long[size];
+            fromDays = new int[size];
+            for (int i = 0; i < size; i++) {
+                stores[i] = entryStores[order[i]];
+                discounts[i] = entries[order[i]];
+                sequences[i] = entrySequences[order[i]];
+                fromDays[i] = discounts[i].getFromEpochDay();
+            }
+
+            Integer[] byEnd = new Integer[size];
+            for (int i = 0; i < size; i++) {
+                byEnd[i] = i;
+            }
+            Arrays.sort(byEnd, Comparator.comparingInt(i -> discounts[i].getToEpochDay()));
+            endOrder = new int[size];
+            toDays = new int[size];
+            for (int i = 0; i < size; i++) {
+                endOrder[i] = byEnd[i];
+                toDays[i] = discounts[byEnd[i]].getToEpochDay();
+            }
+
+            maxToDays = new int[4 * Math.max(1, size)];
+            Arrays.fill(maxToDays, Integer.MIN_VALUE);
+            if (size > 0) {
+                build(1, 0, size - 1);
+            }
+        }
+
+        static Level merge(Level first, Level second) {
+            int total = first.size + second.size;
+            String[] entryStores = Arrays.copyOf(first.stores, total);
+            Discount[] entries = Arrays.copyOf(first.discounts, total);
+            long[] entrySequences = Arrays.copyOf(first.sequences, total);
+            System.arraycopy(second.stores, 0, entryStores, first.size, second.size);
+            System.arraycopy(second.discounts, 0, entries, first.size, second.size);
+            System.arraycopy(second.sequences, 0, entrySequences, first.size, second.size);
+            return new Level(entryStores, entries, entrySequences);
+        }
+
+        private int build(int node, int lo, int hi) {
+            if (lo == hi) {
+                return maxToDays[node] = discounts[lo].getToEpochDay();
+            }
+            int mid = (lo + hi) >>> 1;
+            return maxToDays[node] = Math.max(build(2 * node, lo, mid), build(2 * node + 1, mid + 1, hi));
+        }
+
+        // true when the discount at the position comes before the one at the other level's
+        boolean before(int position, Level other, int otherPosition) {
+            if (fromDays[position] != other.fromDays[otherPosition]) {
+                return fromDays[position] < other.fromDays[otherPosition];
+            }
+            return sequences[position] < other.sequences[otherPosition];
+        }
+
+        void forEachValidOn(int epochDay, PositionConsumer consumer) {
+            int startedBy = upperBound(epochDay); // positions [0, startedBy) have from <= day
+            if (startedBy > 0) {
+                collectValid(1, 0, size - 1, startedBy - 1, epochDay, consumer);
+            }
+        }
+
+        private void collectValid(int node, int lo, int hi, int limit, int epochDay, PositionConsumer consumer) {
+            if (lo > limit || maxToDays[node] < epochDay) {
+                return;
+            }
+            if (lo == hi) {
+                consumer.accept(lo);
+                return;
+            }
+            int mid = (lo + hi) >>> 1;
+            collectValid(2 * node, lo, mid, limit, epochDay, consumer);
+            collectValid(2 * node + 1, mid + 1, hi, limit, epochDay, consumer);
+        }
+
+        void forEachChangedBetween(int day, int otherDay, StoreDiscountConsumer consumer) {
+            int lo = Math.min(day, otherDay);
+            int hi = Math.max(day, otherDay);
+            // started after lo and by hi: running on hi unless it ended before
+            for (int i = upperBound(lo); i < size && fromDays[i] <= hi; i++) {
+                if (discounts[i].getToEpochDay() >= hi) {
+                    consumer.accept(stores[i], discounts[i]);
+                }
+            }
+            // ended on lo or later and before hi: running on lo if it had started by then
+            for (int i = lowerBound(toDays, lo); i < size && toDays[i] < hi; i++) {
+                int pos = endOrder[i];
+                if (fromDays[pos] <= lo) {
+                    consumer.accept(stores[pos], discounts[pos]);
+                }
+            }
+        }
+
+        // first position whose day is >= day
+        int lowerBound(int[] days, int day) {
+            int lo = 0;
+            int hi = size;
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                if (days[mid] < day) {
+                    lo = mid + 1;
+                } else {
+                    hi = mid;
+                }
+            }
+            return lo;
+        }
+
+        // first position whose start day is > day
+        private int upperBound(int day) {
+            return lowerBound(fromDays, day + 1);
+        }
+    }
+
+    private interface PositionConsumer {
+        void accept(int position);
+    }
+
+    interface StoreDiscountConsumer {
+        void accept(String store, Discount discount);
+    }
+}
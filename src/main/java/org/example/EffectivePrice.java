@@ -0,0 +1,33 @@
+package org.example;
+
+class EffectivePrice {
+    private int regularPrice; // in cents
+    private int finalPrice;   // in cents, after the active discount (if any)
+    private Discount discount;
+
+    public EffectivePrice(int regularPrice, int finalPrice, Discount discount) {
+        this.regularPrice = regularPrice;
+        this.finalPrice = finalPrice;
+        this.discount = discount;
+    }
+
+    public int getRegularPrice() {
+        return regularPrice;
+    }
+
+    public int getFinalPrice() {
+        return finalPrice;
+    }
+
+    public Discount getDiscount() {
+        return discount;
+    }
+
+    public boolean isDiscounted() {
+        return discount != null;
+    }
+
+    public float getDiscountPercentage() {
+        return discount != null ? discount.getDiscountPercentage() : 0f;
+    }
+}
@@ -0,0 +1,111 @@
+package org.example;
+
+import java.io.File;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.Locale;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+// One dated feed file: {store}_{date}.csv with prices or {store}_discounts_{date}.csv with
+// discounts, found either on the classpath or in a feed directory.
+class FeedFile {
+    private static final Pattern PRICE_FILE = Pattern.compile("([^_/\\\\]+)_(\\d{4}-\\d{2}-\\d{2})\\.csv");
+    private static final Pattern DISCOUNT_FILE = Pattern.compile("([^_/\\\\]+)_discounts_(\\d{4}-\\d{2}-\\d{2})\\.csv");
+
+    enum Type { PRICES, DISCOUNTS }
+
+    private String store;
+    private LocalDate date;
+    private Type type;
+    private String resourcePath; // set for classpath feeds
+    private Path path;           // set for feeds on the filesystem
+    private String name;
+
+    private FeedFile(String store, LocalDate date, Type type, String resourcePath, Path path, String name) {
+        this.store = store;
+        this.date = date;
+        this.type = type;
+        this.resourcePath = resourcePath;
+        this.path = path;
+        this.name = name;
+    }
+
+    // null when the name does not follow either naming pattern
+    public static FeedFile ofResource(String resourcePath) {
+        return parse(resourcePath.substring(resourcePath.lastIndexOf('/') + 1), resourcePath, null, resourcePath);
+    }
+
+    // named by its path as given
+    public static FeedFile ofPath(Path path) {
+        return ofPath(null, path);
+    }
+
+    // Named by its path relative to the feed directory, with '/' separators, so the name stays
+    // the same when the directory is moved or given by another path. A file outside the
+    // directory (or with no directory) is named by its path as given.
+    public static FeedFile ofPath(Path directory, Path path) {
+        String name = path.toString();
+        if (directory != null) {
+            Path base = directory.toAbsolutePath().normalize();
+            Path file = path.toAbsolutePath().normalize();
+            if (file.startsWith(base)) {
+                name = base.relativize(file).toString().replace(File.separatorChar, '/');
+            }
+        }
+        return parse(path.getFileName().toString(), null, path, name);
+    }
+
+    private static FeedFile parse(String fileName, String resourcePath, Path path, String name) {
+        Type type = Type.DISCOUNTS;
+        Matcher matcher = DISCOUNT_FILE.matcher(fileName);
+        if (!matcher.matches()) {
+            type = Type.PRICES;
+            matcher = PRICE_FILE.matcher(fileName);
+            if (!matcher.matches()) {
+                return null;
+            }
+        }
+        try {
+            LocalDate date = LocalDate.parse(matcher.group(2));
+            return new FeedFile(matcher.group(1).toLowerCase(Locale.ROOT), date, type, resourcePath, path, name);
+        } catch (DateTimeParseException e) {
+            return null;
+        }
+    }
+
+    public String getStore() {
+        return store;
+    }
+
+    public LocalDate getDate() {
+        return date;
+    }
+
+    public int getEpochDay() {
+        return (int) date.toEpochDay();
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public String getResourcePath() {
+        return resourcePath;
+    }
+
+    public Path getPath() {
+        return path;
+    }
+
+    // what loaded feeds are known by (see PriceSnapshot.getFeedTimes)
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public String toString() {
+        return getName();
+    }
+}
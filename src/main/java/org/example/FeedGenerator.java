@@ -0,0 +1,329 @@
+package org.example;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.Normalizer;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Writes synthetic {store}_{date}.csv and {store}_discounts_{date}.csv feeds in the layout
+// FeedLoader reads (prices/ and discounts/ under one directory), for load and soak tests at
+// sizes the bundled files never reach: one price file and one discount file per store per day.
+//
+// Every value is a hash of (seed, store, SKU, day), so the same settings always write the same
+// bytes and nothing is remembered between rows. Rows are streamed straight to the files, so the
+// output can be as large as the disk allows.
+class FeedGenerator {
+    private static final String PRICE_HEADER =
+            "product_id;product_name;product_category;brand;package_quantity;package_unit;price;currency\n";
+    private static final String DISCOUNT_HEADER =
+            "product_id;product_name;brand;package_quantity;package_unit;product_category;from_date;to_date;percentage_of_discount\n";
+    private static final int DISCOUNT_DAYS = 7;
+
+    // name, category, package quantity, package unit, typical price in cents
+    private static final String[][] ITEMS = {
+            {"lapte", "lactate", "1", "l", "700"},
+            {"iaurt grecesc", "lactate", "0.4", "kg", "1100"},
+            {"brânză telemea", "lactate", "0.3", "kg", "1500"},
+            {"smântână", "lactate", "0.2", "kg", "600"},
+            {"unt", "lactate", "0.2", "kg", "1000"},
+            {"ouă", "ouă", "10", "buc", "1500"},
+            {"pâine albă", "panificație", "0.5", "kg", "450"},
+            {"pâine integrală", "panificație", "0.5", "kg", "650"},
+            {"cozonac", "panificație", "0.5", "kg", "2500"},
+            {"făină albă", "alimente de bază", "1", "kg", "500"},
+            {"zahăr", "alimente de bază", "1", "kg", "550"},
+            {"orez", "alimente de bază", "1", "kg", "800"},
+            {"ulei de floarea-soarelui", "alimente de bază", "1", "l", "900"},
+            {"spaghete", "paste făinoase", "0.5", "kg", "600"},
+            {"penne", "paste făinoase", "0.5", "kg", "650"},
+            {"cafea măcinată", "cafea", "0.25", "kg", "2000"},
+            {"cafea boabe", "cafea", "1", "kg", "6000"},
+            {"apă minerală", "băuturi", "2", "l", "350"},
+            {"suc de portocale", "băuturi", "1", "l", "800"},
+            {"bere blondă", "băuturi", "0.5", "l", "450"},
+            {"vin roșu sec", "băuturi", "0.75", "l", "3000"},
+            {"piept de pui", "carne", "1", "kg", "3000"},
+            {"carne tocată", "carne", "0.5", "kg", "2200"},
+            {"cârnați", "carne", "0.4", "kg", "1800"},
+            {"file de șalău", "pește", "0.4", "kg", "4500"},
+            {"ton în ulei", "pește", "0.16", "kg", "900"},
+            {"roșii", "legume și fructe", "1", "kg", "900"},
+            {"castraveți", "legume și fructe", "1", "kg", "700"},
+            {"mere", "legume și fructe", "1", "kg", "500"},
+            {"cartofi", "legume și fructe", "2", "kg", "600"},
+            {"ciocolată neagră", "gustări", "0.1", "kg", "700"},
+            {"biscuiți", "gustări", "0.2", "kg", "500"},
+            {"chipsuri", "gustări", "0.15", "kg", "800"},
+            {"boia dulce", "condimente", "0.1", "kg", "600"},
+            {"piper negru", "condimente", "0.05", "kg", "700"},
+            {"detergent lichid", "produse de menaj", "3", "l", "5500"},
+            {"hârtie igienică", "produse de menaj", "10", "role", "2000"},
+            {"săpun lichid", "îngrijire personală", "0.5", "l", "1200"},
+            {"șampon", "îngrijire personală", "0.4", "l", "1800"},
+            {"pastă de dinți", "îngrijire personală", "0.1", "l", "900"},
+    };
+    private static final String[] VARIANTS = {
+            "", "bio", "clasic", "extra", "de casă", "tradițional", "fără zahăr", "ușor",
+            "premium", "proaspăt", "românesc", "de țară", "cu fructe", "natural", "integral", "mărime familială"
+    };
+    private static final String[] BRANDS = {
+            "Zuzu", "Napolact", "Olympus", "Pilos", "Albalact", "Dorna", "Borsec", "Boromir", "Vel Pitar", "Barilla",
+            "Tchibo", "Jacobs", "Doncafé", "Milka", "Heidi", "Kandia", "Ariel", "Dero", "Persil", "Zewa",
+            "Pufina", "Agricola", "Cris-Tim", "Angst", "Fulga", "Ursus", "Timișoreana", "Murfatlar", "Cotnari", "Gerovital"
+    };
+    private static final String[] STORES = {
+            "kaufland", "lidl", "profi", "mega", "carrefour", "auchan", "penny", "cora", "selgros", "metro"
+    };
+
+    // vocabulary without diacritics, filled as words are first used
+    private static final Map<String, String> PLAIN = new ConcurrentHashMap<>();
+
+    private final long seed;
+    private int storeCount = 3;
+    private int skuCount = 1000;
+    private int dayCount = 7;
+    private LocalDate startDate = LocalDate.parse("2025-05-01");
+    private double discountDensity = 0.1;
+    private double storeCoverage = 0.8;
+    private boolean diacritics = true;
+
+    public FeedGenerator(long seed) {
+        this.seed = seed;
+    }
+
+    public void setStoreCount(int storeCount) {
+        if (storeCount <= 0) {
+            throw new IllegalArgumentException("Store count must be positive: " + storeCount);
+        }
+        this.storeCount = storeCount;
+    }
+
+    // products in the assortment; each store carries about storeCoverage of them
+    public void setSkuCount(int skuCount) {
+        if (skuCount <= 0) {
+            throw new IllegalArgumentException("SKU count must be positive: " + skuCount);
+        }
+        this.skuCount = skuCount;
+    }
+
+    // one price file per store per day, from the start date on
+    public void setDayCount(int dayCount) {
+        if (dayCount <= 0) {
+            throw new IllegalArgumentException("Day count must be positive: " + dayCount);
+        }
+        this.dayCount = dayCount;
+    }
+
+    public void setStartDate(LocalDate startDate) {
+        this.startDate = startDate;
+    }
+
+    // share of a store's products on discount on an average day; discounts run for a week
+    public void setDiscountDensity(double discountDensity) {
+        if (discountDensity < 0 || discountDensity > 1) {
+            throw new IllegalArgumentException("Discount density must be between 0 and 1: " + discountDensity);
+        }
+        this.discountDensity = discountDensity;
+    }
+
+    public void setStoreCoverage(double storeCoverage) {
+        if (storeCoverage <= 0 || storeCoverage > 1) {
+            throw new IllegalArgumentException("Store coverage must be in (0, 1]: " + storeCoverage);
+        }
+        this.storeCoverage = storeCoverage;
+    }
+
+    // false writes the Romanian names without diacritics ("paine alba" instead of "pâine albă")
+    public void setDiacritics(boolean diacritics) {
+        this.diacritics = diacritics;
+    }
+
+    public LocalDate getEndDate() {
+        return startDate.plusDays(dayCount - 1);
+    }
+
+    public String getStore(int store) {
+        return store < STORES.length ? STORES[store] : "store" + (store + 1);
+    }
+
+    public String getProductId(int sku) {
+        String number = Integer.toString(sku + 1);
+        return number.length() >= 7 ? "P" + number : "P" + "0000000".substring(number.length()) + number;
+    }
+
+    // the product name without its variant ("lapte" for "lapte bio"); it matches every variant
+    public String getItemName(int sku) {
+        return text(ITEMS[sku % ITEMS.length][0]);
+    }
+
+    public String getProductName(int sku) {
+        String item = text(ITEMS[sku % ITEMS.length][0]);
+        String variant = text(VARIANTS[(sku / ITEMS.length) % VARIANTS.length]);
+        return variant.isEmpty() ? item : item + " " + variant;
+    }
+
+    private String getBrand(int sku) {
+        return text(BRANDS[(sku / (ITEMS.length * VARIANTS.length) + sku) % BRANDS.length]);
+    }
+
+    private String text(String value) {
+        return diacritics ? value : PLAIN.computeIfAbsent(value, FeedGenerator::stripDiacritics);
+    }
+
+    private static String stripDiacritics(String value) {
+        return Normalizer.normalize(value, Normalizer.Form.NFD).replaceAll("\\p{M}+", "");
+    }
+
+    // true when the store lists the product at all
+    public boolean carries(int store, int sku) {
+        return uniform(store, sku, -1, 0) < storeCoverage;
+    }
+
+    // regular price in cents of the product in the store on the day (counted from the start
+    // date): a per-product base, a per-store level and a weekly change at a per-product phase
+    public int getPrice(int store, int sku, int day) {
+        int typical = Integer.parseInt(ITEMS[sku % ITEMS.length][4]);
+        double base = typical * (0.7 + 0.6 * uniform(-1, sku, -1, 1));
+        double storeLevel = 0.9 + 0.2 * uniform(store, -1, -1, 2);
+        int week = (day + (int) (uniform(store, sku, -1, 3) * 7)) / 7;
+        double weekly = 0.92 + 0.16 * uniform(store, sku, week, 4);
+        return Math.max(10, (int) Math.round(base * storeLevel * weekly));
+    }
+
+    // percentage of the discount starting on the day, or 0 when none starts
+    public int getDiscountStarting(int store, int sku, int day) {
+        if (uniform(store, sku, day, 5) >= discountDensity / DISCOUNT_DAYS) {
+            return 0;
+        }
+        return 5 + (int) (uniform(store, sku, day, 6) * 46);
+    }
+
+    // Writes the feeds under directory/prices and directory/discounts, a day at a time, and
+    // returns the files written.
+    public List<Path> generate(Path directory) throws IOException {
+        long start = System.nanoTime();
+        Path priceDirectory = Files.createDirectories(directory.resolve("prices"));
+        Path discountDirectory = Files.createDirectories(directory.resolve("discounts"));
+        List<Path> files = new ArrayList<>();
+        long rows = 0;
+        long bytes = 0;
+        StringBuilder line = new StringBuilder(128);
+
+        for (int day = 0; day < dayCount; day++) {
+            LocalDate date = startDate.plusDays(day);
+            for (int store = 0; store < storeCount; store++) {
+                Path prices = priceDirectory.resolve(getStore(store) + "_" + date + ".csv");
+                try (BufferedWriter out = Files.newBufferedWriter(prices)) {
+                    out.write(PRICE_HEADER);
+                    for (int sku = 0; sku < skuCount; sku++) {
+                        if (!carries(store, sku)) {
+                            continue;
+                        }
+                        String[] item = ITEMS[sku % ITEMS.length];
+                        line.setLength(0);
+                        line.append(getProductId(sku)).append(';').append(getProductName(sku)).append(';')
+                                .append(text(item[1])).append(';').append(getBrand(sku)).append(';')
+                                .append(item[2]).append(';').append(item[3]).append(';');
+                        appendCents(line, getPrice(store, sku, day));
+                        line.append(";RON\n");
+                        out.append(line);
+                        rows++;
+                    }
+                }
+                files.add(prices);
+
+                Path discounts = discountDirectory.resolve(getStore(store) + "_discounts_" + date + ".csv");
+                try (BufferedWriter out = Files.newBufferedWriter(discounts)) {
+                    out.write(DISCOUNT_HEADER);
+                    for (int sku = 0; sku < skuCount; sku++) {
+                        int percentage = getDiscountStarting(store, sku, day);
+                        if (percentage == 0 || !carries(store, sku)) {
+                            continue;
+                        }
+                        String[] item = ITEMS[sku % ITEMS.length];
+                        line.setLength(0);
+                        line.append(getProductId(sku)).append(';').append(getProductName(sku)).append(';')
+                                .append(getBrand(sku)).append(';').append(item[2]).append(';').append(item[3]).append(';')
+                                .append(text(item[1])).append(';').append(date).append(';')
+                                .append(date.plusDays(DISCOUNT_DAYS - 1)).append(';').append(percentage).append('\n');
+                        out.append(line);
+                        rows++;
+                    }
+                }
+                files.add(discounts);
+                bytes += Files.size(prices) + Files.size(discounts);
+            }
+        }
+
+        System.out.printf("Generated %d feed files, %d rows (%.1f MB) in %.2f s%n",
+                files.size(), rows, bytes / 1_048_576.0, (System.nanoTime() - start) / 1_000_000_000.0);
+        return files;
+    }
+
+    private static void appendCents(StringBuilder line, int cents) {
+        line.append(cents / 100).append('.');
+        int fraction = cents % 100;
+        if (fraction < 10) {
+            line.append('0');
+        }
+        line.append(fraction);
+    }
+
+    // uniform in [0, 1), fixed by the seed and the arguments
+    private double uniform(long store, long sku, long day, long salt) {
+        long h = mix(seed + 0x9E3779B97F4A7C15L * (salt + 1));
+        h = mix(h ^ store * 0xBF58476D1CE4E5B9L);
+        h = mix(h ^ sku * 0x94D049BB133111EBL);
+        h = mix(h ^ day * 0x9E3779B97F4A7C15L);
+        return (h >>> 11) * 0x1.0p-53;
+    }
+
+    // SplitMix64 finalizer
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    // FeedGenerator <directory> [stores] [skus] [days] [discount density] [seed] [store coverage]
+    //               [diacritics] [start date]
+    public static void main(String[] args) throws IOException {
+        if (args.length == 0) {
+            System.err.println("Usage: FeedGenerator <directory> [stores] [skus] [days] [discount density] [seed]"
+                    + " [store coverage] [diacritics true|false] [start date yyyy-MM-dd]");
+            return;
+        }
+        FeedGenerator generator = new FeedGenerator(args.length > 5 ? Long.parseLong(args[5]) : 42);
+        if (args.length > 1) {
+            generator.setStoreCount(Integer.parseInt(args[1]));
+        }
+        if (args.length > 2) {
+            generator.setSkuCount(Integer.parseInt(args[2]));
+        }
+        if (args.length > 3) {
+            generator.setDayCount(Integer.parseInt(args[3]));
+        }
+        if (args.length > 4) {
+            generator.setDiscountDensity(Double.parseDouble(args[4]));
+        }
+        if (args.length > 6) {
+            generator.setStoreCoverage(Double.parseDouble(args[6]));
+        }
+        if (args.length > 7) {
+            if (!args[7].equals("true") && !args[7].equals("false")) {
+                throw new IllegalArgumentException("Diacritics must be true or false: " + args[7]);
+            }
+            generator.setDiacritics(Boolean.parseBoolean(args[7]));
+        }
+        if (args.length > 8) {
+            generator.setStartDate(LocalDate.parse(args[8]));
+        }
+        generator.generate(Path.of(args[0]));
+    }
+}
@@ -0,0 +1,154 @@
+package org.example;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.format.DateTimeParseException;
+import java.util.*;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+// Reads feed files into Price and Discount rows. Files on the filesystem are memory-mapped
+// and parsed straight from the mapping; classpath resources are streamed.
+final class FeedLoader {
+    // a mapping may not exceed 2 GB; larger files are parsed one region at a time
+    private static final long MAX_MAPPED_REGION = 1L << 30;
+
+    private FeedLoader() {
+    }
+
+    // feed files in the directory (and its prices/ and discounts/ subdirectories), by store and date
+    public static List<FeedFile> discover(Path directory) throws IOException {
+        try (Stream<Path> files = Files.walk(directory, 2)) {
+            return files
+                    .filter(Files::isRegularFile)
+                    .map(path -> FeedFile.ofPath(directory, path))
+                    .filter(Objects::nonNull)
+                    .sorted(Comparator.comparing(FeedFile::getStore).thenComparing(FeedFile::getDate))
+                    .collect(Collectors.toList());
+        }
+    }
+
+    // modification time in millis; Long.MAX_VALUE when it cannot be told (e.g. inside a jar)
+    public static long lastModified(FeedFile feed) {
+        try {
+            if (feed.getPath() != null) {
+                return Files.getLastModifiedTime(feed.getPath()).toMillis();
+            }
+            URL url = FeedLoader.class.getClassLoader().getResource(feed.getResourcePath());
+            if (url != null && "file".equals(url.getProtocol())) {
+                return Files.getLastModifiedTime(Path.of(url.toURI())).toMillis();
+            }
+        } catch (IOException | URISyntaxException e) {
+            // treated as changed
+        }
+        return Long.MAX_VALUE;
+    }
+
+    public static List<Price> loadPrices(FeedFile feed) {
+        List<Price> prices = new ArrayList<>();
+
+        try {
+            parse(feed, record -> {
+                if (record.getFieldCount() >= 8) {
+                    try {
+                        prices.add(getPrice(record));
+                    } catch (NumberFormatException e) {
+                        System.err.println("Error parsing numeric value in line: " + record.getLine());
+                    }
+                }
+            });
+        } catch (IOException e) {
+            System.err.println("Error reading price file: " + feed.getName());
+            e.printStackTrace();
+        }
+
+        return prices;
+    }
+
+    public static List<Discount> loadDiscounts(FeedFile feed) {
+        List<Discount> discounts = new ArrayList<>();
+
+        try {
+            parse(feed, record -> {
+                if (record.getFieldCount() >= 9) {
+                    try {
+                        discounts.add(getDiscount(record));
+                    } catch (NumberFormatException e) {
+                        System.err.println("Error parsing numeric value in line: " + record.getLine());
+                    } catch (DateTimeParseException e) {
+                        System.err.println("Error parsing date in line: " + record.getLine());
+                    }
+                }
+            });
+        } catch (IOException e) {
+            System.err.println("Error reading discount file: " + feed.getName());
+            e.printStackTrace();
+        }
+
+        return discounts;
+    }
+
+    private static void parse(FeedFile feed, CsvParser.RecordHandler handler) throws IOException {
+        CsvParser parser = new CsvParser(true, handler);
+        if (feed.getPath() == null) {
+            try (InputStream is = FeedLoader.class.getClassLoader().getResourceAsStream(feed.getResourcePath())) {
+                if (is == null) {
+                    System.err.println("Resource not found: " + feed.getResourcePath());
+                    return;
+                }
+                parser.parse(is);
+            }
+            return;
+        }
+
+        try (FileChannel channel = FileChannel.open(feed.getPath(), StandardOpenOption.READ)) {
+            long size = channel.size();
+            long offset = 0;
+            while (offset < size) {
+                long regionSize = Math.min(size - offset, MAX_MAPPED_REGION);
+                boolean lastRegion = offset + regionSize == size;
+                MappedByteBuffer region = channel.map(FileChannel.MapMode.READ_ONLY, offset, regionSize);
+                int consumed = parser.parse(region, lastRegion);
+                if (consumed == 0 && !lastRegion) {
+                    throw new IOException("Line longer than " + MAX_MAPPED_REGION + " bytes at offset " + offset);
+                }
+                // the next region starts at the line the parser could not finish
+                offset += lastRegion ? regionSize : consumed;
+            }
+        }
+    }
+
+    private static Price getPrice(CsvRecord record) {
+        return new Price(
+                record.getString(0),
+                record.getString(1),
+                record.getSharedString(2),
+                record.getSharedString(3),
+                record.getFloat(4),
+                record.getSharedString(5),
+                record.getCents(6),
+                record.getSharedString(7)
+        );
+    }
+
+    private static Discount getDiscount(CsvRecord record) {
+        return new Discount(
+                record.getString(0),
+                record.getString(1),
+                record.getSharedString(2),
+                record.getFloat(3),
+                record.getSharedString(4),
+                record.getSharedString(5),
+                record.getSharedString(6),
+                record.getSharedString(7),
+                record.getFloat(8)
+        );
+    }
+}
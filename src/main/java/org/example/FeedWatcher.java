@@ -0,0 +1,106 @@
+package org.example;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.*;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import static java.nio.file.StandardWatchEventKinds.*;
+
+// Watches a feed directory (and its prices/ and discounts/ subdirectories) on a background
+// thread and has the comparator pick up feed files that are added, changed or removed.
+// Events are collected until the directory has been quiet for a moment, so a file that is
+// still being copied in is read once, when complete, rather than once per write.
+class FeedWatcher implements Closeable {
+    private static final long QUIET_MILLIS = 200;
+
+    private final PriceComparator comparator;
+    private final Path directory;
+    private final WatchService watchService;
+    private final Thread thread;
+
+    public FeedWatcher(PriceComparator comparator, Path directory) throws IOException {
+        this.comparator = comparator;
+        this.directory = directory;
+        this.watchService = directory.getFileSystem().newWatchService();
+        register(directory);
+        try (Stream<Path> children = Files.list(directory)) {
+            for (Path child : (Iterable<Path>) children::iterator) {
+                if (Files.isDirectory(child)) {
+                    register(child);
+                }
+            }
+        }
+        thread = new Thread(this::run, "feed-watcher");
+        thread.setDaemon(true);
+    }
+
+    public void start() {
+        thread.start();
+    }
+
+    private void register(Path dir) throws IOException {
+        dir.register(watchService, ENTRY_CREATE, ENTRY_MODIFY, ENTRY_DELETE);
+    }
+
+    private void run() {
+        try {
+            // files may have arrived between the last load and the watch starting
+            reload();
+            while (true) {
+                boolean feedsChanged = drain(watchService.take());
+                WatchKey key;
+                while ((key = watchService.poll(QUIET_MILLIS, TimeUnit.MILLISECONDS)) != null) {
+                    feedsChanged |= drain(key);
+                }
+                if (feedsChanged) {
+                    reload();
+                }
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            // closed
+        }
+    }
+
+    private void reload() {
+        try {
+            comparator.reloadChangedFeeds();
+        } catch (RuntimeException e) {
+            System.err.println("Error reloading feeds from " + directory);
+            e.printStackTrace();
+        }
+    }
+
+    // true when any event may concern a feed file
+    private boolean drain(WatchKey key) {
+        Path dir = (Path) key.watchable();
+        boolean feedsChanged = false;
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (event.kind() == OVERFLOW) {
+                feedsChanged = true;
+                continue;
+            }
+            Path path = dir.resolve((Path) event.context());
+            if (event.kind() == ENTRY_CREATE && dir.equals(directory) && Files.isDirectory(path)) {
+                try {
+                    register(path);
+                } catch (IOException e) {
+                    System.err.println("Error watching feed directory: " + path);
+                    e.printStackTrace();
+                }
+                feedsChanged = true; // it may have been created with files already in it
+            } else if (FeedFile.ofPath(path) != null) {
+                feedsChanged = true;
+            }
+        }
+        key.reset();
+        return feedsChanged;
+    }
+
+    // stops watching; a reload already running still completes
+    @Override
+    public void close() throws IOException {
+        watchService.close();
+    }
+}
@@ -0,0 +1,82 @@
+package org.example;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+// Latency histogram in the style of HdrHistogram: values (nanoseconds) are counted in buckets
+// 32 to a power of two, so any recorded value is known to within about 3% from 0 up to
+// Long.MAX_VALUE in a fixed 1888 counters. Recording is an index computed from the leading
+// zeros and three atomic updates: no lock, no allocation, safe from any number of threads.
+class LatencyHistogram {
+    private static final int SUB_BUCKET_BITS = 5;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int BUCKETS = (64 - SUB_BUCKET_BITS) * SUB_BUCKETS;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final LongAdder sum = new LongAdder();
+    private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+    public void record(long nanos) {
+        long value = Math.max(0, nanos);
+        counts.incrementAndGet(indexOf(value));
+        sum.add(value);
+        max.accumulate(value);
+    }
+
+    // Count, mean, percentiles and max of what was recorded so far. Values recorded while the
+    // summary is taken may or may not be in it.
+    public LatencySummary summarize() {
+        long[] snapshot = new long[BUCKETS];
+        long count = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            snapshot[i] = counts.get(i);
+            count += snapshot[i];
+        }
+        long maxNanos = max.get();
+        return new LatencySummary(count, count == 0 ? 0 : sum.sum() / (double) count,
+                percentile(snapshot, count, 0.50, maxNanos), percentile(snapshot, count, 0.90, maxNanos),
+                percentile(snapshot, count, 0.99, maxNanos), percentile(snapshot, count, 0.999, maxNanos), maxNanos);
+    }
+
+    public void reset() {
+        for (int i = 0; i < BUCKETS; i++) {
+            counts.set(i, 0);
+        }
+        sum.reset();
+        max.reset();
+    }
+
+    // highest value of the bucket holding the given fraction of the values, at most the max
+    private static long percentile(long[] snapshot, long count, double fraction, long maxNanos) {
+        if (count == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(fraction * count));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += snapshot[i];
+            if (seen >= rank) {
+                return Math.min(highestValueOf(i), maxNanos);
+            }
+        }
+        return maxNanos;
+    }
+
+    static int indexOf(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+        return (shift + 1) * SUB_BUCKETS + (int) ((value >>> shift) - SUB_BUCKETS);
+    }
+
+    static long highestValueOf(int index) {
+        if (index < SUB_BUCKETS) {
+            return index;
+        }
+        int shift = index / SUB_BUCKETS - 1;
+        long lowest = (long) (SUB_BUCKETS + index % SUB_BUCKETS) << shift;
+        return lowest + (1L << shift) - 1;
+    }
+}
@@ -0,0 +1,58 @@
+package org.example;
+
+// What a LatencyHistogram recorded, in nanoseconds; percentiles are accurate to about 3%
+class LatencySummary {
+    private final long count;
+    private final double meanNanos;
+    private final long p50Nanos;
+    private final long p90Nanos;
+    private final long p99Nanos;
+    private final long p999Nanos;
+    private final long maxNanos;
+
+    public LatencySummary(long count, double meanNanos, long p50Nanos, long p90Nanos,
+                          long p99Nanos, long p999Nanos, long maxNanos) {
+        this.count = count;
+        this.meanNanos = meanNanos;
+        this.p50Nanos = p50Nanos;
+        this.p90Nanos = p90Nanos;
+        this.p99Nanos = p99Nanos;
+        this.p999Nanos = p999Nanos;
+        this.maxNanos = maxNanos;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public double getMeanNanos() {
+        return meanNanos;
+    }
+
+    public long getP50Nanos() {
+        return p50Nanos;
+    }
+
+    public long getP90Nanos() {
+        return p90Nanos;
+    }
+
+    public long getP99Nanos() {
+        return p99Nanos;
+    }
+
+    public long getP999Nanos() {
+        return p999Nanos;
+    }
+
+    public long getMaxNanos() {
+        return maxNanos;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("count=%d mean=%.1fus p50=%.1fus p90=%.1fus p99=%.1fus p99.9=%.1fus max=%.1fus",
+                count, meanNanos / 1000, p50Nanos / 1000.0, p90Nanos / 1000.0, p99Nanos / 1000.0,
+                p999Nanos / 1000.0, maxNanos / 1000.0);
+    }
+}
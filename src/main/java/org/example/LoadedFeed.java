@@ -0,0 +1,57 @@
+package org.example;
+
+import java.util.*;
+
+// The parsed content of one feed file, built on an ingest thread and merged into the
+// comparator's catalog afterwards.
+class LoadedFeed {
+    private FeedFile feed;
+    private List<Price> prices = Collections.emptyList();
+    private List<Discount> discounts = Collections.emptyList();
+    private long elapsedNanos;
+
+    private LoadedFeed(FeedFile feed) {
+        this.feed = feed;
+    }
+
+    public static LoadedFeed load(FeedFile feed) {
+        long start = System.nanoTime();
+        LoadedFeed loaded = feed.getType() == FeedFile.Type.PRICES
+                ? ofPrices(feed, FeedLoader.loadPrices(feed))
+                : ofDiscounts(feed, FeedLoader.loadDiscounts(feed));
+        loaded.elapsedNanos = System.nanoTime() - start;
+        return loaded;
+    }
+
+    public static LoadedFeed ofPrices(FeedFile feed, List<Price> prices) {
+        LoadedFeed loaded = new LoadedFeed(feed);
+        loaded.prices = prices;
+        return loaded;
+    }
+
+    public static LoadedFeed ofDiscounts(FeedFile feed, List<Discount> discounts) {
+        LoadedFeed loaded = new LoadedFeed(feed);
+        loaded.discounts = discounts;
+        return loaded;
+    }
+
+    public FeedFile getFeed() {
+        return feed;
+    }
+
+    public List<Price> getPrices() {
+        return prices;
+    }
+
+    public List<Discount> getDiscounts() {
+        return discounts;
+    }
+
+    public int getRowCount() {
+        return prices.size() + discounts.size();
+    }
+
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+}
@@ -0,0 +1,88 @@
+package org.example;
+
+import java.util.Collections;
+import java.util.Locale;
+import java.util.Map;
+
+// The query metrics of a comparator at one moment (see QueryMetrics.snapshot())
+class MetricsSnapshot {
+    private final Map<String, LatencySummary> latencies;
+    private final long rowsScanned;
+    private final long discountsEvaluated;
+    private final long cacheHits;
+    private final long cacheMisses;
+
+    public MetricsSnapshot(Map<String, LatencySummary> latencies, long rowsScanned, long discountsEvaluated,
+                           long cacheHits, long cacheMisses) {
+        this.latencies = Collections.unmodifiableMap(latencies);
+        this.rowsScanned = rowsScanned;
+        this.discountsEvaluated = discountsEvaluated;
+        this.cacheHits = cacheHits;
+        this.cacheMisses = cacheMisses;
+    }
+
+    // by query method name, in a fixed order
+    public Map<String, LatencySummary> getLatencies() {
+        return latencies;
+    }
+
+    public LatencySummary getLatency(String query) {
+        return latencies.get(query);
+    }
+
+    public long getRowsScanned() {
+        return rowsScanned;
+    }
+
+    public long getDiscountsEvaluated() {
+        return discountsEvaluated;
+    }
+
+    public long getCacheHits() {
+        return cacheHits;
+    }
+
+    public long getCacheMisses() {
+        return cacheMisses;
+    }
+
+    // One "name{labels} value" line per number, the text format Prometheus scrapes; latencies
+    // are in seconds, as a summary with quantiles, _sum and _count.
+    public String format() {
+        StringBuilder out = new StringBuilder();
+        out.append("# TYPE price_comparator_query_seconds summary\n");
+        latencies.forEach((query, summary) -> {
+            quantile(out, query, "0.5", summary.getP50Nanos());
+            quantile(out, query, "0.9", summary.getP90Nanos());
+            quantile(out, query, "0.99", summary.getP99Nanos());
+            quantile(out, query, "0.999", summary.getP999Nanos());
+            out.append(String.format(Locale.ROOT, "price_comparator_query_seconds_sum{query=\"%s\"} %.9f%n",
+                    query, summary.getMeanNanos() * summary.getCount() / 1e9));
+            out.append(String.format(Locale.ROOT, "price_comparator_query_seconds_count{query=\"%s\"} %d%n",
+                    query, summary.getCount()));
+        });
+        counter(out, "price_comparator_rows_scanned_total", rowsScanned);
+        counter(out, "price_comparator_discounts_evaluated_total", discountsEvaluated);
+        counter(out, "price_comparator_cache_hits_total", cacheHits);
+        counter(out, "price_comparator_cache_misses_total", cacheMisses);
+        return out.toString();
+    }
+
+    private static void quantile(StringBuilder out, String query, String quantile, long nanos) {
+        out.append(String.format(Locale.ROOT, "price_comparator_query_seconds{query=\"%s\",quantile=\"%s\"} %.9f%n",
+                query, quantile, nanos / 1e9));
+    }
+
+    private static void counter(StringBuilder out, String name, long value) {
+        out.append("# TYPE ").append(name).append(" counter\n").append(name).append(' ').append(value).append('\n');
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder out = new StringBuilder();
+        latencies.forEach((query, summary) -> out.append(query).append(": ").append(summary).append('\n'));
+        out.append(String.format("rows scanned=%d discounts evaluated=%d cache hits=%d misses=%d",
+                rowsScanned, discountsEvaluated, cacheHits, cacheMisses));
+        return out.toString();
+    }
+}
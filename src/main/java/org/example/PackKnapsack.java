@@ -0,0 +1,70 @@
+package org.example;
+
+// Cheapest way to cover an amount with package sizes: how many of each pack to buy so that
+// the packs add up to at least the amount. A dynamic program over the amount covered so far,
+// where each pack can be taken at most ceil(amount / size) times (more never helps).
+// Sizes and the amount are divided by their greatest common divisor first, so 1.5 kg out of
+// 500 g and 1 kg packs is three steps, not 1500.
+final class PackKnapsack {
+    static final int MAX_STEPS = 1 << 16;
+
+    private PackKnapsack() {
+    }
+
+    // count of each pack to buy, or null when there is no pack (or amount <= 0)
+    public static int[] cheapestCover(long[] sizes, int[] prices, long amount) {
+        if (amount <= 0 || sizes.length == 0) {
+            return null;
+        }
+
+        long step = amount;
+        for (long size : sizes) {
+            step = gcd(step, size);
+        }
+        // still too fine: use coarser steps, rounding the packs down so the result still covers
+        step = Math.max(step, (amount + MAX_STEPS - 1) / MAX_STEPS);
+        int target = (int) ((amount + step - 1) / step);
+
+        int[] packSteps = new int[sizes.length];
+        boolean usable = false;
+        for (int j = 0; j < sizes.length; j++) {
+            packSteps[j] = (int) Math.min(target, sizes[j] / step);
+            usable |= packSteps[j] > 0;
+        }
+        if (!usable) {
+            return null;
+        }
+
+        // cost[a]: cheapest packs covering at least a steps; choice[a]: the pack added last
+        long[] cost = new long[target + 1];
+        int[] choice = new int[target + 1];
+        for (int a = 1; a <= target; a++) {
+            cost[a] = Long.MAX_VALUE;
+            for (int j = 0; j < sizes.length; j++) {
+                if (packSteps[j] == 0) {
+                    continue;
+                }
+                long candidate = prices[j] + cost[Math.max(0, a - packSteps[j])];
+                if (candidate < cost[a]) {
+                    cost[a] = candidate;
+                    choice[a] = j;
+                }
+            }
+        }
+
+        int[] counts = new int[sizes.length];
+        for (int a = target; a > 0; a -= packSteps[choice[a]]) {
+            counts[choice[a]]++;
+        }
+        return counts;
+    }
+
+    private static long gcd(long a, long b) {
+        while (b != 0) {
+            long t = a % b;
+            a = b;
+            b = t;
+        }
+        return a;
+    }
+}
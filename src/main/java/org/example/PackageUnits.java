@@ -0,0 +1,30 @@
+package org.example;
+
+import java.util.Locale;
+
+// Package sizes in whole base units (grams, millilitres, pieces), so that "0.5 kg" and
+// "500 g" compare equal and can be added up.
+final class PackageUnits {
+
+    private PackageUnits() {
+    }
+
+    // kg -> g, l -> ml; other units (g, ml, buc, role, ...) are their own base unit
+    public static String baseUnit(String unit) {
+        String key = unit.trim().toLowerCase(Locale.ROOT);
+        switch (key) {
+            case "kg":
+                return "g";
+            case "l":
+                return "ml";
+            default:
+                return key;
+        }
+    }
+
+    public static long toBaseAmount(double quantity, String unit) {
+        String key = unit.trim().toLowerCase(Locale.ROOT);
+        double factor = key.equals("kg") || key.equals("l") ? 1000 : 1;
+        return Math.round(quantity * factor);
+    }
+}
@@ -1,5 +1,7 @@
 package org.example;
 
+import java.util.Objects;
+
 class Price {
     private String product_id;
     private String product_name;
@@ -55,6 +57,42 @@ class Price {
         return currency;
     }
 
+    // normalized search keys, computed when asked for: rows are kept column-wise and a Price
+    // is rebuilt for every query that returns one
+    public String getNormalizedName() {
+        return TextNormalizer.key(product_name);
+    }
+
+    public String getNormalizedCategory() {
+        return TextNormalizer.key(product_category);
+    }
+
+    public String getNormalizedBrand() {
+        return TextNormalizer.key(brand);
+    }
+
+    // rows are stored column-wise (see ColumnarCatalog), so two reads of the same row give
+    // equal but not identical objects
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof Price)) return false;
+        Price other = (Price) o;
+        return package_quantity == other.package_quantity
+                && price == other.price
+                && Objects.equals(product_id, other.product_id)
+                && Objects.equals(product_name, other.product_name)
+                && Objects.equals(product_category, other.product_category)
+                && Objects.equals(brand, other.brand)
+                && Objects.equals(package_unit, other.package_unit)
+                && Objects.equals(currency, other.currency);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(product_id, product_name, product_category, brand, package_quantity, package_unit, price, currency);
+    }
+
     @Override
     public String toString() {
         return "src.main.java.src.main.java.org.priceComparator.priceComparator.Price{" +
@@ -4,12 +4,18 @@ class PriceAlert {
     private String productName;
     private double targetPrice;
     private String alertId;
-    private boolean isActive;
+    private String userId;
+    private volatile boolean isActive;
 
     public PriceAlert(String productName, double targetPrice) {
+        this(productName.toLowerCase() + "_" + targetPrice, null, productName, targetPrice);
+    }
+
+    public PriceAlert(String alertId, String userId, String productName, double targetPrice) {
         this.productName = productName.toLowerCase();
         this.targetPrice = targetPrice;
-        this.alertId = productName.toLowerCase() + "_" + targetPrice;
+        this.alertId = alertId;
+        this.userId = userId;
         this.isActive = true;
     }
 
@@ -17,6 +23,7 @@ class PriceAlert {
     public String getProductName() { return productName; }
     public double getTargetPrice() { return targetPrice; }
     public String getAlertId() { return alertId; }
+    public String getUserId() { return userId; }
     public boolean isActive() { return isActive; }
     public void setActive(boolean active) { this.isActive = active; }
 }
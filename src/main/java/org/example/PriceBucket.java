@@ -0,0 +1,62 @@
+package org.example;
+
+import java.time.LocalDate;
+
+// Prices of one product over a run of days (see PriceSeries.downsample), in cents
+class PriceBucket {
+    private final int startDay;
+    private final int endDay; // exclusive
+    private final int minCents;
+    private final int maxCents;
+    private final int lastCents;
+    private final double meanCents;
+
+    public PriceBucket(int startDay, int endDay, int minCents, int maxCents, int lastCents, double meanCents) {
+        this.startDay = startDay;
+        this.endDay = endDay;
+        this.minCents = minCents;
+        this.maxCents = maxCents;
+        this.lastCents = lastCents;
+        this.meanCents = meanCents;
+    }
+
+    public LocalDate getStartDate() {
+        return LocalDate.ofEpochDay(startDay);
+    }
+
+    // last day of the bucket
+    public LocalDate getEndDate() {
+        return LocalDate.ofEpochDay(endDay - 1);
+    }
+
+    public int getStartDay() {
+        return startDay;
+    }
+
+    public int getEndDay() {
+        return endDay;
+    }
+
+    public int getMinCents() {
+        return minCents;
+    }
+
+    public int getMaxCents() {
+        return maxCents;
+    }
+
+    public int getLastCents() {
+        return lastCents;
+    }
+
+    // mean of the price on each day of the bucket that had one
+    public double getMeanCents() {
+        return meanCents;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s..%s min=%.2f max=%.2f mean=%.2f last=%.2f", getStartDate(), getEndDate(),
+                minCents / 100.0, maxCents / 100.0, meanCents / 100.0, lastCents / 100.0);
+    }
+}
@@ -0,0 +1,49 @@
+package org.example;
+
+// A product whose price on the current date moved because of an ingested feed file.
+class PriceChange {
+    private String store;
+    private String productId;
+    private String productName;
+    private int oldPrice; // in cents, discount applied; -1 for a product new to the store
+    private int newPrice;
+
+    public PriceChange(String store, String productId, String productName, int oldPrice, int newPrice) {
+        this.store = store;
+        this.productId = productId;
+        this.productName = productName;
+        this.oldPrice = oldPrice;
+        this.newPrice = newPrice;
+    }
+
+    public String getStore() {
+        return store;
+    }
+
+    public String getProductId() {
+        return productId;
+    }
+
+    public String getProductName() {
+        return productName;
+    }
+
+    public int getOldPrice() {
+        return oldPrice;
+    }
+
+    public int getNewPrice() {
+        return newPrice;
+    }
+
+    public boolean isNewProduct() {
+        return oldPrice < 0;
+    }
+
+    @Override
+    public String toString() {
+        return store + " " + productId + " " + productName + ": "
+                + (isNewProduct() ? "new" : String.format("%.2f", oldPrice / 100.0))
+                + " -> " + String.format("%.2f", newPrice / 100.0);
+    }
+}
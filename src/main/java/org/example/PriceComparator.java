@@ -1,21 +1,47 @@
 package org.example;
 
-import java.io.BufferedReader;
+import javax.management.JMException;
+import javax.management.ObjectName;
 import java.io.IOException;
-import java.io.InputStream;
-import java.io.InputStreamReader;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Path;
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 public class PriceComparator {
     private static final DateTimeFormatter DATE_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd");
 
-    private Map<String, Map<String, Price>> pricesByStoreAndProduct = new HashMap<>();
-    private Map<String, List<Discount>> discountsByStore = new HashMap<>();
-    private LocalDate currentDate;
-    private Map<String, PriceAlert> priceAlerts = new HashMap<>();
+    // replaced by setBestDealCacheSize while queries may be reading it
+    private volatile BestDealCache bestDealCache = new BestDealCache(DEFAULT_BEST_DEAL_CACHE_SIZE);
+    private final QueryMetrics metrics = new QueryMetrics(() -> bestDealCache);
+    // the loaded data; replaced as a whole, never changed, so a query reads it once and needs no lock
+    private volatile PriceSnapshot data = PriceSnapshot.empty(metrics);
+    private final Object writeLock = new Object(); // held while a new snapshot is built and published
+    private volatile LocalDate currentDate;
+    private AlertRegistry priceAlerts = new AlertRegistry();
+    private AlertEngine alertEngine = new AlertEngine();
+    private Path feedDirectory; // null: the feeds bundled on the classpath
+    private Executor ingestExecutor = ForkJoinPool.commonPool();
+    private Executor planExecutor = ForkJoinPool.commonPool();
+    private Path snapshotFile; // null: always parse the CSV feeds
+    private final Object snapshotFileLock = new Object(); // held while the snapshot file is written
+    private final AtomicBoolean snapshotWritePending = new AtomicBoolean();
+    private volatile CompletableFuture<Void> snapshotWrite = CompletableFuture.completedFuture(null);
+    private boolean quiet; // no timing lines from loads, ingests and plan batches
+
+    private static final int DEFAULT_BEST_DEAL_CACHE_SIZE = 10_000;
+    // a discount is compared with the lowest price of the 30 days before it, as price-reduction rules usually ask
+    static final int DISCOUNT_LOOKBACK_DAYS = 30;
+
+    static final int PRODUCT_FIELDS =
+            ProductSearchIndex.NAME | ProductSearchIndex.BRAND | ProductSearchIndex.CATEGORY;
 
     private static final List<String> PRICE_FILES = Arrays.asList(
             "prices/kaufland_2025-05-01.csv",
@@ -52,7 +78,7 @@ public class PriceComparator {
         ShoppingPlan plan = comparator.generateOptimizedShoppingPlan(shoppingList);
 
         System.out.println("=== OPTIMIZED SHOPPING PLAN ===");
-        System.out.println("Date: " + comparator.currentDate);
+        System.out.println("Date: " + comparator.getCurrentDate());
         System.out.println("\nSHOPPING LISTS BY STORE:");
         plan.getStoreItems().forEach((store, items) -> {
             System.out.println("\n" + store.toUpperCase() + ":");
@@ -68,6 +94,7 @@ public class PriceComparator {
                         item.getProductName(),
                         item.getQuantity(),
                         priceInfo);
+                item.getPacks().forEach(pack -> System.out.println("    " + pack));
 
                 storeTotal += item.getFinalPrice() * item.getQuantity();
             }
@@ -140,30 +167,54 @@ public class PriceComparator {
 
     }
     // Price Alert Methods
-    public void addPriceAlert(String productName, double targetPrice) {
-        PriceAlert alert = new PriceAlert(productName, targetPrice);
-        priceAlerts.put(alert.getAlertId(), alert);
+    // alerts added without a user belong to this one
+    static final String DEFAULT_USER = "local";
+
+    public PriceAlert addPriceAlert(String productName, double targetPrice) {
+        return addPriceAlert(DEFAULT_USER, productName, targetPrice);
+    }
+
+    public PriceAlert addPriceAlert(String userId, String productName, double targetPrice) {
+        PriceAlert alert = priceAlerts.add(userId, productName, targetPrice);
         System.out.printf("Price alert added: %s at %.2f RON or below%n", productName, targetPrice);
+        alertEngine.add(alert);
+        if (priceAlerts.get(alert.getAlertId()) == null) {
+            alertEngine.remove(alert); // removed by another thread in between
+        }
+        return alert;
     }
 
+    // removes the oldest of the default user's alerts for the product
     public void removePriceAlert(String productName) {
-        String searchKey = productName.toLowerCase();
-        String alertToRemove = null;
-
-        for (String alertId : priceAlerts.keySet()) {
-            if (alertId.startsWith(searchKey + "_")) {
-                alertToRemove = alertId;
-                break;
-            }
-        }
+        PriceAlert alertToRemove = priceAlerts.findByProduct(productName).stream()
+                .filter(alert -> DEFAULT_USER.equals(alert.getUserId()))
+                .min(Comparator.comparingLong(AlertRegistry::sequence))
+                .orElse(null);
 
-        if (alertToRemove != null) {
-            priceAlerts.remove(alertToRemove);
+        if (alertToRemove != null && removePriceAlertById(alertToRemove.getAlertId())) {
             System.out.printf("Price alert removed for: %s%n", productName);
         } else {
             System.out.printf("No price alert found for: %s%n", productName);
         }
     }
+
+    public boolean removePriceAlertById(String alertId) {
+        PriceAlert removed = priceAlerts.remove(alertId);
+        if (removed == null) {
+            return false;
+        }
+        alertEngine.remove(removed);
+        return true;
+    }
+
+    public PriceAlert getPriceAlert(String alertId) {
+        return priceAlerts.get(alertId);
+    }
+
+    public Set<PriceAlert> getPriceAlerts(String userId) {
+        return priceAlerts.findByUser(userId);
+    }
+
     public void showActiveAlerts() {
         System.out.println("\n=== ACTIVE PRICE ALERTS ===");
         if (priceAlerts.isEmpty()) {
@@ -171,7 +222,7 @@ public class PriceComparator {
             return;
         }
 
-        for (PriceAlert alert : priceAlerts.values()) {
+        for (PriceAlert alert : priceAlerts.getAll()) {
             if (alert.isActive()) {
                 System.out.printf("- %s: %.2f RON or below%n",
                         alert.getProductName(), alert.getTargetPrice());
@@ -179,50 +230,29 @@ public class PriceComparator {
         }
     }
 
-    public void checkAndShowTriggeredAlerts() {
-        List<AlertMatch> triggeredAlerts = new ArrayList<>();
-
-        for (PriceAlert alert : priceAlerts.values()) {
-            if (!alert.isActive()) continue;
-
-            // Search for products that match this alert
-            for (String store : pricesByStoreAndProduct.keySet()) {
-                Map<String, Price> storeProducts = pricesByStoreAndProduct.get(store);
-
-                for (Price price : storeProducts.values()) {
-                    if (matchesProduct(price, alert.getProductName())) {
-                        double currentPrice = price.getPrice() / 100.0;
-                        boolean hasDiscount = false;
-                        float discountPercentage = 0f;
-
-                        // Check for current discounts
-                        if (discountsByStore.containsKey(store)) {
-                            for (Discount discount : discountsByStore.get(store)) {
-                                if (discount.getProductId().equals(price.getProductId())) {
-                                    LocalDate fromDate = LocalDate.parse(discount.getFromDate(), DATE_FORMATTER);
-                                    LocalDate toDate = LocalDate.parse(discount.getToDate(), DATE_FORMATTER);
-
-                                    if (!currentDate.isBefore(fromDate) && !currentDate.isAfter(toDate)) {
-                                        currentPrice = currentPrice * (1 - discount.getDiscountPercentage() / 100.0);
-                                        hasDiscount = true;
-                                        discountPercentage = discount.getDiscountPercentage();
-                                        break;
-                                    }
-                                }
-                            }
-                        }
-
-                        // Check if price triggers the alert
-                        if (currentPrice <= alert.getTargetPrice()) {
-                            triggeredAlerts.add(new AlertMatch(
-                                    alert, store, price.getProductName(),
-                                    currentPrice, hasDiscount, discountPercentage
-                            ));
-                        }
-                    }
-                }
-            }
+    // listeners hear about an alert when it becomes triggered: when it is added, after a load
+    // or when the current date changes. They are called on the thread that made the change,
+    // once it no longer holds the comparator's locks.
+    public void addAlertListener(AlertEngine.AlertListener listener) {
+        alertEngine.addListener(listener);
+    }
+
+    public void removeAlertListener(AlertEngine.AlertListener listener) {
+        alertEngine.removeListener(listener);
+    }
+
+    // every (alert, product) pair triggered at the current prices
+    public List<AlertMatch> getTriggeredAlerts() {
+        long start = System.nanoTime();
+        try {
+            return alertEngine.getTriggered();
+        } finally {
+            metrics.record(QueryMetrics.Query.ALERT_CHECK, start);
         }
+    }
+
+    public void checkAndShowTriggeredAlerts() {
+        List<AlertMatch> triggeredAlerts = getTriggeredAlerts();
 
         if (triggeredAlerts.isEmpty()) {
             System.out.println("No price alerts triggered at current prices.");
@@ -242,13 +272,6 @@ public class PriceComparator {
         }
     }
 
-    private boolean matchesProduct(Price price, String productName) {
-        String searchTerm = productName.toLowerCase().trim();
-        return price.getProductName().toLowerCase().contains(searchTerm) ||
-                price.getProductCategory().toLowerCase().contains(searchTerm) ||
-                price.getBrand().toLowerCase().contains(searchTerm);
-    }
-
     public void comparePackageSizes(String productName) {
         List<ValuePerUnitItem> items = analyzeValuePerUnit(productName);
 
@@ -287,51 +310,12 @@ public class PriceComparator {
     }
 
     public List<ValuePerUnitItem> analyzeValuePerUnit(String productName) {
-        List<ValuePerUnitItem> items = new ArrayList<>();
-        String search = productName.toLowerCase().trim();
-
-        for(String store: pricesByStoreAndProduct.keySet()){
-            Map<String, Price> storePrices = pricesByStoreAndProduct.get(store);
-
-            for(Price price: storePrices.values()){
-                if(!matchesSearch(price, store, search)){
-                    continue;
-                }
-                // skip if package is invalid
-                if(price.getPackageQuantity() <= 0 ){
-                    continue;
-                }
-
-                // Calculate final price with current discounts
-                double regularPrice = price.getPrice() / 100.0;
-                double finalPrice = regularPrice;
-                boolean hasDiscount = false;
-                float discountPercentage = 0f;
-                if (discountsByStore.containsKey(store)) {
-                    for (Discount discount : discountsByStore.get(store)) {
-                        if (discount.getProductId().equals(price.getProductId())) {
-                            LocalDate fromDate = LocalDate.parse(discount.getFromDate(), DATE_FORMATTER);
-                            LocalDate toDate = LocalDate.parse(discount.getToDate(), DATE_FORMATTER);
-
-                            if (!currentDate.isBefore(fromDate) && !currentDate.isAfter(toDate)) {
-                                finalPrice = regularPrice * (1 - discount.getDiscountPercentage() / 100.0);
-                                hasDiscount = true;
-                                discountPercentage = discount.getDiscountPercentage();
-                                break;
-                            }
-                        }
-                    }
-                }
-
-                ValuePerUnitItem item = new ValuePerUnitItem(
-                        price.getProductName(), price.getBrand(), store, regularPrice, finalPrice,
-                        price.getPackageQuantity(), price.getPackageUnit(), hasDiscount, discountPercentage
-                );
-
-                items.add(item);
-            }
+        long start = System.nanoTime();
+        try {
+            return data.analyzeValuePerUnit(productName, today());
+        } finally {
+            metrics.record(QueryMetrics.Query.VALUE_PER_UNIT, start);
         }
-        return items;
     }
 
     public void findBestValuePerUnit(String unit) {
@@ -367,71 +351,46 @@ public class PriceComparator {
         }
 
     }
-    private String extractDateFromFilename(String filename) {
-        // prices/kaufland_2025-05-01.csv
-        String baseName = filename.substring(filename.lastIndexOf("/") + 1);
-        String[] parts = baseName.split("_");
-        return parts[parts.length - 1].replace(".csv", "");
-    }
-    private boolean matchesSearch(Price price, String store, String searchTerm) {
-        return store.toLowerCase().contains(searchTerm) ||
-                price.getProductCategory().toLowerCase().contains(searchTerm) ||
-                price.getBrand().toLowerCase().contains(searchTerm) ||
-                price.getProductName().toLowerCase().contains(searchTerm);
-    }
 
-    public List<PricePoint> getPriceHistory(String searchTerm) {
-        List<PricePoint> pricePoints = new ArrayList<>();
-        String search = searchTerm.toLowerCase().trim();
+    // every dated list price of one product in one store, compressed (see PriceSeries); read-only
+    public PriceSeries getPriceSeries(String store, String productId) {
+        return data.getPriceSeries(store, productId);
+    }
 
-        for (String priceFile : PRICE_FILES) {
-            String store = extractStoreFromFilename(priceFile);
-            String dateStr = extractDateFromFilename(priceFile);
+    // the product's list price from one date to another (both included) in buckets of
+    // bucketDays days: lowest, highest, mean and last price of each
+    public List<PriceBucket> downsamplePriceHistory(String store, String productId, LocalDate from, LocalDate to,
+                                                    int bucketDays) {
+        return data.getPriceSeries(store, productId)
+                .downsample((int) from.toEpochDay(), (int) to.toEpochDay(), bucketDays);
+    }
 
-            List<Price> prices = loadPricesFromCsv(priceFile);
-            // match the discount file path
-            String discountFile = "discounts/" + store + "_discounts_" + dateStr + ".csv";
-            List<Discount> discounts = loadDiscountsFromCsv(discountFile);
+    // the product's list price over the last windowDays days up to the current date (see
+    // PriceSnapshot.getPriceStats); null if it is not listed
+    public PriceStats getPriceStats(String store, String productId, int windowDays) {
+        return data.getPriceStats(store, productId, windowDays, today());
+    }
 
-            for (Price price : prices) {
-                if (!matchesSearch(price, store, search)) {
-                    continue;
-                }
+    // every discount running on the current date against the lowest list price of the
+    // DISCOUNT_LOOKBACK_DAYS days before it started
+    public List<DiscountCheck> checkActiveDiscounts() {
+        return data.checkDiscounts(today(), DISCOUNT_LOOKBACK_DAYS);
+    }
 
-                // Calculate final price with discount
-                double regularPrice = price.getPrice() / 100.0;
-                double finalPrice = regularPrice;
-                boolean hasDiscount = false;
-
-                for (Discount discount : discounts) {
-                    if (discount.getProductId().equals(price.getProductId())) {
-                        // we get the available intervals of the discount for each store
-                        LocalDate discountStart = LocalDate.parse(discount.getFromDate(), DATE_FORMATTER);
-                        LocalDate discountEnd = LocalDate.parse(discount.getToDate(), DATE_FORMATTER);
-                        LocalDate priceDate = LocalDate.parse(dateStr, DATE_FORMATTER);
-
-                        if (!priceDate.isBefore(discountStart) && !priceDate.isAfter(discountEnd)) {
-                            finalPrice = regularPrice * (1 - discount.getDiscountPercentage() / 100.0);
-                            hasDiscount = true;
-                            break;
-                        }
-                    }
-                }
+    // products at their lowest list price of the last windowDays days, biggest drop first
+    public List<PriceLow> findLowestInDays(int windowDays, int limit) {
+        return data.findLowestInDays(windowDays, today(), limit);
+    }
 
-                pricePoints.add(new PricePoint(
-                        dateStr, price.getProductName(), store, price.getBrand(),
-                        price.getProductCategory(), regularPrice, finalPrice, hasDiscount
-                ));
-            }
+    public List<PricePoint> getPriceHistory(String searchTerm) {
+        long start = System.nanoTime();
+        try {
+            return data.getPriceHistory(searchTerm);
+        } finally {
+            metrics.record(QueryMetrics.Query.PRICE_HISTORY, start);
         }
-        return pricePoints.stream()
-                .sorted(Comparator.comparing(PricePoint::getDate))
-                .collect(Collectors.toList());
     }
 
-
-
-
     public void printPriceHistory(String searchTerm) {
         List<PricePoint> history = getPriceHistory(searchTerm);
 
@@ -465,24 +424,8 @@ public class PriceComparator {
     }
 
     public void recentDiscounts() {
-        List<Discount> allDiscounts = new ArrayList<>();
-
-        for (String discountFile : DISCOUNT_FILES) {
-            List<Discount> discounts = loadDiscountsFromCsv(discountFile);
-            allDiscounts.addAll(discounts);
-        }
-
-        List<Discount> recentDiscounts = allDiscounts.stream()
-                .filter(discount -> {
-                    LocalDate fromDate = LocalDate.parse(discount.getFromDate(), DATE_FORMATTER);
-
-                    return !fromDate.isBefore(currentDate.minusDays(1)) && !fromDate.isAfter(currentDate);
-                }).sorted( (d1,d2) -> {
-                    LocalDate date1 = LocalDate.parse(d1.getFromDate(), DATE_FORMATTER);
-                    LocalDate date2 = LocalDate.parse(d2.getFromDate(), DATE_FORMATTER);
-                    return date1.compareTo(date2);
-                })
-                .toList();
+        // already ordered by start date
+        List<Discount> recentDiscounts = data.getRecentDiscounts(today());
 
         System.out.println("\n=== RECENT DISCOUNTS (Last 24 Hours) ===");
         if (recentDiscounts.isEmpty()) {
@@ -505,20 +448,11 @@ public class PriceComparator {
 
     }
     public void listBestDiscounts() {
-        List<Discount> allDiscounts = new ArrayList<>();
-
-        for (String discountFile : DISCOUNT_FILES) {
-            List<Discount> discounts = loadDiscountsFromCsv(discountFile);
-            allDiscounts.addAll(discounts);
-        }
-        List<Discount> topDiscounts = allDiscounts.stream()
-                .sorted((d1, d2) -> Float.compare(d2.getDiscountPercentage(), d1.getDiscountPercentage()))
-                .limit(10)
-                .toList();
+        List<RankedDiscount> topDiscounts = data.topDiscounts(10, today(), DiscountFilter.ALL);
 
         System.out.println("\n=== TOP 10 DISCOUNTS ===");
         for (int i = 0; i < topDiscounts.size(); i++) {
-            Discount discount = topDiscounts.get(i);
+            Discount discount = topDiscounts.get(i).getDiscount();
             System.out.printf("%d. %s - %s %.0f%s (%.0f%% OFF) - Valid: %s to %s%n",
                     i + 1,
                     discount.getProductName(),
@@ -531,249 +465,520 @@ public class PriceComparator {
         }
     }
 
+    // the k biggest discounts running on the date that the filter accepts, best first
+    public List<RankedDiscount> topDiscounts(int k, LocalDate asOfDate, DiscountFilter filter) {
+        return data.topDiscounts(k, (int) asOfDate.toEpochDay(), filter);
+    }
+
+    // price of a product in a store on the given day, with the discount active on that day applied
+    public EffectivePrice getEffectivePrice(String store, Price price, int epochDay) {
+        return data.getEffectivePrice(store, price, epochDay);
+    }
+
+    // discounts (from every loaded discount file) running on the current date
+    public List<Discount> getActiveDiscounts() {
+        return data.getActiveDiscounts(today());
+    }
+
+    // the price a store listed for a product in its latest file dated on or before the given date
+    public Price getPriceAsOf(String store, String productId, LocalDate date) {
+        return data.getPriceAsOf(store, productId, (int) date.toEpochDay());
+    }
+
     public void setCurrentDate(LocalDate date) {
-        this.currentDate = date;
+        synchronized (writeLock) {
+            boolean changed = !date.equals(currentDate);
+            this.currentDate = date;
+            if (changed) {
+                bestDealCache.invalidate();
+                long start = System.nanoTime();
+                alertEngine.refresh(data, today());
+                metrics.record(QueryMetrics.Query.ALERT_REFRESH, start);
+            }
+        }
+        deliverAlerts();
     }
 
     public LocalDate getCurrentDate() {
         return currentDate;
     }
 
-    public void loadAllData() {
-        pricesByStoreAndProduct.clear();
-        discountsByStore.clear();
+    // current date as an epoch day; 0 until a date is set
+    private int today() {
+        LocalDate date = currentDate;
+        return date == null ? 0 : (int) date.toEpochDay();
+    }
 
-        for (String file : PRICE_FILES) {
-            String store = extractStoreFromFilename(file);
-            List<Price> prices = loadPricesFromCsv(file);
+    // The data loaded right now. It never changes, so it can be queried from any number of
+    // threads, for any day, while reloads publish newer snapshots.
+    public PriceSnapshot getSnapshot() {
+        return data;
+    }
 
-            Map<String, Price> productPrices = pricesByStoreAndProduct
-                    .computeIfAbsent(store, k -> new HashMap<>());
+    // Latency percentiles of the public queries and counters of the work behind them, recorded
+    // since this comparator was created (or last reset over JMX).
+    public MetricsSnapshot getMetrics() {
+        return metrics.snapshot();
+    }
 
-            for (Price price : prices) {
-                productPrices.put(price.getProductId().toLowerCase(), price);
-                productPrices.put(price.getProductName().toLowerCase(), price);
-            }
+    // Exposes the same metrics as an MXBean named org.example:type=PriceComparator,name={name}
+    // on the platform MBean server, where JConsole or a JMX exporter can read them.
+    public ObjectName registerMetricsMBean(String name) throws JMException {
+        ObjectName objectName = new ObjectName("org.example", new Hashtable<>(Map.of("type", "PriceComparator", "name", name)));
+        ManagementFactory.getPlatformMBeanServer().registerMBean(metrics, objectName);
+        return objectName;
+    }
+
+    // load {store}_{date}.csv and {store}_discounts_{date}.csv feeds from this directory
+    // instead of the bundled ones; null switches back to the classpath
+    public void setFeedDirectory(Path feedDirectory) {
+        this.feedDirectory = feedDirectory;
+    }
+
+    public Path getFeedDirectory() {
+        return feedDirectory;
+    }
+
+    private List<FeedFile> getFeedFiles() {
+        if (feedDirectory == null) {
+            List<FeedFile> feeds = new ArrayList<>();
+            PRICE_FILES.forEach(file -> feeds.add(FeedFile.ofResource(file)));
+            DISCOUNT_FILES.forEach(file -> feeds.add(FeedFile.ofResource(file)));
+            return feeds;
+        }
+        try {
+            return FeedLoader.discover(feedDirectory);
+        } catch (IOException e) {
+            System.err.println("Error reading feed directory: " + feedDirectory);
+            e.printStackTrace();
+            return Collections.emptyList();
         }
+    }
 
-        for (String file : DISCOUNT_FILES) {
-            String store = extractStoreFromFilename(file);
-            List<Discount> discounts = loadDiscountsFromCsv(file);
-            discountsByStore.put(store, discounts);
+    // executor the feed files are parsed on, one task per file (e.g. a fork-join pool, a
+    // fixed thread pool, or Runnable::run to parse them one after another on the caller)
+    public void setIngestExecutor(Executor ingestExecutor) {
+        this.ingestExecutor = ingestExecutor;
+    }
+
+    // Replaces the findBestDealForProduct cache with an empty one holding up to maxSize lookups;
+    // the metrics then report its hits and misses, from zero. Swapped under the write lock so
+    // that a load or ingest running meanwhile invalidates whichever cache it ends up with.
+    public void setBestDealCacheSize(int maxSize) {
+        synchronized (writeLock) {
+            bestDealCache = new BestDealCache(maxSize);
         }
     }
 
-    public ShoppingPlan generateOptimizedShoppingPlan(List<ShoppingItem> shoppingList) {
-        ShoppingPlan plan = new ShoppingPlan();
+    public BestDealCache getBestDealCache() {
+        return bestDealCache;
+    }
 
-        for (ShoppingItem item : shoppingList) {
-            BestDeal bestDeal = findBestDealForProduct(item.getProductName(), item.getQuantity());
+    public AlertEngine getAlertEngine() {
+        return alertEngine;
+    }
 
-            if (bestDeal != null) {
-                plan.addItem(bestDeal.getStore(), new ShoppingPlanItem(
-                        bestDeal.getProductName(),
-                        item.getQuantity(),
-                        bestDeal.getRegularPrice(),
-                        bestDeal.getFinalPrice(),
-                        bestDeal.isDiscounted()
-                ));
+    // executor the batch shopping-plan method runs its lookups and plans on
+    public void setPlanExecutor(Executor planExecutor) {
+        this.planExecutor = planExecutor;
+    }
+
+    // true: loads, ingests and shopping-plan batches print no timing lines, e.g. while a
+    // benchmark times them
+    public void setQuiet(boolean quiet) {
+        this.quiet = quiet;
+    }
+
+    // binary snapshot of the loaded data: read instead of the CSV feeds while none of them
+    // changed, rewritten after every CSV load and, in the background, after ingested files
+    public void setSnapshotFile(Path snapshotFile) {
+        this.snapshotFile = snapshotFile;
+    }
+
+    // Reads every feed file into a new snapshot and publishes it once complete; queries running
+    // meanwhile keep answering from the previous one.
+    public void loadAllData() {
+        synchronized (writeLock) {
+            loadFeeds();
+        }
+        deliverAlerts();
+    }
+
+    // the body of loadAllData, run holding the write lock
+    private void loadFeeds() {
+        long loadStart = System.nanoTime();
+        List<FeedFile> feeds = getFeedFiles();
+        // taken before reading, so a file changed while it is read is seen as changed later
+        Map<String, Long> feedTimes = new LinkedHashMap<>();
+        for (FeedFile feed : feeds) {
+            feedTimes.put(feed.getName(), FeedLoader.lastModified(feed));
+        }
+
+        CatalogSnapshotFile snapshot = readSnapshot(feeds);
+        if (snapshot != null) {
+            publish(PriceSnapshot.build(snapshot.getCatalog(), snapshot.getDiscountFeeds(), snapshot.getPostings(),
+                    feedTimes, metrics));
+            if (!quiet) {
+                System.out.printf("Loaded %d feed files from snapshot %s in %.2f ms%n",
+                        snapshot.getFeedCount(), snapshotFile, (System.nanoTime() - loadStart) / 1_000_000.0);
             }
+            return;
         }
 
-        return plan;
+        // one task per file; results are merged below in feed order, as a sequential load would
+        List<CompletableFuture<LoadedFeed>> tasks = new ArrayList<>(feeds.size());
+        for (FeedFile feed : feeds) {
+            tasks.add(CompletableFuture.supplyAsync(() -> LoadedFeed.load(feed), ingestExecutor));
+        }
+        List<LoadedFeed> loadedFeeds = new ArrayList<>(tasks.size());
+        for (CompletableFuture<LoadedFeed> task : tasks) {
+            loadedFeeds.add(task.join());
+        }
+        publish(PriceSnapshot.build(loadedFeeds, null, feedTimes, metrics));
+
+        if (!quiet) {
+            for (LoadedFeed loaded : loadedFeeds) {
+                System.out.printf("Loaded %s: %d rows in %.2f ms%n",
+                        loaded.getFeed().getName(), loaded.getRowCount(), loaded.getElapsedNanos() / 1_000_000.0);
+            }
+            System.out.printf("Loaded %d feed files in %.2f ms%n", loadedFeeds.size(), (System.nanoTime() - loadStart) / 1_000_000.0);
+        }
+
+        writeSnapshot();
     }
 
-    public BestDeal findBestDealForProduct(String productName, int quantity) {
-        String normalizedProductName = productName.toLowerCase();
-        int lowestPrice = Integer.MAX_VALUE;
-        String bestStore = null;
-        int regularPrice = 0;
-        boolean isDiscounted = false;
-        String actualProductName = productName;
-
-        for (String store : pricesByStoreAndProduct.keySet()) {
-            Map<String, Price> storePrices = pricesByStoreAndProduct.get(store);
-
-            Price price = null;
-            if (storePrices.containsKey(normalizedProductName)) {
-                price = storePrices.get(normalizedProductName);
-            } else {
-                for (String key : storePrices.keySet()) {
-                    if (key.contains(normalizedProductName)) {
-                        price = storePrices.get(key);
-                        break;
-                    }
+    // makes a fully built snapshot the one queries read, then drops what was derived from the old one
+    private void publish(PriceSnapshot snapshot) {
+        data = snapshot;
+        bestDealCache.invalidate();
+        long start = System.nanoTime();
+        alertEngine.refresh(snapshot, today());
+        metrics.record(QueryMetrics.Query.ALERT_REFRESH, start);
+    }
+
+    // alerts triggered by the changes made under the write lock reach the listeners once the
+    // outermost holder has let go of it (see AlertEngine.deliver)
+    private void deliverAlerts() {
+        if (!Thread.holdsLock(writeLock)) {
+            alertEngine.deliver();
+        }
+    }
+
+    // Applies one new (or replaced) price or discount file on top of the loaded data, without
+    // reloading the rest: only its rows are parsed, and only the products it mentions are
+    // re-indexed and re-priced. A new version of a file that is already loaded takes the place
+    // of the old one (see PriceSnapshot.withFeed), and everything is re-priced.
+    // Returns the products whose price on the current date changed.
+    public List<PriceChange> ingestFeed(Path file) {
+        long start = System.nanoTime();
+        FeedFile feed = FeedFile.ofPath(feedDirectory, file);
+        if (feed == null) {
+            throw new IllegalArgumentException("Not a {store}_{date}.csv or {store}_discounts_{date}.csv file: " + file);
+        }
+        long modified = FeedLoader.lastModified(feed);
+        LoadedFeed loaded = LoadedFeed.load(feed);
+        String store = feed.getStore();
+
+        List<PriceChange> changes = new ArrayList<>();
+        synchronized (writeLock) {
+            PriceSnapshot old = data;
+            int today = today();
+
+            // price before the file of every product it mentions; -1 for new products
+            Map<String, Integer> oldPrices = new LinkedHashMap<>();
+            for (Price price : loaded.getPrices()) {
+                oldPrices.computeIfAbsent(price.getProductId(), id -> old.getLatestPrice(store, id, today));
+            }
+            for (Discount discount : loaded.getDiscounts()) {
+                oldPrices.computeIfAbsent(discount.getProductId(), id -> old.getLatestPrice(store, id, today));
+            }
+            // and of the products only the replaced version lists
+            boolean replacing = old.getFeedTimes().containsKey(feed.getName());
+            if (replacing) {
+                for (String productId : old.getProductIds(feed)) {
+                    oldPrices.computeIfAbsent(productId, id -> old.getLatestPrice(store, id, today));
                 }
             }
 
-            if (price == null) {
-                continue;
+            PriceSnapshot updated = old.withFeed(loaded, modified);
+            ColumnarCatalog catalog = updated.getCatalog();
+            int[] docs = oldPrices.keySet().stream().mapToInt(id -> catalog.findProduct(store, id)).filter(doc -> doc >= 0).toArray();
+            if (replacing) {
+                publish(updated);
+            } else if (updated.getSearchIndex().needsRebuild()) {
+                publish(updated.withRebuiltIndex());
+            } else {
+                data = updated;
+                bestDealCache.invalidate();
+                long refreshStart = System.nanoTime();
+                alertEngine.refreshProducts(updated, docs, today);
+                metrics.record(QueryMetrics.Query.ALERT_REFRESH, refreshStart);
             }
 
-            int currentPrice = price.getPrice();
-            boolean discounted = false;
-
-            if (discountsByStore.containsKey(store)) {
-                for (Discount discount : discountsByStore.get(store)) {
-                    if (discount.getProductId().equalsIgnoreCase(price.getProductId()) ||
-                            discount.getProductName().toLowerCase().contains(normalizedProductName)) {
-
-                        LocalDate fromDate = LocalDate.parse(discount.getFromDate(), DATE_FORMATTER);
-                        LocalDate toDate = LocalDate.parse(discount.getToDate(), DATE_FORMATTER);
-
-                        if ((currentDate.isEqual(fromDate) || currentDate.isAfter(fromDate)) &&
-                                (currentDate.isEqual(toDate) || currentDate.isBefore(toDate))) {
-                            double discountFactor = 1.0 - (discount.getDiscountPercentage() / 100.0);
-                            currentPrice = (int)(currentPrice * discountFactor);
-                            discounted = true;
-                            break;
-                        }
-                    }
+            oldPrices.forEach((productId, oldPrice) -> {
+                int newPrice = updated.getLatestPrice(store, productId, today);
+                if (newPrice >= 0 && newPrice != oldPrice) {
+                    int product = catalog.findProduct(store, productId);
+                    changes.add(new PriceChange(store, productId, catalog.getName(catalog.getDescriptionAsOf(product, today)), oldPrice, newPrice));
                 }
+            });
+            if (!quiet) {
+                System.out.printf("Ingested %s: %d rows, %d price changes in %.2f ms%n",
+                        feed.getName(), loaded.getRowCount(), changes.size(), (System.nanoTime() - start) / 1_000_000.0);
             }
+            scheduleSnapshotWrite();
+        }
+        deliverAlerts();
+        return changes;
+    }
 
-            if (currentPrice < lowestPrice) {
-                lowestPrice = currentPrice;
-                bestStore = store;
-                regularPrice = price.getPrice();
-                isDiscounted = discounted;
-                actualProductName = price.getProductName();
+    // Brings the loaded data up to date with the feed directory: files not loaded yet are
+    // ingested one by one, and if a loaded file changed or disappeared everything is reloaded.
+    public void reloadChangedFeeds() {
+        synchronized (writeLock) {
+            Map<String, Long> loadedTimes = data.getFeedTimes();
+            List<FeedFile> newFeeds = new ArrayList<>();
+            boolean changed = loadedTimes.isEmpty();
+            Set<String> names = new HashSet<>();
+            for (FeedFile feed : getFeedFiles()) {
+                names.add(feed.getName());
+                Long loadedTime = loadedTimes.get(feed.getName());
+                if (loadedTime == null) {
+                    newFeeds.add(feed);
+                } else if (loadedTime != FeedLoader.lastModified(feed)) {
+                    changed = true;
+                }
+            }
+            if (changed || !names.containsAll(loadedTimes.keySet())) {
+                loadFeeds();
+            } else {
+                for (FeedFile feed : newFeeds) {
+                    ingestFeed(feed.getPath());
+                }
             }
         }
+        deliverAlerts();
+    }
 
-        if (bestStore != null) {
-            return new BestDeal(bestStore, regularPrice, lowestPrice, isDiscounted, actualProductName);
+    // Watches the feed directory (see setFeedDirectory) and reloads changed feeds in the
+    // background, see FeedWatcher. Close the watcher to stop.
+    public FeedWatcher watchFeedDirectory() throws IOException {
+        if (feedDirectory == null) {
+            throw new IllegalStateException("No feed directory to watch");
         }
-
-        return null;
+        FeedWatcher watcher = new FeedWatcher(this, feedDirectory);
+        watcher.start();
+        return watcher;
     }
 
-    public Map<String, List<Price>> comparePrices(String productName) {
-        Map<String, List<Price>> results = new HashMap<>();
-        String normalizedName = productName.toLowerCase();
-
-        pricesByStoreAndProduct.forEach((store, products) -> {
-            List<Price> matches = products.values().stream()
-                    .filter(p -> p.getProductName().toLowerCase().contains(normalizedName))
-                    .distinct()
-                    .collect(Collectors.toList());
+    private CatalogSnapshotFile readSnapshot(List<FeedFile> feeds) {
+        if (snapshotFile == null) {
+            return null;
+        }
+        try {
+            return CatalogSnapshotFile.readIfFresh(snapshotFile, feeds);
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Ignoring unreadable snapshot " + snapshotFile + ": " + e.getMessage());
+            return null;
+        }
+    }
 
-            if (!matches.isEmpty()) {
-                results.put(store, matches);
+    // writes the published data; a later call writes data at least as new
+    private void writeSnapshot() {
+        if (snapshotFile == null) {
+            return;
+        }
+        synchronized (snapshotFileLock) {
+            try {
+                CatalogSnapshotFile.write(snapshotFile, data);
+            } catch (IOException e) {
+                System.err.println("Error writing snapshot: " + snapshotFile);
+                e.printStackTrace();
             }
-        });
-
-        return results;
+        }
     }
 
-    public Set<String> getAllCategories() {
-        Set<String> categories = new HashSet<>();
-
-        for (Map<String, Price> storePrices : pricesByStoreAndProduct.values()) {
-            for (Price price : storePrices.values()) {
-                categories.add(price.getProductCategory());
-            }
+    // Rewrites the snapshot file on the ingest executor, so an ingest does not wait for a
+    // write that costs as much as the whole catalog. Ingests made before the write starts
+    // share it. Called holding the write lock.
+    private void scheduleSnapshotWrite() {
+        if (snapshotFile != null && snapshotWritePending.compareAndSet(false, true)) {
+            snapshotWrite = CompletableFuture.runAsync(() -> {
+                snapshotWritePending.set(false);
+                writeSnapshot();
+            }, ingestExecutor);
         }
+    }
 
-        return categories;
+    // waits for the snapshot file write scheduled by the last ingest, if any
+    void awaitSnapshotWrite() {
+        snapshotWrite.join();
     }
 
-    private String extractStoreFromFilename(String filename) {
-        String baseName = filename.substring(filename.lastIndexOf("/") + 1);
-        return baseName.split("_")[0];
+    public ShoppingPlan generateOptimizedShoppingPlan(List<ShoppingItem> shoppingList) {
+        return generateOptimizedShoppingPlan(shoppingList, 0, 0);
     }
 
-    private List<Price> loadPricesFromCsv(String resourcePath) {
-        List<Price> prices = new ArrayList<>();
+    // Cheapest plan once every store visited costs storeVisitCost (RON) on top of the items,
+    // visiting at most maxStores stores (0: no limit). Null when the list cannot be bought in
+    // that few stores; items no store sells are left out, as with a single best-deal lookup.
+    public ShoppingPlan generateOptimizedShoppingPlan(List<ShoppingItem> shoppingList, double storeVisitCost, int maxStores) {
+        long start = System.nanoTime();
+        PriceSnapshot data = this.data;
+        int today = today();
 
+        // every item's best offer in every store, looked up once
+        Map<String, BestDeal[]> offers = new HashMap<>();
+        for (ShoppingItem item : shoppingList) {
+            offers.computeIfAbsent(offerKey(item), key -> data.findOffers(item, today));
+        }
         try {
-            InputStream is = getClass().getClassLoader().getResourceAsStream(resourcePath);
-            if (is == null) {
-                System.err.println("Resource not found: " + resourcePath);
-                return prices;
+            return buildPlan(shoppingList, offers, data.getStores().size(), storeVisitCost, maxStores);
+        } finally {
+            metrics.record(QueryMetrics.Query.SHOPPING_PLAN, start);
+        }
+    }
+
+    public List<ShoppingPlan> generateOptimizedShoppingPlans(Collection<List<ShoppingItem>> shoppingLists) {
+        return generateOptimizedShoppingPlans(shoppingLists, 0, 0);
+    }
+
+    // Plans for many lists at once, in the order given; each plan is the one the single-list
+    // method returns. Every distinct product name is looked up once for the whole batch, then
+    // the lists are planned in parallel on the plan executor.
+    public List<ShoppingPlan> generateOptimizedShoppingPlans(Collection<List<ShoppingItem>> shoppingLists,
+                                                             double storeVisitCost, int maxStores) {
+        long start = System.nanoTime();
+        PriceSnapshot data = this.data;
+        int storeCount = data.getStores().size();
+        int today = today();
+
+        Map<String, ShoppingItem> uniqueItems = new LinkedHashMap<>();
+        for (List<ShoppingItem> shoppingList : shoppingLists) {
+            for (ShoppingItem item : shoppingList) {
+                uniqueItems.putIfAbsent(offerKey(item), item);
             }
+        }
+        List<String> offerKeys = new ArrayList<>(uniqueItems.keySet());
+        List<BestDeal[]> productOffers = mapInParallel(new ArrayList<>(uniqueItems.values()),
+                item -> data.findOffers(item, today));
+        Map<String, BestDeal[]> offers = new HashMap<>(offerKeys.size() * 2);
+        for (int i = 0; i < offerKeys.size(); i++) {
+            offers.put(offerKeys.get(i), productOffers.get(i));
+        }
 
-            try (BufferedReader br = new BufferedReader(new InputStreamReader(is))) {
-                String line = br.readLine(); // Skip header
+        List<ShoppingPlan> plans = mapInParallel(new ArrayList<>(shoppingLists),
+                shoppingList -> buildPlan(shoppingList, offers, storeCount, storeVisitCost, maxStores));
 
+        metrics.record(QueryMetrics.Query.SHOPPING_PLANS, start);
+        if (!quiet) {
+            double seconds = (System.nanoTime() - start) / 1_000_000_000.0;
+            System.out.printf("Planned %d shopping lists (%d distinct products) in %.2f ms: %.0f plans/s%n",
+                    plans.size(), offerKeys.size(), seconds * 1000, plans.size() / seconds);
+        }
+        return plans;
+    }
 
-                while ((line = br.readLine()) != null) {
-                    String[] data = line.split(";");
-                    if (data.length >= 8) {
-                        try {
-                            Price price = getPrice(data);
-                            prices.add(price);
-                        } catch (NumberFormatException e) {
-                            System.err.println("Error parsing numeric value in line: " + line);
-                        }
-                    }
+    // results in input order; the inputs are split into a few chunks per core, since one task
+    // per input costs more than planning a short list
+    private <T, R> List<R> mapInParallel(List<T> inputs, Function<T, R> function) {
+        int chunkSize = Math.max(1, inputs.size() / (4 * Runtime.getRuntime().availableProcessors()));
+        List<CompletableFuture<List<R>>> tasks = new ArrayList<>();
+        for (int from = 0; from < inputs.size(); from += chunkSize) {
+            List<T> chunk = inputs.subList(from, Math.min(from + chunkSize, inputs.size()));
+            tasks.add(CompletableFuture.supplyAsync(() -> {
+                List<R> results = new ArrayList<>(chunk.size());
+                for (T input : chunk) {
+                    results.add(function.apply(input));
                 }
-            }
-        } catch (IOException e) {
-            System.err.println("Error reading price file: " + resourcePath);
-            e.printStackTrace();
+                return results;
+            }, planExecutor));
         }
+        List<R> results = new ArrayList<>(inputs.size());
+        for (CompletableFuture<List<R>> task : tasks) {
+            results.addAll(task.join());
+        }
+        return results;
+    }
 
-        return prices;
+    // items asking for the same product (and amount) share their offers
+    private static String offerKey(ShoppingItem item) {
+        return item.hasAmount() ? item.getProductName() + '\0' + item.getAmount() + item.getAmountUnit() : item.getProductName();
     }
 
-    private static Price getPrice(String[] data) {
-        float rawPrice = Float.parseFloat(data[6]);
-        int priceInCents = (int)(rawPrice * 100);
+    private ShoppingPlan buildPlan(List<ShoppingItem> shoppingList, Map<String, BestDeal[]> offers, int storeCount,
+                                   double storeVisitCost, int maxStores) {
+        long[][] costs = new long[shoppingList.size()][storeCount];
+        for (int i = 0; i < shoppingList.size(); i++) {
+            BestDeal[] deals = offers.get(offerKey(shoppingList.get(i)));
+            for (int s = 0; s < storeCount; s++) {
+                costs[i][s] = deals[s] == null ? ShoppingPlanOptimizer.UNAVAILABLE
+                        : (long) deals[s].getFinalPrice() * shoppingList.get(i).getQuantity();
+            }
+        }
 
-        Price price = new Price(
-                data[0],
-                data[1],
-                data[2],
-                data[3],
-                Float.parseFloat(data[4]),
-                data[5],
-                priceInCents,
-                data[7]
-        );
-        return price;
+        int visitCost = (int) Math.round(storeVisitCost * 100);
+        int[] assignment = new ShoppingPlanOptimizer(costs, storeCount, visitCost, maxStores).solve();
+        if (assignment == null) {
+            return null;
+        }
+
+        ShoppingPlan plan = new ShoppingPlan(visitCost);
+        for (int i = 0; i < shoppingList.size(); i++) {
+            if (assignment[i] < 0) {
+                continue;
+            }
+            BestDeal deal = offers.get(offerKey(shoppingList.get(i)))[assignment[i]];
+            plan.addItem(deal.getStore(), new ShoppingPlanItem(
+                    deal.getProductName(),
+                    shoppingList.get(i).getQuantity(),
+                    deal.getRegularPrice(),
+                    deal.getFinalPrice(),
+                    deal.isDiscounted(),
+                    deal.getPacks()
+            ));
+        }
+
+        return plan;
     }
 
-    private List<Discount> loadDiscountsFromCsv(String resourcePath) {
-        List<Discount> discounts = new ArrayList<>();
+    // Cheapest store for quantity units of the product, prices being the totals for them.
+    // Cached per product name and quantity until the data is reloaded or the current date changes.
+    public BestDeal findBestDealForProduct(String productName, int quantity) {
+        long start = System.nanoTime();
+        try {
+            return bestDealCache.get(productName, quantity, name -> {
+                BestDeal deal = data.findBestDeal(name, today());
+                return deal != null ? deal.times(quantity) : null;
+            });
+        } finally {
+            metrics.record(QueryMetrics.Query.FIND_BEST_DEAL, start);
+        }
+    }
 
+    // Cheapest way to buy at least the amount (e.g. 1.5 kg) of products whose name contains the
+    // term, mixing package sizes within one store: kg/g and l/ml are converted, other units must
+    // match. Null when no store sells it in a compatible unit.
+    public BestDeal findBestDealForAmount(String productName, double amount, String unit) {
+        long start = System.nanoTime();
         try {
-            InputStream is = getClass().getClassLoader().getResourceAsStream(resourcePath);
-            if (is == null) {
-                System.err.println("Resource not found: " + resourcePath);
-                return discounts;
-            }
+            return data.findBestDealForAmount(productName, amount, unit, today());
+        } finally {
+            metrics.record(QueryMetrics.Query.FIND_BEST_DEAL_FOR_AMOUNT, start);
+        }
+    }
 
-            try (BufferedReader br = new BufferedReader(new InputStreamReader(is))) {
-                String line = br.readLine(); // Skip header
-
-                while ((line = br.readLine()) != null) {
-                    String[] data = line.split(";");
-                    if (data.length >= 9) {
-                        try {
-                            Discount discount = new Discount(
-                                    data[0],
-                                    data[1],
-                                    data[2],
-                                    Float.parseFloat(data[3]),
-                                    data[4],
-                                    data[5],
-                                    data[6],
-                                    data[7],
-                                    Float.parseFloat(data[8])
-                            );
-                            discounts.add(discount);
-                        } catch (NumberFormatException e) {
-                            System.err.println("Error parsing numeric value in line: " + line);
-                        }
-                    }
-                }
-            }
-        } catch (IOException e) {
-            System.err.println("Error reading discount file: " + resourcePath);
-            e.printStackTrace();
+    public Map<String, List<Price>> comparePrices(String productName) {
+        long start = System.nanoTime();
+        try {
+            return data.comparePrices(productName);
+        } finally {
+            metrics.record(QueryMetrics.Query.COMPARE_PRICES, start);
         }
+    }
 
-        return discounts;
+    public Set<String> getAllCategories() {
+        return data.getAllCategories();
     }
-}
\ No newline at end of file
+
+}
@@ -0,0 +1,59 @@
+package org.example;
+
+import java.time.LocalDate;
+
+// A product whose list price is the lowest it has been over a whole window of days (see
+// PriceSnapshot.findLowestInDays), with how far it is below the window's highest price
+class PriceLow {
+    private final String store;
+    private final String productId;
+    private final String productName;
+    private final int cents;
+    private final int highCents;
+    private final int lowSinceDay;
+
+    public PriceLow(String store, String productId, String productName, int cents, int highCents, int lowSinceDay) {
+        this.store = store;
+        this.productId = productId;
+        this.productName = productName;
+        this.cents = cents;
+        this.highCents = highCents;
+        this.lowSinceDay = lowSinceDay;
+    }
+
+    public String getStore() {
+        return store;
+    }
+
+    public String getProductId() {
+        return productId;
+    }
+
+    public String getProductName() {
+        return productName;
+    }
+
+    public int getCents() {
+        return cents;
+    }
+
+    // highest list price in the window
+    public int getHighCents() {
+        return highCents;
+    }
+
+    public double getDropPercent() {
+        return 100.0 * (highCents - cents) / highCents;
+    }
+
+    // the day since which no price was lower
+    public LocalDate getLowSince() {
+        return LocalDate.ofEpochDay(lowSinceDay);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s - %s: %.2f RON, %.1f%% below its high of %.2f, lowest since %s",
+                store, productName, cents / 100.0, getDropPercent(), highCents / 100.0, getLowSince());
+    }
+}
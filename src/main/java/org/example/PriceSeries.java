@@ -0,0 +1,421 @@
+package org.example;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+// The dated list prices of one product in one store, oldest first, compressed into a byte
+// array. Each point is two varints: the change in the gap between days (delta of delta, as in
+// Gorilla, so daily files cost one byte) and the change in price in cents (zigzag, one byte
+// when the price did not move). Years of daily prices take a few bytes a day.
+//
+// A checkpoint every CHECKPOINT_INTERVAL points records the decoder state, so a range scan or
+// a price lookup decodes at most that many points before reaching its start day.
+//
+// Points are appended in day order in the normal case; an older or same-day point (a late or
+// replaced file) re-encodes the series into new arrays. The series of a catalog are its price
+// history (see ColumnarCatalog) and are frozen for everyone else: the catalog records into
+// copies it owns. The first copy of a series shares its arrays and appends past its end,
+// which the series never reads, so adding a day to a long history does not copy it; any
+// other copy copies them.
+class PriceSeries {
+    private static final int CHECKPOINT_INTERVAL = 64;
+    private static final int[] NO_CHECKPOINTS = new int[0];
+    static final PriceSeries EMPTY = new PriceSeries();
+
+    static {
+        EMPTY.freeze();
+    }
+
+    private byte[] data;
+    private int length; // bytes used
+    private int count;
+    // decoder state after the last point
+    private int lastDay;
+    private int lastCents;
+    private int lastGap;
+    // decoder state before every CHECKPOINT_INTERVAL-th point: byte offset, day, cents, gap
+    private int[] checkpoints = NO_CHECKPOINTS;
+    private boolean frozen;
+    private boolean extended; // a copy shares data and checkpoints and may write past length
+
+    interface PointConsumer {
+        void accept(int epochDay, int cents);
+    }
+
+    public PriceSeries() {
+        data = new byte[8];
+    }
+
+    // the series of count points encoded as getEncoded returns them
+    static PriceSeries decode(byte[] encoded, int count) {
+        PriceSeries series = new PriceSeries();
+        series.data = new byte[Math.max(8, encoded.length)];
+        int offset = 0;
+        int day = 0;
+        int cents = 0;
+        int gap = 0;
+        for (int i = 0; i < count; i++) {
+            long read = readVarint(encoded, offset);
+            gap += unzigzag((int) read);
+            read = readVarint(encoded, (int) (read >>> 32));
+            cents += unzigzag((int) read);
+            offset = (int) (read >>> 32);
+            day += gap;
+            series.append(day, cents); // writes the same bytes and rebuilds the checkpoints
+        }
+        return series;
+    }
+
+    private PriceSeries(PriceSeries base) {
+        if (base.claimTail()) {
+            data = base.data;
+            checkpoints = base.checkpoints;
+        } else {
+            data = Arrays.copyOf(base.data, Math.max(8, base.length));
+            checkpoints = base.checkpoints.length == 0 ? NO_CHECKPOINTS : base.checkpoints.clone();
+        }
+        length = base.length;
+        count = base.count;
+        lastDay = base.lastDay;
+        lastCents = base.lastCents;
+        lastGap = base.lastGap;
+    }
+
+    // true for the first copy only, which can then append into this series' arrays
+    private synchronized boolean claimTail() {
+        if (extended) {
+            return false;
+        }
+        extended = true;
+        return true;
+    }
+
+    // before writing: a copy that shares the arrays appends into them, so take our own
+    private synchronized void unshare() {
+        if (extended) {
+            data = Arrays.copyOf(data, data.length);
+            checkpoints = checkpoints.length == 0 ? NO_CHECKPOINTS : checkpoints.clone();
+            extended = false;
+        }
+    }
+
+    // a copy that can be put into, also of a frozen series
+    public PriceSeries copy() {
+        return new PriceSeries(this);
+    }
+
+    // no more puts; the store calls this before handing the series out
+    void freeze() {
+        frozen = true;
+    }
+
+    // the product's price from the day on; replaces a price already recorded for the day
+    public void put(int epochDay, int cents) {
+        if (frozen) {
+            throw new IllegalStateException("Series is shared; put into a copy instead");
+        }
+        record(epochDay, cents);
+    }
+
+    // put, also into a frozen series: for the catalog, into the copies it owns
+    void record(int epochDay, int cents) {
+        unshare();
+        if (count == 0 || epochDay > lastDay) {
+            append(epochDay, cents);
+            return;
+        }
+        int[] days = new int[count + 1];
+        int[] prices = new int[count + 1];
+        int[] n = {0};
+        scan(Integer.MIN_VALUE, Integer.MAX_VALUE, (day, price) -> {
+            days[n[0]] = day;
+            prices[n[0]] = price;
+            n[0]++;
+        });
+        int pos = Arrays.binarySearch(days, 0, count, epochDay);
+        int size = count;
+        if (pos >= 0) {
+            prices[pos] = cents;
+        } else {
+            pos = -pos - 1;
+            System.arraycopy(days, pos, days, pos + 1, count - pos);
+            System.arraycopy(prices, pos, prices, pos + 1, count - pos);
+            days[pos] = epochDay;
+            prices[pos] = cents;
+            size++;
+        }
+        data = new byte[Math.max(8, length + 10)]; // the old bytes may be shared with a copy
+        clear();
+        for (int i = 0; i < size; i++) {
+            append(days[i], prices[i]);
+        }
+    }
+
+    private void append(int epochDay, int cents) {
+        if (count % CHECKPOINT_INTERVAL == 0 && count > 0) {
+            int at = count / CHECKPOINT_INTERVAL * 4;
+            if (at + 4 > checkpoints.length) {
+                checkpoints = Arrays.copyOf(checkpoints, Math.max(8, checkpoints.length * 2));
+            }
+            checkpoints[at] = length;
+            checkpoints[at + 1] = lastDay;
+            checkpoints[at + 2] = lastCents;
+            checkpoints[at + 3] = lastGap;
+        }
+        int gap = epochDay - lastDay;
+        ensureCapacity(length + 10);
+        length = writeVarint(data, length, zigzag(gap - lastGap));
+        length = writeVarint(data, length, zigzag(cents - lastCents));
+        lastDay = epochDay;
+        lastCents = cents;
+        lastGap = gap;
+        count++;
+    }
+
+    private void clear() {
+        length = 0;
+        count = 0;
+        lastDay = 0;
+        lastCents = 0;
+        lastGap = 0;
+        checkpoints = NO_CHECKPOINTS;
+    }
+
+    // Calls the consumer for every point dated from fromDay to toDay (both included), oldest
+    // first, decoding from the last checkpoint before fromDay.
+    public void scan(int fromDay, int toDay, PointConsumer consumer) {
+        scan(checkpointBefore(fromDay), fromDay, toDay, consumer);
+    }
+
+    private void scan(int checkpoint, int fromDay, int toDay, PointConsumer consumer) {
+        int index = checkpoint * CHECKPOINT_INTERVAL;
+        int offset = 0;
+        int day = 0;
+        int cents = 0;
+        int gap = 0;
+        if (checkpoint > 0) {
+            offset = checkpoints[checkpoint * 4];
+            day = checkpoints[checkpoint * 4 + 1];
+            cents = checkpoints[checkpoint * 4 + 2];
+            gap = checkpoints[checkpoint * 4 + 3];
+        }
+        for (; index < count; index++) {
+            long read = readVarint(data, offset);
+            gap += unzigzag((int) read);
+            offset = (int) (read >>> 32);
+            read = readVarint(data, offset);
+            cents += unzigzag((int) read);
+            offset = (int) (read >>> 32);
+            day += gap;
+            if (day > toDay) {
+                return;
+            }
+            if (day >= fromDay) {
+                consumer.accept(day, cents);
+            }
+        }
+    }
+
+    // price listed on the day (from the latest point dated on or before it), or -1
+    public int priceAsOf(int epochDay) {
+        if (count == 0 || epochDay < getFirstDay()) {
+            return -1;
+        }
+        if (epochDay >= lastDay) {
+            return lastCents;
+        }
+        int checkpoint = checkpointBefore(epochDay);
+        int[] price = {checkpoint > 0 ? checkpoints[checkpoint * 4 + 2] : -1};
+        scan(checkpoint, Integer.MIN_VALUE, epochDay, (day, cents) -> price[0] = cents);
+        return price[0];
+    }
+
+    // day of the first point after the day, or Integer.MAX_VALUE if there is none
+    public int nextDay(int epochDay) {
+        if (count == 0 || epochDay >= lastDay) {
+            return Integer.MAX_VALUE;
+        }
+        int[] next = {Integer.MAX_VALUE};
+        scan(checkpointBefore(epochDay + 1), epochDay + 1, Integer.MAX_VALUE, (day, cents) -> {
+            if (next[0] == Integer.MAX_VALUE) {
+                next[0] = day;
+            }
+        });
+        return next[0];
+    }
+
+    // The days from fromDay to toDay in buckets of bucketDays, each with the lowest, highest,
+    // last and day-weighted mean price listed over its days: a price holds from its day until
+    // the next one. Days before the first point have no price; empty buckets are left out.
+    public List<PriceBucket> downsample(int fromDay, int toDay, int bucketDays) {
+        if (bucketDays <= 0) {
+            throw new IllegalArgumentException("Bucket size must be positive: " + bucketDays);
+        }
+        List<PriceBucket> buckets = new ArrayList<>();
+        if (count == 0 || toDay < fromDay) {
+            return buckets;
+        }
+        BucketBuilder builder = new BucketBuilder(fromDay, toDay, bucketDays, buckets);
+        int startPrice = priceAsOf(fromDay);
+        if (startPrice >= 0) {
+            builder.accept(fromDay, startPrice);
+        }
+        scan(fromDay + 1, toDay, builder);
+        builder.finish();
+        return buckets;
+    }
+
+    // fills buckets with the price steps it is given, in day order
+    private static class BucketBuilder implements PointConsumer {
+        final int toDay;
+        final int bucketDays;
+        final List<PriceBucket> buckets;
+        boolean priced; // false before the first price
+        int day; // of the current price
+        int cents;
+        int bucketStart;
+        int min;
+        int max;
+        int last;
+        long weightedSum;
+        int days;
+
+        BucketBuilder(int fromDay, int toDay, int bucketDays, List<PriceBucket> buckets) {
+            this.toDay = toDay;
+            this.bucketDays = bucketDays;
+            this.buckets = buckets;
+            bucketStart = fromDay;
+        }
+
+        @Override
+        public void accept(int epochDay, int newCents) {
+            if (priced) {
+                hold(epochDay);
+            }
+            priced = true;
+            day = epochDay;
+            cents = newCents;
+        }
+
+        // the current price holds until the day before untilDay
+        private void hold(int untilDay) {
+            while (day < untilDay) {
+                while (day >= bucketStart + bucketDays) {
+                    emit();
+                }
+                int end = Math.min(untilDay, bucketStart + bucketDays);
+                if (days == 0) {
+                    min = cents;
+                    max = cents;
+                }
+                min = Math.min(min, cents);
+                max = Math.max(max, cents);
+                last = cents;
+                weightedSum += (long) cents * (end - day);
+                days += end - day;
+                day = end;
+            }
+        }
+
+        private void emit() {
+            if (days > 0) {
+                buckets.add(new PriceBucket(bucketStart, Math.min(bucketStart + bucketDays, toDay + 1),
+                        min, max, last, weightedSum / (double) days));
+            }
+            bucketStart += bucketDays;
+            days = 0;
+            weightedSum = 0;
+        }
+
+        void finish() {
+            if (priced) {
+                hold(toDay + 1);
+            }
+            emit();
+        }
+    }
+
+    private int checkpointBefore(int epochDay) {
+        int lo = 1;
+        int hi = (count - 1) / CHECKPOINT_INTERVAL;
+        int found = 0;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            // checkpoint mid holds the state after the point before it, dated before epochDay
+            if (checkpoints[mid * 4 + 1] < epochDay) {
+                found = mid;
+                lo = mid + 1;
+            } else {
+                hi = mid - 1;
+            }
+        }
+        return found;
+    }
+
+    public int size() {
+        return count;
+    }
+
+    public int getFirstDay() {
+        if (count == 0) {
+            throw new IllegalStateException("Empty price series");
+        }
+        long read = readVarint(data, 0);
+        return unzigzag((int) read);
+    }
+
+    public int getLastDay() {
+        return lastDay;
+    }
+
+    public int getLastCents() {
+        return lastCents;
+    }
+
+    // bytes the encoded points take
+    public int getEncodedSize() {
+        return length;
+    }
+
+    // the encoded points, for storing them (see decode)
+    public byte[] getEncoded() {
+        return Arrays.copyOf(data, length);
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity > data.length) {
+            data = Arrays.copyOf(data, Math.max(capacity, data.length * 2));
+        }
+    }
+
+    private static int zigzag(int value) {
+        return (value << 1) ^ (value >> 31);
+    }
+
+    private static int unzigzag(int value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    private static int writeVarint(byte[] out, int offset, int value) {
+        while ((value & ~0x7F) != 0) {
+            out[offset++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out[offset++] = (byte) value;
+        return offset;
+    }
+
+    // the value in the low 32 bits, the offset after it in the high 32
+    private static long readVarint(byte[] in, int offset) {
+        int value = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = in[offset++];
+            value |= (b & 0x7F) << shift;
+            shift += 7;
+        } while (b < 0);
+        return ((long) offset << 32) | (value & 0xFFFFFFFFL);
+    }
+}
@@ -0,0 +1,68 @@
+package org.example;
+
+// The price series (see PriceSeries) and running trend (see PriceTrend) of every product of a
+// catalog, indexed by the catalog's product numbers. The series are the catalog's own; the
+// store adds the trends next to them. Like the catalog it is never changed once published:
+// withPrices returns a copy that shares every trend except the ones it adds a day to, and the
+// chunks holding them (see ChunkedArray). The series are frozen, so callers of get can read
+// them but not put into them.
+class PriceSeriesStore {
+    private final ColumnarCatalog catalog;
+    private final ChunkedArray<PriceTrend> trends;
+
+    // the trend of every product of the catalog
+    public PriceSeriesStore(ColumnarCatalog catalog) {
+        this.catalog = catalog;
+        trends = new ChunkedArray<>();
+        for (int product = 0; product < catalog.getProductCount(); product++) {
+            trends.set(product, PriceTrend.of(catalog.getSeries(product)));
+        }
+    }
+
+    private PriceSeriesStore(ColumnarCatalog catalog, ChunkedArray<PriceTrend> trends) {
+        this.catalog = catalog;
+        this.trends = trends;
+    }
+
+    // this store over a catalog the day's price of the given products was just added to (a
+    // fork of the one this store was built from)
+    public PriceSeriesStore withPrices(ColumnarCatalog catalog, int[] products, int epochDay) {
+        ChunkedArray<PriceTrend> updatedTrends = trends.copy();
+        for (int product : products) {
+            PriceSeries productSeries = catalog.getSeries(product);
+            PriceTrend trend = trends.get(product);
+            if (trend != null && trend.getLastDay() < epochDay && productSeries.getLastDay() == epochDay
+                    && trend.size() + 1 == productSeries.size()) {
+                trend = trend.copy();
+                trend.add(epochDay, productSeries.getLastCents());
+            } else {
+                trend = PriceTrend.of(productSeries); // a new product, or a late or replaced day
+            }
+            updatedTrends.set(product, trend);
+        }
+        return new PriceSeriesStore(catalog, updatedTrends);
+    }
+
+    // series of a catalog product; empty for one the catalog does not know
+    public PriceSeries get(int product) {
+        return product < catalog.getProductCount() ? catalog.getSeries(product) : PriceSeries.EMPTY;
+    }
+
+    // trend of a catalog product, or null for one this store does not know
+    public PriceTrend getTrend(int product) {
+        return trends.get(product);
+    }
+
+    public int size() {
+        return catalog.getProductCount();
+    }
+
+    // bytes the encoded points of every series take
+    public long getEncodedSize() {
+        long encoded = 0;
+        for (int product = 0; product < size(); product++) {
+            encoded += catalog.getSeries(product).getEncodedSize();
+        }
+        return encoded;
+    }
+}
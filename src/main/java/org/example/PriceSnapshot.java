@@ -0,0 +1,677 @@
+package org.example;
+
+import java.time.LocalDate;
+import java.util.*;
+
+// Everything loaded from the feed files at one point in time: the price catalog, the discounts
+// and the indexes over them. A snapshot is not changed once built; a load or an ingested file
+// builds a new one, which the comparator publishes with a single volatile write. A query that
+// started on the old snapshot keeps seeing all of it and none of the new one.
+final class PriceSnapshot {
+    private final ColumnarCatalog catalog;
+    private final Map<String, AppendList<Discount>> discountsByStore;
+    private final Map<String, List<Discount>> discountsByFeed; // discount feed name -> its discounts
+    private final DiscountIndex discountIndex;
+    private final DiscountTimeline discountTimeline;
+    private final ProductSearchIndex searchIndex;
+    private final PriceSeriesStore priceSeries;
+    private final Map<String, Long> feedTimes; // feed name -> modification time when it was read
+    private final QueryMetrics metrics; // counts the rows and discounts queries look at; shared by derived snapshots
+
+    private PriceSnapshot(ColumnarCatalog catalog, Map<String, AppendList<Discount>> discountsByStore,
+                          Map<String, List<Discount>> discountsByFeed, DiscountIndex discountIndex, DiscountTimeline discountTimeline,
+                          ProductSearchIndex searchIndex, PriceSeriesStore priceSeries, Map<String, Long> feedTimes,
+                          QueryMetrics metrics) {
+        this.catalog = catalog;
+        this.discountsByStore = discountsByStore;
+        this.discountsByFeed = discountsByFeed;
+        this.discountIndex = discountIndex;
+        this.discountTimeline = discountTimeline;
+        this.searchIndex = searchIndex;
+        this.priceSeries = priceSeries;
+        this.feedTimes = feedTimes;
+        this.metrics = metrics;
+    }
+
+    public static PriceSnapshot empty(QueryMetrics metrics) {
+        ColumnarCatalog catalog = new ColumnarCatalog();
+        return new PriceSnapshot(catalog, Collections.emptyMap(), Collections.emptyMap(), new DiscountIndex(),
+                new DiscountTimeline(Collections.emptyMap()), new ProductSearchIndex(catalog), new PriceSeriesStore(catalog),
+                Collections.emptyMap(), metrics);
+    }
+
+    // the feeds in load order; prebuiltPostings may be null (see ProductSearchIndex)
+    public static PriceSnapshot build(List<LoadedFeed> loadedFeeds, Map<String, int[]> prebuiltPostings,
+                                      Map<String, Long> feedTimes, QueryMetrics metrics) {
+        ColumnarCatalog catalog = new ColumnarCatalog();
+        List<LoadedFeed> discountFeeds = new ArrayList<>();
+        for (LoadedFeed loaded : loadedFeeds) {
+            if (loaded.getFeed().getType() != FeedFile.Type.PRICES) {
+                discountFeeds.add(loaded);
+                continue;
+            }
+            String store = loaded.getFeed().getStore();
+            int fileDay = loaded.getFeed().getEpochDay();
+
+            for (Price price : loaded.getPrices()) {
+                catalog.add(store, fileDay, price);
+            }
+        }
+        return build(catalog, discountFeeds, prebuiltPostings, feedTimes, metrics);
+    }
+
+    // a catalog already holding every price feed, e.g. read from a snapshot file, and the
+    // discount feeds in load order
+    public static PriceSnapshot build(ColumnarCatalog catalog, List<LoadedFeed> discountFeeds,
+                                      Map<String, int[]> prebuiltPostings, Map<String, Long> feedTimes,
+                                      QueryMetrics metrics) {
+        // every discount file is kept, not just the last one per store
+        Map<String, AppendList<Discount>> discountsByStore = new LinkedHashMap<>();
+        Map<String, List<Discount>> discountsByFeed = new HashMap<>();
+        for (LoadedFeed loaded : discountFeeds) {
+            String store = loaded.getFeed().getStore();
+            discountsByStore.put(store, discountsByStore.getOrDefault(store, AppendList.empty()).plus(loaded.getDiscounts()));
+            discountsByFeed.put(loaded.getFeed().getName(), loaded.getDiscounts());
+        }
+
+        DiscountIndex discountIndex = new DiscountIndex();
+        discountsByStore.forEach(discountIndex::addAll);
+        return new PriceSnapshot(catalog, Collections.unmodifiableMap(discountsByStore),
+                Collections.unmodifiableMap(discountsByFeed), discountIndex,
+                new DiscountTimeline(discountsByStore), new ProductSearchIndex(catalog, prebuiltPostings),
+                new PriceSeriesStore(catalog), Collections.unmodifiableMap(new LinkedHashMap<>(feedTimes)), metrics);
+    }
+
+    // This snapshot plus one more feed file, read at the given modification time. Only the
+    // file's own rows are added: the catalog is forked and the search index takes in just the
+    // products the file lists, so this snapshot stays valid for whoever still reads it.
+    // A file that is already loaded replaces its earlier version instead (see replaceFeed).
+    public PriceSnapshot withFeed(LoadedFeed loaded, long modified) {
+        FeedFile feed = loaded.getFeed();
+        String store = feed.getStore();
+        Map<String, Long> times = new LinkedHashMap<>(feedTimes);
+        times.put(feed.getName(), modified);
+
+        if (feedTimes.containsKey(feed.getName())) {
+            return replaceFeed(loaded, times);
+        }
+        if (feed.getType() == FeedFile.Type.PRICES) {
+            ColumnarCatalog forked = catalog.fork();
+            for (Price price : loaded.getPrices()) {
+                forked.add(store, feed.getEpochDay(), price);
+            }
+            int[] docs = loaded.getPrices().stream()
+                    .mapToInt(price -> forked.findProduct(store, price.getProductId()))
+                    .distinct()
+                    .toArray();
+            return new PriceSnapshot(forked, discountsByStore, discountsByFeed, discountIndex, discountTimeline,
+                    searchIndex.withUpdates(forked, docs), priceSeries.withPrices(forked, docs, feed.getEpochDay()),
+                    Collections.unmodifiableMap(times), metrics);
+        }
+
+        // the discounts loaded before are shared, not copied (see AppendList and DiscountTimeline)
+        Map<String, AppendList<Discount>> discounts = new LinkedHashMap<>(discountsByStore);
+        discounts.put(store, discounts.getOrDefault(store, AppendList.empty()).plus(loaded.getDiscounts()));
+        Map<String, List<Discount>> byFeed = new HashMap<>(discountsByFeed);
+        byFeed.put(feed.getName(), loaded.getDiscounts());
+        return new PriceSnapshot(catalog, Collections.unmodifiableMap(discounts), Collections.unmodifiableMap(byFeed),
+                discountIndex.withDiscounts(store, loaded.getDiscounts()), discountTimeline.withDiscounts(store, loaded.getDiscounts()),
+                searchIndex, priceSeries, Collections.unmodifiableMap(times), metrics);
+    }
+
+    // A new version of a loaded file: its earlier rows or discounts are dropped and the new
+    // ones take their place, as a full reload would have read them. Rows and discounts the
+    // new version no longer lists are gone. The catalog or the discount indexes are rebuilt,
+    // so this costs as much as building them from the loaded data.
+    private PriceSnapshot replaceFeed(LoadedFeed loaded, Map<String, Long> times) {
+        FeedFile feed = loaded.getFeed();
+        String store = feed.getStore();
+        if (feed.getType() == FeedFile.Type.PRICES) {
+            ColumnarCatalog replaced = catalog.replacing(store, feed.getEpochDay(), loaded.getPrices());
+            return new PriceSnapshot(replaced, discountsByStore, discountsByFeed, discountIndex, discountTimeline,
+                    new ProductSearchIndex(replaced), new PriceSeriesStore(replaced),
+                    Collections.unmodifiableMap(times), metrics);
+        }
+
+        // the new discounts go where the old ones were, so load order stays the same
+        Set<Discount> previous = Collections.newSetFromMap(new IdentityHashMap<>());
+        previous.addAll(discountsByFeed.getOrDefault(feed.getName(), Collections.emptyList()));
+        List<Discount> storeDiscounts = new ArrayList<>();
+        boolean added = false;
+        for (Discount discount : discountsByStore.getOrDefault(store, AppendList.empty())) {
+            if (!previous.contains(discount)) {
+                storeDiscounts.add(discount);
+            } else if (!added) {
+                storeDiscounts.addAll(loaded.getDiscounts());
+                added = true;
+            }
+        }
+        if (!added) {
+            storeDiscounts.addAll(loaded.getDiscounts());
+        }
+        Map<String, AppendList<Discount>> discounts = new LinkedHashMap<>(discountsByStore);
+        discounts.put(store, AppendList.of(storeDiscounts));
+        Map<String, List<Discount>> byFeed = new HashMap<>(discountsByFeed);
+        byFeed.put(feed.getName(), loaded.getDiscounts());
+
+        DiscountIndex replacedIndex = new DiscountIndex();
+        discounts.forEach(replacedIndex::addAll);
+        return new PriceSnapshot(catalog, Collections.unmodifiableMap(discounts), Collections.unmodifiableMap(byFeed),
+                replacedIndex, new DiscountTimeline(discounts), searchIndex, priceSeries,
+                Collections.unmodifiableMap(times), metrics);
+    }
+
+    // product ids the loaded version of the feed lists; empty if it is not loaded
+    public Set<String> getProductIds(FeedFile feed) {
+        Set<String> ids = new LinkedHashSet<>();
+        if (feed.getType() == FeedFile.Type.DISCOUNTS) {
+            for (Discount discount : discountsByFeed.getOrDefault(feed.getName(), Collections.emptyList())) {
+                ids.add(discount.getProductId());
+            }
+            return ids;
+        }
+        if (feedTimes.containsKey(feed.getName())) {
+            for (int product = 0; product < catalog.getProductCount(); product++) {
+                if (catalog.getStore(product).equals(feed.getStore()) && catalog.isListedOn(product, feed.getEpochDay())) {
+                    ids.add(catalog.getProductId(product));
+                }
+            }
+        }
+        return ids;
+    }
+
+    // the same data with the search index built from scratch (see ProductSearchIndex.needsRebuild)
+    public PriceSnapshot withRebuiltIndex() {
+        return new PriceSnapshot(catalog, discountsByStore, discountsByFeed, discountIndex, discountTimeline,
+                new ProductSearchIndex(catalog), priceSeries, feedTimes, metrics);
+    }
+
+    // Queries. Each takes the day it is asked for (as an epoch day) instead of reading a
+    // current date, so any number of threads can query the same snapshot for any day.
+
+    // stores in the order they were first loaded
+    public List<String> getStores() {
+        return catalog.getStores();
+    }
+
+    // latest listed price of every product whose name contains the term, by store
+    public Map<String, List<Price>> comparePrices(String productName) {
+        Map<String, List<Price>> results = new HashMap<>();
+        String normalizedName = TextNormalizer.normalize(productName);
+
+        int[] docs = searchIndex.search(normalizedName, ProductSearchIndex.NAME);
+        for (int doc : docs) {
+            results.computeIfAbsent(searchIndex.getStore(doc), k -> new ArrayList<>())
+                    .add(searchIndex.getPrice(doc));
+        }
+
+        metrics.countWork(docs.length, 0);
+        return results;
+    }
+
+    // dated list prices of the product in the store, compressed and read-only; empty if it is
+    // not listed
+    public PriceSeries getPriceSeries(String store, String productId) {
+        int product = catalog.findProduct(store, productId);
+        return product < 0 ? PriceSeries.EMPTY : priceSeries.get(product);
+    }
+
+    // The product's list price over the windowDays days up to the day: current price, lowest,
+    // highest and moving average over the window, all-time extremes and the change since the
+    // day before the window. Null if it was not listed on the day.
+    public PriceStats getPriceStats(String store, String productId, int windowDays, int epochDay) {
+        if (windowDays <= 0) {
+            throw new IllegalArgumentException("Window must be at least one day: " + windowDays);
+        }
+        int product = catalog.findProduct(store, productId);
+        if (product < 0) {
+            return null;
+        }
+        PriceSeries series = priceSeries.get(product);
+        int current = series.priceAsOf(epochDay);
+        if (current < 0) {
+            return null;
+        }
+        PriceBucket window = series.downsample(epochDay - windowDays + 1, epochDay, windowDays).get(0);
+        PriceTrend trend = priceSeries.getTrend(product);
+        int before = series.priceAsOf(epochDay - windowDays);
+        double change = before > 0 ? 100.0 * (current - before) / before : Double.NaN;
+        return new PriceStats(store, productId, windowDays, current, window.getMinCents(), window.getMaxCents(),
+                window.getMeanCents(), trend.getAllTimeLow(), trend.getAllTimeHigh(), change);
+    }
+
+    // The discount against the lowest list price of the lookbackDays days before it started;
+    // null if the product had no list price on its first day.
+    public DiscountCheck checkDiscount(String store, Discount discount, int lookbackDays) {
+        int product = catalog.findProduct(store, discount.getProductId());
+        if (product < 0) {
+            return null;
+        }
+        PriceSeries series = priceSeries.get(product);
+        int start = discount.getFromEpochDay();
+        int regular = series.priceAsOf(start);
+        if (regular < 0) {
+            return null;
+        }
+        List<PriceBucket> before = series.downsample(start - lookbackDays, start - 1, lookbackDays);
+        int lowestBefore = before.isEmpty() ? -1 : before.get(0).getMinCents();
+        return new DiscountCheck(store, discount, regular, lowestBefore, DiscountIndex.applyDiscount(regular, discount));
+    }
+
+    // checkDiscount for every discount running on the day, in timeline order
+    public List<DiscountCheck> checkDiscounts(int epochDay, int lookbackDays) {
+        List<DiscountCheck> checks = new ArrayList<>();
+        discountTimeline.forEachValidOn(epochDay, (store, discount) -> {
+            DiscountCheck check = checkDiscount(store, discount, lookbackDays);
+            if (check != null) {
+                checks.add(check);
+            }
+        });
+        metrics.countWork(checks.size(), checks.size());
+        return checks;
+    }
+
+    // Products whose list price on the day is the lowest of the windowDays days up to it and
+    // below the highest of them, biggest drop first, at most limit of them. Products listed
+    // for less than the whole window are left out. One pass over the catalog: each product's
+    // running PriceTrend answers in O(log) without reading its history, unless the day is
+    // before the product's latest price.
+    public List<PriceLow> findLowestInDays(int windowDays, int epochDay, int limit) {
+        if (limit <= 0) {
+            return Collections.emptyList();
+        }
+        Comparator<PriceLow> biggestDropFirst = Comparator.comparingDouble(PriceLow::getDropPercent).reversed()
+                .thenComparing(PriceLow::getStore)
+                .thenComparing(PriceLow::getProductId);
+        // limit is a cap, not a size: sizing the heap by it would allocate for Integer.MAX_VALUE
+        PriorityQueue<PriceLow> best = new PriorityQueue<>(Math.min(limit, 16), biggestDropFirst.reversed());
+        int windowStart = epochDay - windowDays + 1;
+        for (int product = 0; product < catalog.getProductCount(); product++) {
+            PriceTrend trend = priceSeries.getTrend(product);
+            if (trend == null || trend.size() == 0 || trend.getFirstDay() > windowStart) {
+                continue;
+            }
+            if (trend.getLastDay() > epochDay) {
+                trend = PriceTrend.of(priceSeries.get(product), epochDay);
+            }
+            int high = trend.highestSince(windowStart);
+            if (trend.getLowSince() > windowStart || trend.getLatest() >= high) {
+                continue;
+            }
+            PriceLow low = new PriceLow(catalog.getStore(product), catalog.getProductId(product),
+                    catalog.getName(catalog.getDescriptionAsOf(product, epochDay)), trend.getLatest(), high, trend.getLowSince());
+            best.add(low);
+            if (best.size() > limit) {
+                best.poll();
+            }
+        }
+        metrics.countWork(catalog.getProductCount(), 0);
+        List<PriceLow> result = new ArrayList<>(best);
+        result.sort(biggestDropFirst);
+        return result;
+    }
+
+    public Set<String> getAllCategories() {
+        Set<String> categories = new HashSet<>();
+
+        for (int doc = 0; doc < searchIndex.size(); doc++) {
+            categories.add(catalog.getCategory(catalog.getLatestDescription(doc)));
+        }
+
+        return categories;
+    }
+
+    // price of a product in a store on the given day, with the discount active on that day applied
+    public EffectivePrice getEffectivePrice(String store, Price price, int epochDay) {
+        return discountIndex.getEffectivePrice(store, price, epochDay);
+    }
+
+    // price listed on the day (see getPriceAsOf) with the day's discount, in cents; -1 if the
+    // product was not listed by then
+    public int getLatestPrice(String store, String productId, int epochDay) {
+        int product = catalog.findProduct(store, productId);
+        int cents = product < 0 ? -1 : catalog.getCentsAsOf(product, epochDay);
+        if (cents < 0) {
+            return -1;
+        }
+        Discount discount = discountIndex.findActiveDiscount(store, productId, epochDay);
+        return DiscountIndex.applyDiscount(cents, discount);
+    }
+
+    // the price a store listed for a product in its latest file dated on or before the day
+    public Price getPriceAsOf(String store, String productId, int epochDay) {
+        int product = catalog.findProduct(store, productId);
+        return product < 0 ? null : catalog.toPrice(product, epochDay);
+    }
+
+    // discounts (from every loaded discount file) running on the day
+    public List<Discount> getActiveDiscounts(int epochDay) {
+        return discountTimeline.validOn(epochDay);
+    }
+
+    // discounts that started on the day or the day before, in start order
+    public List<Discount> getRecentDiscounts(int epochDay) {
+        return discountTimeline.startedBetween(epochDay - 1, epochDay);
+    }
+
+    // The k biggest discounts running on the day among those the filter accepts, best first
+    // (see RankedDiscount.BEST_FIRST). Only the running discounts are visited, keeping the k
+    // best so far in a heap whose root is the worst of them: n discounts cost O(n log k).
+    public List<RankedDiscount> topDiscounts(int k, int epochDay, DiscountFilter filter) {
+        if (k <= 0) {
+            return Collections.emptyList();
+        }
+        PriorityQueue<RankedDiscount> best = new PriorityQueue<>(Math.min(k, 16), RankedDiscount.BEST_FIRST.reversed());
+        int[] position = {0};
+        discountTimeline.forEachValidOn(epochDay, (store, discount) -> {
+            int current = position[0]++;
+            if (!filter.accepts(store, discount)) {
+                return;
+            }
+            if (best.size() == k) {
+                // visited in timeline order, so a tie with the worst kept one ranks below it
+                if (discount.getDiscountPercentage() <= best.peek().getDiscount().getDiscountPercentage()) {
+                    return;
+                }
+                best.poll();
+            }
+            best.add(new RankedDiscount(store, discount, current));
+        });
+        metrics.countWork(0, position[0]);
+        List<RankedDiscount> result = new ArrayList<>(best);
+        result.sort(RankedDiscount.BEST_FIRST);
+        return result;
+    }
+
+    public List<ValuePerUnitItem> analyzeValuePerUnit(String productName, int epochDay) {
+        List<ValuePerUnitItem> items = new ArrayList<>();
+        String search = TextNormalizer.normalize(productName);
+
+        int[] docs = searchIndex.search(search, ProductSearchIndex.ALL_FIELDS);
+        for (int doc : docs) {
+            String store = searchIndex.getStore(doc);
+            int description = catalog.getDescriptionAsOf(doc, epochDay);
+            // skip if not listed yet or package is invalid
+            if(description < 0 || catalog.getQuantity(description) <= 0 ){
+                continue;
+            }
+
+            // Calculate final price with the discounts of that day
+            Discount discount = discountIndex.findActiveDiscount(store, searchIndex.getProductId(doc), epochDay);
+            int regularPrice = catalog.getCentsAsOf(doc, epochDay);
+
+            ValuePerUnitItem item = new ValuePerUnitItem(
+                    catalog.getName(description), catalog.getBrand(description), store,
+                    regularPrice / 100.0, DiscountIndex.applyDiscount(regularPrice, discount) / 100.0,
+                    catalog.getQuantity(description), catalog.getUnit(description),
+                    discount != null, discount != null ? discount.getDiscountPercentage() : 0
+            );
+
+            items.add(item);
+        }
+        metrics.countWork(docs.length, items.size());
+        return items;
+    }
+
+    // Every dated price of the matching products, oldest first (in doc order on the same day),
+    // each with the discount that ran on the day of its file. The points are read from the
+    // products' series and kept as a few ints each; a PricePoint is built when it is read.
+    public List<PricePoint> getPriceHistory(String searchTerm) {
+        String search = TextNormalizer.normalize(searchTerm);
+        int[] docs = searchIndex.search(search, ProductSearchIndex.ALL_FIELDS);
+        int total = 0;
+        for (int doc : docs) {
+            total += priceSeries.get(doc).size();
+        }
+        // doc ids are catalog product numbers
+        int[] products = new int[total];
+        int[] prices = new int[total];
+        long[] byDay = new long[total]; // day in the high half, position in the low half
+        int[] count = {0};
+        for (int doc : docs) {
+            priceSeries.get(doc).scan(Integer.MIN_VALUE, Integer.MAX_VALUE, (priceDay, cents) -> {
+                int point = count[0]++;
+                products[point] = doc;
+                prices[point] = cents;
+                byDay[point] = ((long) priceDay << 32) | point;
+            });
+        }
+        Arrays.sort(byDay);
+        metrics.countWork(total, total);
+        return new PriceHistory(products, prices, byDay);
+    }
+
+    private class PriceHistory extends AbstractList<PricePoint> implements RandomAccess {
+        private final int[] products;
+        private final int[] prices;
+        private final long[] byDay;
+
+        PriceHistory(int[] products, int[] prices, long[] byDay) {
+            this.products = products;
+            this.prices = prices;
+            this.byDay = byDay;
+        }
+
+        @Override
+        public PricePoint get(int index) {
+            int point = (int) byDay[index];
+            return pricePoint(products[point], (int) (byDay[index] >> 32), prices[point]);
+        }
+
+        @Override
+        public int size() {
+            return byDay.length;
+        }
+    }
+
+    // the name and brand are those of the version listed on the day
+    private PricePoint pricePoint(int product, int priceDay, int cents) {
+        String store = catalog.getStore(product);
+        int description = catalog.getDescriptionAsOf(product, priceDay);
+        double regularPrice = cents / 100.0;
+        double finalPrice = regularPrice;
+        boolean hasDiscount = false;
+
+        Discount discount = discountIndex.findActiveDiscount(store, catalog.getProductId(product), priceDay);
+        if (discount != null) {
+            finalPrice = regularPrice * (1 - discount.getDiscountPercentage() / 100.0);
+            hasDiscount = true;
+        }
+
+        return new PricePoint(
+                LocalDate.ofEpochDay(priceDay).toString(), catalog.getName(description), store,
+                catalog.getBrand(description), catalog.getCategory(description), regularPrice, finalPrice, hasDiscount
+        );
+    }
+
+    // cheapest store for the product at the prices listed on the day, or null if no store sells it
+    public BestDeal findBestDeal(String productName, int epochDay) {
+        String normalizedProductName = TextNormalizer.normalize(productName);
+        int lowestPrice = Integer.MAX_VALUE;
+        String bestStore = null;
+        int regularPrice = 0;
+        boolean isDiscounted = false;
+        String actualProductName = productName;
+        int found = 0;
+
+        for (String store : catalog.getStores()) {
+            int doc = findProductInStore(store, productName, normalizedProductName, epochDay);
+            if (doc < 0) {
+                continue;
+            }
+            found++;
+
+            // the version listed on the day, not the latest one
+            int cents = catalog.getCentsAsOf(doc, epochDay);
+            Discount discount = discountIndex.findActiveDiscount(store, catalog.getProductId(doc), epochDay);
+            int finalPrice = DiscountIndex.applyDiscount(cents, discount);
+
+            if (finalPrice < lowestPrice) {
+                lowestPrice = finalPrice;
+                bestStore = store;
+                regularPrice = cents;
+                isDiscounted = discount != null;
+                actualProductName = catalog.getName(catalog.getDescriptionAsOf(doc, epochDay));
+            }
+        }
+
+        metrics.countWork(found, found);
+        if (bestStore != null) {
+            return new BestDeal(bestStore, regularPrice, lowestPrice, isDiscounted, actualProductName);
+        }
+
+        return null;
+    }
+
+    // see PriceComparator.findBestDealForAmount
+    public BestDeal findBestDealForAmount(String productName, double amount, String unit, int epochDay) {
+        String normalizedProductName = TextNormalizer.normalize(productName);
+        BestDeal best = null;
+        for (String store : catalog.getStores()) {
+            BestDeal deal = findAmountOffer(store, normalizedProductName, amount, unit, epochDay);
+            if (deal != null && (best == null || deal.getFinalPrice() < best.getFinalPrice())) {
+                best = deal;
+            }
+        }
+        return best;
+    }
+
+    // best offer for the item in each store of getStores() (null where the store has none);
+    // a price per pack, or for an amount the total of the cheapest packs covering it
+    public BestDeal[] findOffers(ShoppingItem item, int epochDay) {
+        List<String> stores = catalog.getStores();
+        String productName = item.getProductName();
+        String normalizedProductName = TextNormalizer.normalize(productName);
+        BestDeal[] deals = new BestDeal[stores.size()];
+        int found = 0;
+        for (int s = 0; s < stores.size(); s++) {
+            String store = stores.get(s);
+            if (item.hasAmount()) {
+                deals[s] = findAmountOffer(store, normalizedProductName, item.getAmount(), item.getAmountUnit(), epochDay);
+                continue;
+            }
+            int doc = findProductInStore(store, productName, normalizedProductName, epochDay);
+            if (doc < 0) {
+                continue;
+            }
+            found++;
+            int cents = catalog.getCentsAsOf(doc, epochDay);
+            Discount discount = discountIndex.findActiveDiscount(store, catalog.getProductId(doc), epochDay);
+            deals[s] = new BestDeal(store, cents, DiscountIndex.applyDiscount(cents, discount), discount != null,
+                    catalog.getName(catalog.getDescriptionAsOf(doc, epochDay)));
+        }
+        metrics.countWork(found, found);
+        return deals;
+    }
+
+    private BestDeal findAmountOffer(String store, String normalizedProductName, double amount, String unit, int epochDay) {
+        String baseUnit = PackageUnits.baseUnit(unit);
+        int[] docs = searchIndex.search(normalizedProductName, ProductSearchIndex.NAME, store);
+        int[] packDescriptions = new int[docs.length];
+        long[] sizes = new long[docs.length];
+        int[] regularPrices = new int[docs.length];
+        int[] finalPrices = new int[docs.length];
+        Discount[] discounts = new Discount[docs.length];
+        int packCount = 0;
+        for (int doc : docs) {
+            int description = catalog.getDescriptionAsOf(doc, epochDay);
+            if (description < 0) {
+                continue;
+            }
+            long size = PackageUnits.toBaseAmount(catalog.getQuantity(description), catalog.getUnit(description));
+            if (size <= 0 || !PackageUnits.baseUnit(catalog.getUnit(description)).equals(baseUnit)) {
+                continue;
+            }
+            Discount discount = discountIndex.findActiveDiscount(store, catalog.getProductId(doc), epochDay);
+            int cents = catalog.getCentsAsOf(doc, epochDay);
+            packDescriptions[packCount] = description;
+            sizes[packCount] = size;
+            regularPrices[packCount] = cents;
+            finalPrices[packCount] = DiscountIndex.applyDiscount(cents, discount);
+            discounts[packCount] = discount;
+            packCount++;
+        }
+        metrics.countWork(docs.length, packCount);
+
+        int[] counts = PackKnapsack.cheapestCover(Arrays.copyOf(sizes, packCount),
+                Arrays.copyOf(finalPrices, packCount), PackageUnits.toBaseAmount(amount, unit));
+        if (counts == null) {
+            return null;
+        }
+
+        List<ShoppingPack> packs = new ArrayList<>();
+        int regularTotal = 0;
+        int finalTotal = 0;
+        boolean discounted = false;
+        for (int j = 0; j < packCount; j++) {
+            if (counts[j] == 0) {
+                continue;
+            }
+            int description = packDescriptions[j];
+            packs.add(new ShoppingPack(catalog.getName(description), catalog.getBrand(description),
+                    catalog.getQuantity(description), catalog.getUnit(description), counts[j], regularPrices[j],
+                    finalPrices[j]));
+            regularTotal += counts[j] * regularPrices[j];
+            finalTotal += counts[j] * finalPrices[j];
+            discounted |= discounts[j] != null;
+        }
+        return new BestDeal(store, regularTotal, finalTotal, discounted, packs.get(0).getProductName(), packs);
+    }
+
+    // Among the products listed by the day: product id or exact name first (the most recently
+    // listed product when several share the name), otherwise the first product whose name
+    // contains the term; -1 if none. Names are matched as the index has them, from the latest
+    // version.
+    private int findProductInStore(String store, String productName, String normalizedProductName, int epochDay) {
+        int doc = catalog.findProduct(store, productName);
+        if (doc >= 0 && catalog.getDescriptionAsOf(doc, epochDay) >= 0) {
+            return doc;
+        }
+        int[] docs = searchIndex.search(normalizedProductName, ProductSearchIndex.NAME, store);
+        int first = -1;
+        for (int i = docs.length - 1; i >= 0; i--) {
+            if (catalog.getDescriptionAsOf(docs[i], epochDay) < 0) {
+                continue;
+            }
+            if (searchIndex.getNameKey(docs[i]).equals(normalizedProductName)) {
+                return docs[i];
+            }
+            first = docs[i];
+        }
+        return first;
+    }
+
+    public ColumnarCatalog getCatalog() {
+        return catalog;
+    }
+
+    public Map<String, AppendList<Discount>> getDiscountsByStore() {
+        return discountsByStore;
+    }
+
+    // discount feed name -> its discounts
+    public Map<String, List<Discount>> getDiscountsByFeed() {
+        return discountsByFeed;
+    }
+
+    public DiscountIndex getDiscountIndex() {
+        return discountIndex;
+    }
+
+    public DiscountTimeline getDiscountTimeline() {
+        return discountTimeline;
+    }
+
+    public ProductSearchIndex getSearchIndex() {
+        return searchIndex;
+    }
+
+    public PriceSeriesStore getPriceSeriesStore() {
+        return priceSeries;
+    }
+
+    // the feed files this snapshot was built from, by name
+    public Map<String, Long> getFeedTimes() {
+        return feedTimes;
+    }
+}
@@ -0,0 +1,79 @@
+package org.example;
+
+// A product's list price over a trailing window of days (see PriceSnapshot.getPriceStats), in
+// cents. Window figures cover the days of the window the product was listed on.
+class PriceStats {
+    private final String store;
+    private final String productId;
+    private final int windowDays;
+    private final int currentCents;
+    private final int minCents;
+    private final int maxCents;
+    private final double meanCents;
+    private final int allTimeMinCents;
+    private final int allTimeMaxCents;
+    private final double changePercent;
+
+    public PriceStats(String store, String productId, int windowDays, int currentCents, int minCents, int maxCents,
+                      double meanCents, int allTimeMinCents, int allTimeMaxCents, double changePercent) {
+        this.store = store;
+        this.productId = productId;
+        this.windowDays = windowDays;
+        this.currentCents = currentCents;
+        this.minCents = minCents;
+        this.maxCents = maxCents;
+        this.meanCents = meanCents;
+        this.allTimeMinCents = allTimeMinCents;
+        this.allTimeMaxCents = allTimeMaxCents;
+        this.changePercent = changePercent;
+    }
+
+    public String getStore() {
+        return store;
+    }
+
+    public String getProductId() {
+        return productId;
+    }
+
+    public int getWindowDays() {
+        return windowDays;
+    }
+
+    public int getCurrentCents() {
+        return currentCents;
+    }
+
+    public int getMinCents() {
+        return minCents;
+    }
+
+    public int getMaxCents() {
+        return maxCents;
+    }
+
+    // moving average: mean of the daily price over the window
+    public double getMeanCents() {
+        return meanCents;
+    }
+
+    public int getAllTimeMinCents() {
+        return allTimeMinCents;
+    }
+
+    public int getAllTimeMaxCents() {
+        return allTimeMaxCents;
+    }
+
+    // change from the price windowDays before to the current one; NaN if it was not listed then
+    public double getChangePercent() {
+        return changePercent;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s %s over %d days: now %.2f, min %.2f, max %.2f, avg %.2f, all-time %.2f-%.2f, change %+.1f%%",
+                store, productId, windowDays, currentCents / 100.0, minCents / 100.0, maxCents / 100.0,
+                meanCents / 100.0, allTimeMinCents / 100.0, allTimeMaxCents / 100.0, changePercent);
+    }
+}
@@ -0,0 +1,140 @@
+package org.example;
+
+import java.util.Arrays;
+
+// Running extremes of one product's list price, updated point by point as dated files arrive
+// instead of being recomputed from its history. Two monotonic stacks hold the suffix minima
+// and maxima of the series: every point is pushed once and popped at most once, so adding a
+// day is O(1) amortized, and the lowest or highest price since any day up to now is a binary
+// search. The stacks keep only points that can still be an extreme, a handful in practice.
+//
+// Like PriceSeries it is copied (PriceSeriesStore) before a published one would change, and
+// only follows points appended in day order; a late or replaced file rebuilds it.
+class PriceTrend {
+    private static final int CURRENT = Integer.MAX_VALUE; // end day of the latest price
+
+    // (price, end day) pairs, the end day being the day the next price replaced it.
+    // lows: prices rising from the bottom, each the lowest since the end day below it
+    private int[] lows = new int[4];
+    private int lowCount;
+    private int[] highs = new int[4];
+    private int highCount;
+    private int firstDay;
+    private int lastDay;
+    private int count;
+
+    public PriceTrend() {
+    }
+
+    private PriceTrend(PriceTrend base) {
+        lows = Arrays.copyOf(base.lows, Math.max(4, base.lowCount * 2 + 2));
+        lowCount = base.lowCount;
+        highs = Arrays.copyOf(base.highs, Math.max(4, base.highCount * 2 + 2));
+        highCount = base.highCount;
+        firstDay = base.firstDay;
+        lastDay = base.lastDay;
+        count = base.count;
+    }
+
+    public PriceTrend copy() {
+        return new PriceTrend(this);
+    }
+
+    // the whole series, oldest first
+    public static PriceTrend of(PriceSeries series) {
+        return of(series, Integer.MAX_VALUE);
+    }
+
+    // the series up to the day, as the trend stood then
+    public static PriceTrend of(PriceSeries series, int toDay) {
+        PriceTrend trend = new PriceTrend();
+        series.scan(Integer.MIN_VALUE, toDay, trend::add);
+        return trend;
+    }
+
+    // the price from a day after every day added so far
+    public void add(int epochDay, int cents) {
+        if (count > 0 && epochDay <= lastDay) {
+            throw new IllegalArgumentException("Day " + epochDay + " is not after " + lastDay);
+        }
+        if (count == 0) {
+            firstDay = epochDay;
+        } else {
+            lows[lowCount * 2 - 1] = epochDay;
+            highs[highCount * 2 - 1] = epochDay;
+        }
+        while (lowCount > 0 && lows[(lowCount - 1) * 2] >= cents) {
+            lowCount--;
+        }
+        lows = push(lows, lowCount++, cents);
+        while (highCount > 0 && highs[(highCount - 1) * 2] <= cents) {
+            highCount--;
+        }
+        highs = push(highs, highCount++, cents);
+        lastDay = epochDay;
+        count++;
+    }
+
+    private static int[] push(int[] stack, int size, int cents) {
+        if (size * 2 + 2 > stack.length) {
+            stack = Arrays.copyOf(stack, stack.length * 2);
+        }
+        stack[size * 2] = cents;
+        stack[size * 2 + 1] = CURRENT;
+        return stack;
+    }
+
+    // lowest price listed on any day from fromDay on; the latest price if fromDay is past it
+    public int lowestSince(int fromDay) {
+        return lows[firstEndingAfter(lows, lowCount, fromDay) * 2];
+    }
+
+    public int highestSince(int fromDay) {
+        return highs[firstEndingAfter(highs, highCount, fromDay) * 2];
+    }
+
+    // deepest (most extreme) entry still listed on fromDay or later
+    private static int firstEndingAfter(int[] stack, int size, int fromDay) {
+        int lo = 0;
+        int hi = size - 1;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (stack[mid * 2 + 1] > fromDay) {
+                hi = mid;
+            } else {
+                lo = mid + 1;
+            }
+        }
+        return lo;
+    }
+
+    // first day from which the latest price has been the lowest: the day the last lower price
+    // was replaced, or the first day if it never was lower
+    public int getLowSince() {
+        return lowCount > 1 ? lows[(lowCount - 2) * 2 + 1] : firstDay;
+    }
+
+    public int getAllTimeLow() {
+        return lows[0];
+    }
+
+    public int getAllTimeHigh() {
+        return highs[0];
+    }
+
+    public int getLatest() {
+        return lows[(lowCount - 1) * 2];
+    }
+
+    public int getFirstDay() {
+        return firstDay;
+    }
+
+    public int getLastDay() {
+        return lastDay;
+    }
+
+    public int size() {
+        return count;
+    }
+}
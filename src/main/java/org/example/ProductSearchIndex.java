@@ -0,0 +1,344 @@
+package org.example;
+
+import java.util.*;
+
+// Inverted index from 1-, 2- and 3-grams of the product text to the products containing them.
+// A substring query of up to three characters is a single posting list; longer queries
+// intersect the posting lists of their trigrams and verify the few candidates left.
+//
+// Products added or renamed after the build (see withUpdates) are kept out of the posting lists
+// and matched by a linear scan over just those docs, until needsRebuild() says it is time for
+// a full build. An index is not changed once built, so it can be searched from any thread.
+// The per-doc columns are chunked (see ChunkedArray), so an update copies only the chunks of
+// the docs it changes.
+class ProductSearchIndex {
+    public static final int STORE = 1;
+    public static final int NAME = 2;
+    public static final int BRAND = 4;
+    public static final int CATEGORY = 8;
+    public static final int ALL_FIELDS = STORE | NAME | BRAND | CATEGORY;
+
+    private static final int FIELD_COUNT = 4;
+    private static final int MAX_GRAM = 3;
+    private static final int[] NO_DOCS = new int[0];
+
+    private final ColumnarCatalog catalog;
+    private int size;
+    private final List<ChunkedArray<String>> fieldText; // [field][doc], normalized keys
+    private final Map<String, int[]> postings; // field digit + gram -> sorted doc ids
+    private final int indexedSize; // docs below this were in the build
+    private final ChunkedIntArray unindexed; // 1 for built docs whose text changed since
+    private final ChunkedIntArray scanned; // docs matched by a linear scan
+    private int scannedCount;
+    private volatile int[] allDocs;
+
+    // one document per catalog product (doc id == product number), holding its latest price
+    public ProductSearchIndex(ColumnarCatalog catalog) {
+        this(catalog, null);
+    }
+
+    // with postings from a previous build over the same catalog (see CatalogSnapshotFile),
+    // the n-grams are not computed again
+    public ProductSearchIndex(ColumnarCatalog catalog, Map<String, int[]> prebuiltPostings) {
+        this.catalog = catalog;
+        size = catalog.getProductCount();
+        indexedSize = size;
+        fieldText = new ArrayList<>(FIELD_COUNT);
+        for (int field = 0; field < FIELD_COUNT; field++) {
+            fieldText.add(new ChunkedArray<>());
+        }
+        unindexed = new ChunkedIntArray();
+        scanned = new ChunkedIntArray();
+
+        for (int doc = 0; doc < size; doc++) {
+            readDoc(doc);
+        }
+
+        if (prebuiltPostings != null) {
+            postings = prebuiltPostings;
+            return;
+        }
+        Map<String, IntList> building = new HashMap<>();
+        for (int doc = 0; doc < size; doc++) {
+            for (int field = 0; field < FIELD_COUNT; field++) {
+                addGrams(building, field, fieldText.get(field).get(doc), doc);
+            }
+        }
+        postings = new HashMap<>(building.size() * 2);
+        building.forEach((gram, docs) -> postings.put(gram, docs.toArray()));
+    }
+
+    private static void addGrams(Map<String, IntList> building, int field, String text, int doc) {
+        char prefix = (char) ('0' + field);
+        for (int start = 0; start < text.length(); start++) {
+            for (int len = 1; len <= MAX_GRAM && start + len <= text.length(); len++) {
+                String gram = prefix + text.substring(start, start + len);
+                building.computeIfAbsent(gram, k -> new IntList()).addIfLast(doc);
+            }
+        }
+    }
+
+    private boolean readDoc(int doc) {
+        int description = catalog.getLatestDescription(doc);
+        boolean changed = false;
+        changed |= setText(0, doc, TextNormalizer.key(catalog.getStore(doc)));
+        changed |= setText(1, doc, TextNormalizer.key(catalog.getName(description)));
+        changed |= setText(2, doc, TextNormalizer.key(catalog.getBrand(description)));
+        changed |= setText(3, doc, TextNormalizer.key(catalog.getCategory(description)));
+        return changed;
+    }
+
+    private boolean setText(int field, int doc, String text) {
+        String old = fieldText.get(field).get(doc);
+        fieldText.get(field).set(doc, text);
+        return old != null && !old.equals(text);
+    }
+
+    private ProductSearchIndex(ProductSearchIndex base, ColumnarCatalog catalog) {
+        this.catalog = catalog;
+        size = base.size;
+        indexedSize = base.indexedSize;
+        postings = base.postings;
+        fieldText = new ArrayList<>(FIELD_COUNT);
+        for (ChunkedArray<String> texts : base.fieldText) {
+            fieldText.add(texts.copy());
+        }
+        unindexed = base.unindexed.copy();
+        scanned = base.scanned.copy();
+        scannedCount = base.scannedCount;
+        allDocs = base.allDocs;
+    }
+
+    // A copy of this index over a catalog forked from this one's (see ColumnarCatalog.fork),
+    // taking in the latest version of the given products. Products new to the catalog become
+    // docs (doc id == product number). The posting lists are shared, not rebuilt.
+    public ProductSearchIndex withUpdates(ColumnarCatalog catalog, int[] docs) {
+        ProductSearchIndex updated = new ProductSearchIndex(this, catalog);
+        for (int doc : docs) {
+            updated.update(doc);
+        }
+        return updated;
+    }
+
+    private void update(int doc) {
+        if (doc >= size) {
+            int newSize = catalog.getProductCount();
+            for (; size < newSize; size++) {
+                readDoc(size);
+                scanned.set(scannedCount++, size);
+            }
+            allDocs = null;
+            return;
+        }
+        if (readDoc(doc) && doc < indexedSize && unindexed.get(doc) == 0) {
+            unindexed.set(doc, 1);
+            scanned.set(scannedCount++, doc);
+        }
+    }
+
+    // true once the scanned docs are enough of the index that a full build pays off
+    public boolean needsRebuild() {
+        return scannedCount > Math.max(256, indexedSize / 8);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    // docs the posting lists miss, matched by a linear scan instead
+    public int getScannedCount() {
+        return scannedCount;
+    }
+
+    // covers the docs of the build only; see needsRebuild
+    public Map<String, int[]> getPostings() {
+        return Collections.unmodifiableMap(postings);
+    }
+
+    public String getStore(int doc) {
+        return catalog.getStore(doc);
+    }
+
+    public String getProductId(int doc) {
+        return catalog.getProductId(doc);
+    }
+
+    // the doc's latest price
+    public Price getPrice(int doc) {
+        return catalog.toLatestPrice(doc);
+    }
+
+    // normalized product name of the doc
+    public String getNameKey(int doc) {
+        return fieldText.get(1).get(doc);
+    }
+
+    // sorted ids of the products where any of the given fields contains the term,
+    // which must already be normalized with TextNormalizer
+    public int[] search(String term, int fields) {
+        if (term.isEmpty()) {
+            int[] docs = allDocs;
+            if (docs == null) {
+                docs = new int[size];
+                for (int doc = 0; doc < size; doc++) {
+                    docs[doc] = doc;
+                }
+                allDocs = docs;
+            }
+            return docs;
+        }
+        int[] result = NO_DOCS;
+        for (int field = 0; field < FIELD_COUNT; field++) {
+            if ((fields & (1 << field)) != 0) {
+                result = union(result, searchField(term, field));
+            }
+        }
+        return scannedCount == 0 ? result : union(withoutUnindexed(result), scan(term, fields));
+    }
+
+    // true when any of the given fields of the doc contains the (normalized) term
+    public boolean matches(int doc, String term, int fields) {
+        for (int field = 0; field < FIELD_COUNT; field++) {
+            if ((fields & (1 << field)) != 0 && fieldText.get(field).get(doc).contains(term)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private int[] scan(String term, int fields) {
+        int[] result = new int[scannedCount];
+        int count = 0;
+        for (int i = 0; i < scannedCount; i++) {
+            int doc = scanned.get(i);
+            if (matches(doc, term, fields)) {
+                result[count++] = doc;
+            }
+        }
+        result = Arrays.copyOf(result, count);
+        Arrays.sort(result);
+        return result;
+    }
+
+    // the posting lists still hold the old text of changed docs
+    private int[] withoutUnindexed(int[] docs) {
+        int count = 0;
+        int[] result = new int[docs.length];
+        for (int doc : docs) {
+            if (unindexed.get(doc) == 0) {
+                result[count++] = doc;
+            }
+        }
+        return Arrays.copyOf(result, count);
+    }
+
+    // same as search, limited to one store
+    public int[] search(String term, int fields, String store) {
+        int[] docs = search(term, fields);
+        int count = 0;
+        int[] result = new int[docs.length];
+        for (int doc : docs) {
+            if (catalog.getStore(doc).equals(store)) {
+                result[count++] = doc;
+            }
+        }
+        return Arrays.copyOf(result, count);
+    }
+
+    private int[] searchField(String term, int field) {
+        char prefix = (char) ('0' + field);
+        if (term.length() <= MAX_GRAM) {
+            return postings.getOrDefault(prefix + term, NO_DOCS);
+        }
+
+        int[] candidates = null;
+        for (int start = 0; start + MAX_GRAM <= term.length(); start++) {
+            int[] docs = postings.get(prefix + term.substring(start, start + MAX_GRAM));
+            if (docs == null) {
+                return NO_DOCS;
+            }
+            candidates = candidates == null ? docs : intersect(candidates, docs);
+            if (candidates.length == 0) {
+                return NO_DOCS;
+            }
+        }
+
+        // trigrams can all be present without forming the term, so check what is left
+        ChunkedArray<String> texts = fieldText.get(field);
+        int count = 0;
+        int[] result = new int[candidates.length];
+        for (int doc : candidates) {
+            if (texts.get(doc).contains(term)) {
+                result[count++] = doc;
+            }
+        }
+        return count == result.length ? result : Arrays.copyOf(result, count);
+    }
+
+    private static int[] intersect(int[] a, int[] b) {
+        int[] result = new int[Math.min(a.length, b.length)];
+        int count = 0;
+        for (int i = 0, j = 0; i < a.length && j < b.length; ) {
+            if (a[i] < b[j]) {
+                i++;
+            } else if (a[i] > b[j]) {
+                j++;
+            } else {
+                result[count++] = a[i];
+                i++;
+                j++;
+            }
+        }
+        return Arrays.copyOf(result, count);
+    }
+
+    private static int[] union(int[] a, int[] b) {
+        if (a.length == 0) {
+            return b;
+        }
+        if (b.length == 0) {
+            return a;
+        }
+        int[] result = new int[a.length + b.length];
+        int count = 0;
+        int i = 0;
+        int j = 0;
+        while (i < a.length && j < b.length) {
+            if (a[i] < b[j]) {
+                result[count++] = a[i++];
+            } else if (a[i] > b[j]) {
+                result[count++] = b[j++];
+            } else {
+                result[count++] = a[i++];
+                j++;
+            }
+        }
+        while (i < a.length) {
+            result[count++] = a[i++];
+        }
+        while (j < b.length) {
+            result[count++] = b[j++];
+        }
+        return Arrays.copyOf(result, count);
+    }
+
+    private static class IntList {
+        private int[] values = new int[4];
+        private int size;
+
+        // docs are added in increasing order; a gram repeated within one doc is stored once
+        void addIfLast(int value) {
+            if (size > 0 && values[size - 1] == value) {
+                return;
+            }
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+
+        int[] toArray() {
+            return Arrays.copyOf(values, size);
+        }
+    }
+}
@@ -0,0 +1,136 @@
+package org.example;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+// Built-in instrumentation of a PriceComparator: a latency histogram per public query and
+// counters of the work done to answer them. Recording costs two System.nanoTime() calls and a
+// few uncontended atomic adds per query, so it is always on. Read it with snapshot(), or over
+// JMX once registered (see PriceComparator.registerMetricsMBean). Cache hits and misses are
+// the ones the best-deal cache counts itself (see BestDealCache.getHits).
+class QueryMetrics implements QueryMetricsMXBean {
+
+    enum Query {
+        COMPARE_PRICES("comparePrices"),
+        FIND_BEST_DEAL("findBestDealForProduct"),
+        FIND_BEST_DEAL_FOR_AMOUNT("findBestDealForAmount"),
+        VALUE_PER_UNIT("analyzeValuePerUnit"),
+        PRICE_HISTORY("getPriceHistory"),
+        SHOPPING_PLAN("generateOptimizedShoppingPlan"),
+        SHOPPING_PLANS("generateOptimizedShoppingPlans"),
+        ALERT_CHECK("getTriggeredAlerts"),
+        ALERT_REFRESH("alertRefresh"); // re-pricing the alerts after a load, ingest or date change
+
+        private final String name;
+
+        Query(String name) {
+            this.name = name;
+        }
+
+        public String getName() {
+            return name;
+        }
+    }
+
+    private final LatencyHistogram[] latencies = new LatencyHistogram[Query.values().length];
+    private final LongAdder rowsScanned = new LongAdder();
+    private final LongAdder discountsEvaluated = new LongAdder();
+    private final Supplier<BestDealCache> bestDealCache; // null: no cache to report on
+
+    public QueryMetrics() {
+        this(null);
+    }
+
+    // reporting the hits and misses of whichever cache the supplier returns at the time
+    public QueryMetrics(Supplier<BestDealCache> bestDealCache) {
+        this.bestDealCache = bestDealCache;
+        for (int i = 0; i < latencies.length; i++) {
+            latencies[i] = new LatencyHistogram();
+        }
+    }
+
+    // records a query that started at the given System.nanoTime()
+    public void record(Query query, long startNanos) {
+        latencies[query.ordinal()].record(System.nanoTime() - startNanos);
+    }
+
+    // catalog rows read and discounts looked up by one query, added once when it is done
+    public void countWork(long rows, long discounts) {
+        rowsScanned.add(rows);
+        discountsEvaluated.add(discounts);
+    }
+
+    private BestDealCache currentCache() {
+        return bestDealCache != null ? bestDealCache.get() : null;
+    }
+
+    public MetricsSnapshot snapshot() {
+        Map<String, LatencySummary> summaries = new LinkedHashMap<>();
+        for (Query query : Query.values()) {
+            summaries.put(query.getName(), latencies[query.ordinal()].summarize());
+        }
+        BestDealCache cache = currentCache();
+        return new MetricsSnapshot(summaries, rowsScanned.sum(), discountsEvaluated.sum(),
+                cache != null ? cache.getHits() : 0, cache != null ? cache.getMisses() : 0);
+    }
+
+    @Override
+    public long getRowsScanned() {
+        return rowsScanned.sum();
+    }
+
+    @Override
+    public long getDiscountsEvaluated() {
+        return discountsEvaluated.sum();
+    }
+
+    @Override
+    public long getCacheHits() {
+        BestDealCache cache = currentCache();
+        return cache != null ? cache.getHits() : 0;
+    }
+
+    @Override
+    public long getCacheMisses() {
+        BestDealCache cache = currentCache();
+        return cache != null ? cache.getMisses() : 0;
+    }
+
+    @Override
+    public Map<String, Map<String, Double>> getLatencyMicros() {
+        Map<String, Map<String, Double>> result = new LinkedHashMap<>();
+        snapshot().getLatencies().forEach((query, summary) -> {
+            Map<String, Double> values = new LinkedHashMap<>();
+            values.put("count", (double) summary.getCount());
+            values.put("mean", summary.getMeanNanos() / 1000);
+            values.put("p50", summary.getP50Nanos() / 1000.0);
+            values.put("p90", summary.getP90Nanos() / 1000.0);
+            values.put("p99", summary.getP99Nanos() / 1000.0);
+            values.put("p99.9", summary.getP999Nanos() / 1000.0);
+            values.put("max", summary.getMaxNanos() / 1000.0);
+            result.put(query, values);
+        });
+        return result;
+    }
+
+    @Override
+    public String getSnapshotText() {
+        return snapshot().format();
+    }
+
+    // starts every histogram and counter from zero; queries running meanwhile may land on either side
+    @Override
+    public void reset() {
+        for (LatencyHistogram histogram : latencies) {
+            histogram.reset();
+        }
+        rowsScanned.reset();
+        discountsEvaluated.reset();
+        BestDealCache cache = currentCache();
+        if (cache != null) {
+            cache.resetCounts();
+        }
+    }
+}
@@ -0,0 +1,23 @@
+package org.example;
+
+import java.util.Map;
+
+// JMX view of a comparator's QueryMetrics (see PriceComparator.registerMetricsMBean).
+// Latencies are per query name, in microseconds; counters only ever grow until reset().
+public interface QueryMetricsMXBean {
+    long getRowsScanned();
+
+    long getDiscountsEvaluated();
+
+    long getCacheHits();
+
+    long getCacheMisses();
+
+    // query -> count, mean, p50, p90, p99, p99.9 and max
+    Map<String, Map<String, Double>> getLatencyMicros();
+
+    // the same numbers in the text format of MetricsSnapshot.format()
+    String getSnapshotText();
+
+    void reset();
+}
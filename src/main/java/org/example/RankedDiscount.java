@@ -0,0 +1,34 @@
+package org.example;
+
+import java.util.Comparator;
+
+// One result of a top-discounts query: a discount and the store running it.
+class RankedDiscount {
+    // higher percentage first; ties in discount timeline order (start day, then load order)
+    static final Comparator<RankedDiscount> BEST_FIRST =
+            Comparator.comparingDouble((RankedDiscount d) -> -d.discount.getDiscountPercentage())
+                    .thenComparingInt(d -> d.position);
+
+    private String store;
+    private Discount discount;
+    private int position; // in the discount timeline
+
+    public RankedDiscount(String store, Discount discount, int position) {
+        this.store = store;
+        this.discount = discount;
+        this.position = position;
+    }
+
+    public String getStore() {
+        return store;
+    }
+
+    public Discount getDiscount() {
+        return discount;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s at %s: %.0f%% OFF", discount.getProductName(), store, discount.getDiscountPercentage());
+    }
+}
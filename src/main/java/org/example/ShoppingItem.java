@@ -3,12 +3,22 @@ package org.example;
 class ShoppingItem {
     private String productName;
     private int quantity;
+    private double amount; // with amountUnit: buy packs adding up to at least this much
+    private String amountUnit;
 
     public ShoppingItem(String productName, int quantity) {
         this.productName = productName;
         this.quantity = quantity;
     }
 
+    // e.g. ("lapte", 3, "l") or ("brânză", 500, "g"); any mix of pack sizes may be bought
+    public ShoppingItem(String productName, double amount, String amountUnit) {
+        this.productName = productName;
+        this.quantity = 1;
+        this.amount = amount;
+        this.amountUnit = amountUnit;
+    }
+
     public String getProductName() {
         return productName;
     }
@@ -16,4 +26,16 @@ class ShoppingItem {
     public int getQuantity() {
         return quantity;
     }
+
+    public boolean hasAmount() {
+        return amountUnit != null;
+    }
+
+    public double getAmount() {
+        return amount;
+    }
+
+    public String getAmountUnit() {
+        return amountUnit;
+    }
 }
\ No newline at end of file
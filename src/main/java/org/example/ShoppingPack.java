@@ -0,0 +1,59 @@
+package org.example;
+
+import java.math.BigDecimal;
+
+// Packs of one product to buy for an amount-based shopping item, e.g. 2 x lapte zuzu 1 l.
+class ShoppingPack {
+    private String productName;
+    private String brand;
+    private float packageQuantity;
+    private String packageUnit;
+    private int count;
+    private int regularPrice; // per pack, in cents
+    private int finalPrice; // per pack, in cents
+
+    public ShoppingPack(String productName, String brand, float packageQuantity, String packageUnit,
+                        int count, int regularPrice, int finalPrice) {
+        this.productName = productName;
+        this.brand = brand;
+        this.packageQuantity = packageQuantity;
+        this.packageUnit = packageUnit;
+        this.count = count;
+        this.regularPrice = regularPrice;
+        this.finalPrice = finalPrice;
+    }
+
+    public String getProductName() {
+        return productName;
+    }
+
+    public String getBrand() {
+        return brand;
+    }
+
+    public float getPackageQuantity() {
+        return packageQuantity;
+    }
+
+    public String getPackageUnit() {
+        return packageUnit;
+    }
+
+    public int getCount() {
+        return count;
+    }
+
+    public int getRegularPrice() {
+        return regularPrice;
+    }
+
+    public int getFinalPrice() {
+        return finalPrice;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d x %s %s %s%s", count, productName, brand,
+                new BigDecimal(Float.toString(packageQuantity)).stripTrailingZeros().toPlainString(), packageUnit);
+    }
+}
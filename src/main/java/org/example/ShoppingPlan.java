@@ -5,6 +5,14 @@ import java.util.*;
 
 class ShoppingPlan {
     private Map<String, List<ShoppingPlanItem>> storeItems = new HashMap<>();
+    private int storeVisitCost; // in cents, added once per store in the plan
+
+    public ShoppingPlan() {
+    }
+
+    public ShoppingPlan(int storeVisitCost) {
+        this.storeVisitCost = storeVisitCost;
+    }
 
     public void addItem(String store, ShoppingPlanItem item) {
         List<ShoppingPlanItem> items = storeItems.computeIfAbsent(store, k -> new ArrayList<>());
@@ -15,11 +23,16 @@ class ShoppingPlan {
         return storeItems;
     }
 
+    public int getStoreVisitCost() {
+        return storeVisitCost;
+    }
+
+    // items plus store visits
     public double getTotalCost() {
         return storeItems.values().stream()
                 .flatMap(Collection::stream)
                 .mapToDouble(item -> item.getFinalPrice() * item.getQuantity())
-                .sum();
+                .sum() + (double) storeVisitCost * storeItems.size();
     }
 
     public double getTotalSavings() {
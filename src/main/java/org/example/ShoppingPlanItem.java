@@ -1,11 +1,15 @@
 package org.example;
 
+import java.util.Collections;
+import java.util.List;
+
 class ShoppingPlanItem {
     private String productName;
     private int quantity;
     private int originalPrice;
     private int finalPrice;
     private boolean discounted;
+    private List<ShoppingPack> packs = Collections.emptyList(); // amount-based items only
 
     public ShoppingPlanItem(String productName, int quantity, int originalPrice, int finalPrice, boolean discounted) {
         this.productName = productName;
@@ -15,6 +19,13 @@ class ShoppingPlanItem {
         this.discounted = discounted;
     }
 
+    // prices are the totals over all packs
+    public ShoppingPlanItem(String productName, int quantity, int originalPrice, int finalPrice, boolean discounted,
+                            List<ShoppingPack> packs) {
+        this(productName, quantity, originalPrice, finalPrice, discounted);
+        this.packs = packs;
+    }
+
     public String getProductName() {
         return productName;
     }
@@ -34,4 +45,8 @@ class ShoppingPlanItem {
     public boolean getDiscounted() {
         return discounted;
     }
+
+    public List<ShoppingPack> getPacks() {
+        return packs;
+    }
 }
\ No newline at end of file
@@ -0,0 +1,165 @@
+package org.example;
+
+import java.util.*;
+
+// Chooses which stores to visit and where to buy each item so that the item costs plus a fixed
+// cost per visited store are as low as possible, optionally visiting at most maxStores stores.
+// Exact: depth-first branch and bound over store subsets. Each node decides whether one store
+// is visited; its bound is the visit cost of the stores taken so far plus, per item, the
+// cheapest price among the taken and the still undecided stores. The per-item cheapest
+// price over the undecided stores is precomputed, so a bound costs one pass over the items.
+class ShoppingPlanOptimizer {
+    public static final long UNAVAILABLE = Long.MAX_VALUE;
+
+    private final long[][] costs; // [item][store]
+    private final int storeCount;
+    private final long visitCost;
+    private final int maxStores;
+
+    private int[] order; // stores, the ones that are cheapest for the most items first
+    private long[][] undecidedMin; // [k][item], cheapest among order[k..]
+    private boolean[] taken;
+    private boolean[] bestStores;
+    private long bestTotal;
+
+    // costs[item][store] is the total for the item's quantity in that store, or UNAVAILABLE;
+    // maxStores <= 0 means no limit
+    public ShoppingPlanOptimizer(long[][] costs, int storeCount, long visitCost, int maxStores) {
+        this.costs = costs;
+        this.storeCount = storeCount;
+        this.visitCost = visitCost;
+        this.maxStores = maxStores > 0 ? Math.min(maxStores, storeCount) : storeCount;
+    }
+
+    // store of each item (-1 for items no store sells), or null when the items cannot all be
+    // bought in maxStores stores
+    public int[] solve() {
+        int items = costs.length;
+        order = storeOrder();
+        undecidedMin = new long[storeCount + 1][items];
+        Arrays.fill(undecidedMin[storeCount], UNAVAILABLE);
+        for (int k = storeCount - 1; k >= 0; k--) {
+            for (int i = 0; i < items; i++) {
+                undecidedMin[k][i] = Math.min(undecidedMin[k + 1][i], costs[i][order[k]]);
+            }
+        }
+
+        // items nobody sells are left out, as the single-item lookup does
+        long[] takenMin = new long[items];
+        for (int i = 0; i < items; i++) {
+            takenMin[i] = undecidedMin[0][i] == UNAVAILABLE ? 0 : UNAVAILABLE;
+        }
+
+        taken = new boolean[storeCount];
+        bestStores = null;
+        bestTotal = UNAVAILABLE;
+        seedWithCheapestPerItem(takenMin);
+        search(0, 0, takenMin);
+        return bestStores == null ? null : assign(bestStores);
+    }
+
+    // buying every item where it is cheapest is a valid plan when it fits in maxStores,
+    // and gives the search an upper bound to prune against from the start
+    private void seedWithCheapestPerItem(long[] takenMin) {
+        boolean[] stores = new boolean[storeCount];
+        for (int store : assign(null)) {
+            if (store >= 0) {
+                stores[store] = true;
+            }
+        }
+        int count = 0;
+        long[] cheapest = takenMin.clone();
+        for (int store = 0; store < storeCount; store++) {
+            if (stores[store]) {
+                count++;
+                for (int i = 0; i < costs.length; i++) {
+                    cheapest[i] = Math.min(cheapest[i], costs[i][store]);
+                }
+            }
+        }
+        if (count <= maxStores) {
+            bestTotal = total(count, cheapest);
+            bestStores = stores;
+        }
+    }
+
+    private void search(int k, int takenCount, long[] takenMin) {
+        boolean canTakeMore = takenCount < maxStores;
+        long bound = visitCost * takenCount;
+        for (int i = 0; i < takenMin.length; i++) {
+            long cheapest = canTakeMore ? Math.min(takenMin[i], undecidedMin[k][i]) : takenMin[i];
+            if (cheapest == UNAVAILABLE) {
+                return; // an item can no longer be bought
+            }
+            bound += cheapest;
+        }
+        if (bound >= bestTotal) {
+            return;
+        }
+        if (k == storeCount || !canTakeMore) {
+            // nothing more will be taken, so the bound is this plan's total
+            bestTotal = bound;
+            bestStores = taken.clone();
+            return;
+        }
+
+        int store = order[k];
+        long[] withStore = takenMin.clone();
+        boolean improves = false;
+        for (int i = 0; i < withStore.length; i++) {
+            if (costs[i][store] < withStore[i]) {
+                withStore[i] = costs[i][store];
+                improves = true;
+            }
+        }
+        // a store that makes nothing cheaper only adds its visit cost
+        if (improves) {
+            taken[store] = true;
+            search(k + 1, takenCount + 1, withStore);
+            taken[store] = false;
+        }
+        search(k + 1, takenCount, takenMin);
+    }
+
+    private long total(int storeCount, long[] cheapest) {
+        long total = visitCost * storeCount;
+        for (long cost : cheapest) {
+            total += cost;
+        }
+        return total;
+    }
+
+    // cheapest allowed store per item; ties go to the lower store index
+    private int[] assign(boolean[] allowed) {
+        int[] assignment = new int[costs.length];
+        for (int i = 0; i < costs.length; i++) {
+            assignment[i] = -1;
+            for (int store = 0; store < storeCount; store++) {
+                if ((allowed == null || allowed[store]) && costs[i][store] != UNAVAILABLE
+                        && (assignment[i] < 0 || costs[i][store] < costs[i][assignment[i]])) {
+                    assignment[i] = store;
+                }
+            }
+        }
+        return assignment;
+    }
+
+    private int[] storeOrder() {
+        int[] cheapestFor = new int[storeCount];
+        for (int store : assign(null)) {
+            if (store >= 0) {
+                cheapestFor[store]++;
+            }
+        }
+        Integer[] stores = new Integer[storeCount];
+        for (int store = 0; store < storeCount; store++) {
+            stores[store] = store;
+        }
+        Arrays.sort(stores, (a, b) -> Integer.compare(cheapestFor[b], cheapestFor[a]));
+        int[] order = new int[storeCount];
+        for (int k = 0; k < storeCount; k++) {
+            order[k] = stores[k];
+        }
+        return order;
+    }
+}
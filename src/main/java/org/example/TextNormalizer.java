@@ -0,0 +1,41 @@
+package org.example;
+
+import java.text.Normalizer;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.regex.Pattern;
+
+// Search keys for product text: lowercase, no diacritics ("pâine" -> "paine",
+// "brânză" -> "branza"), single spaces, trimmed.
+final class TextNormalizer {
+    private static final Pattern COMBINING_MARKS = Pattern.compile("\\p{M}+");
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
+    // raw value -> normalized key, direct-mapped: product text repeats a lot across rows and
+    // files, but a long-running process sees ever new names, so the cache has a fixed size
+    // and a value only keeps its slot until another one hashes there
+    private static final int CACHE_SIZE = 4096; // a power of two
+    private static final AtomicReferenceArray<String[]> KEYS = new AtomicReferenceArray<>(CACHE_SIZE);
+
+    private TextNormalizer() {
+    }
+
+    public static String normalize(String text) {
+        String stripped = COMBINING_MARKS.matcher(Normalizer.normalize(text, Normalizer.Form.NFD)).replaceAll("");
+        return WHITESPACE.matcher(stripped.toLowerCase(Locale.ROOT)).replaceAll(" ").trim();
+    }
+
+    // normalized key for data loaded from the feeds; frequent values (brands, categories,
+    // units) share one instance
+    public static String key(String text) {
+        int hash = text.hashCode();
+        int slot = (hash ^ (hash >>> 16)) & (CACHE_SIZE - 1);
+        String[] cached = KEYS.get(slot);
+        if (cached != null && cached[0].equals(text)) {
+            return cached[1];
+        }
+        String normalized = normalize(text);
+        KEYS.set(slot, new String[]{text, normalized});
+        return normalized;
+    }
+}
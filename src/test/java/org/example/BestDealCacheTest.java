@@ -0,0 +1,41 @@
+package org.example;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BestDealCacheTest {
+
+    @Test
+    void testEvictsLeastRecentlyUsedBeyondMaxSize() {
+        BestDealCache cache = new BestDealCache(16); // one entry per stripe
+        AtomicInteger lookups = new AtomicInteger();
+
+        for (int i = 0; i < 1000; i++) {
+            cache.get("product " + i, 1, name -> {
+                lookups.incrementAndGet();
+                return new BestDeal("store", 100, 100, false, name);
+            });
+        }
+
+        assertEquals(1000, lookups.get());
+        assertTrue(cache.size() <= 16);
+        assertEquals(1000 - cache.size(), cache.getEvictions());
+    }
+
+    @Test
+    void testCachesMissingDeals() {
+        BestDealCache cache = new BestDealCache(100);
+        AtomicInteger lookups = new AtomicInteger();
+
+        assertNull(cache.get("nimic", 1, name -> { lookups.incrementAndGet(); return null; }));
+        assertNull(cache.get("nimic", 1, name -> { lookups.incrementAndGet(); return null; }));
+        assertEquals(1, lookups.get());
+
+        cache.invalidate();
+        assertNull(cache.get("nimic", 1, name -> { lookups.incrementAndGet(); return null; }));
+        assertEquals(2, lookups.get());
+    }
+}
@@ -0,0 +1,104 @@
+package org.example;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.example.TestFeeds.*;
+
+class CatalogSnapshotFileTest {
+
+    @TempDir
+    Path tempDir;
+
+    private static PriceComparator comparator(Path feedDirectory, Path snapshot) {
+        PriceComparator comparator = new PriceComparator();
+        comparator.setCurrentDate(LocalDate.parse("2025-05-08"));
+        comparator.setFeedDirectory(feedDirectory);
+        comparator.setSnapshotFile(snapshot);
+        return comparator;
+    }
+
+    // true when the load read the snapshot file instead of the CSV feeds
+    private static boolean loadsFromSnapshot(PriceComparator comparator) {
+        ByteArrayOutputStream outContent = new ByteArrayOutputStream();
+        PrintStream originalOut = System.out;
+        System.setOut(new PrintStream(outContent));
+        try {
+            comparator.loadAllData();
+        } finally {
+            System.setOut(originalOut);
+        }
+        return outContent.toString().contains("from snapshot");
+    }
+
+    @Test
+    void testSnapshotRestoresSameDataWhateverItsOwnTime() throws IOException {
+        Path snapshot = tempDir.resolve("catalog.bin");
+        PriceComparator priceComparator = comparator(null, snapshot);
+        priceComparator.setQuiet(true);
+        priceComparator.loadAllData();
+        assertTrue(Files.exists(snapshot), "Snapshot should be written after a CSV load");
+
+        PriceComparator restored = comparator(null, snapshot);
+        assertTrue(loadsFromSnapshot(restored), "Unchanged feeds should be read from the snapshot");
+        assertEquals(describe(priceComparator.getPriceHistory("")), describe(restored.getPriceHistory("")));
+        assertEquals(priceComparator.comparePrices("paine").toString(), restored.comparePrices("paine").toString());
+        assertEquals(priceComparator.findBestDealForProduct("lapte", 1).getFinalPrice(),
+                restored.findBestDealForProduct("lapte", 1).getFinalPrice());
+
+        // only the feeds' times matter, not the snapshot's own
+        Files.setLastModifiedTime(snapshot, FileTime.fromMillis(0));
+        assertTrue(loadsFromSnapshot(restored), "Unchanged feeds should be read from an old snapshot");
+    }
+
+    @Test
+    void testSnapshotIsRefreshedAfterIngestAndReadInRegions() throws IOException {
+        Path feedDirectory = Files.createDirectories(tempDir.resolve("feeds"));
+        writePrices(feedDirectory, "mega_2025-05-01.csv",
+                "M001;lapte zuzu;lactate;Zuzu;1;l;9.90;RON",
+                "M002;cafea boabe;cafea;Mega;1;kg;45.00;RON");
+        writeDiscounts(feedDirectory, "mega_discounts_2025-05-01.csv",
+                "M002;cafea boabe;Mega;1;kg;cafea;2025-05-01;2025-05-10;20");
+        Path snapshot = tempDir.resolve("catalog.bin");
+        PriceComparator priceComparator = comparator(feedDirectory, snapshot);
+        priceComparator.setQuiet(true);
+        priceComparator.loadAllData();
+        priceComparator.ingestFeed(writePrices(feedDirectory, "mega_2025-05-08.csv",
+                "M001;lapte zuzu;lactate;Zuzu;1;l;9.50;RON",
+                "M003;paine alba;panificatie;Mega;500;g;4.20;RON"));
+        priceComparator.awaitSnapshotWrite();
+
+        // mappings of a few bytes put values of every kind across region boundaries
+        CatalogSnapshotFile file = CatalogSnapshotFile.readIfFresh(snapshot, FeedLoader.discover(feedDirectory), 7);
+        assertNotNull(file, "Snapshot should hold the ingested feed");
+        assertEquals(3, file.getFeedCount());
+        PriceSnapshot restored = PriceSnapshot.build(file.getCatalog(), file.getDiscountFeeds(), file.getPostings(),
+                priceComparator.getSnapshot().getFeedTimes(), new QueryMetrics());
+        PriceSnapshot loaded = priceComparator.getSnapshot();
+        assertEquals(describe(loaded.getPriceHistory("")), describe(restored.getPriceHistory("")));
+        assertEquals(loaded.comparePrices("paine").toString(), restored.comparePrices("paine").toString());
+        assertEquals(loaded.getCatalog().getDescriptionCount(), restored.getCatalog().getDescriptionCount());
+        assertEquals(3600, restored.findBestDeal("cafea boabe", epochDay("2025-05-08")).getFinalPrice());
+
+        // and a comparator started on the directory reads it instead of the CSV files, also
+        // when the directory has moved
+        Path moved = Files.move(feedDirectory, tempDir.resolve("moved"));
+        PriceComparator restarted = comparator(moved, snapshot);
+        assertTrue(loadsFromSnapshot(restarted), "Refreshed snapshot should be read");
+        assertEquals(950, restarted.getSnapshot().getLatestPrice("mega", "M001", epochDay("2025-05-08")));
+
+        // a feed whose time changed is read again, even if it is now older than the snapshot
+        Path feed = moved.resolve("mega_2025-05-01.csv");
+        Files.setLastModifiedTime(feed, FileTime.fromMillis(Files.getLastModifiedTime(feed).toMillis() - 60_000));
+        assertFalse(loadsFromSnapshot(comparator(moved, snapshot)), "Changed feed should be read from CSV");
+    }
+}
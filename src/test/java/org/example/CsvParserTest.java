@@ -0,0 +1,96 @@
+package org.example;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CsvParserTest {
+
+    private static final String FEED = "\uFEFFproduct_id;product_name;price\r\n"
+            + "P001;lapte zuzu;9.90\r\n"
+            + "\r\n"
+            + "P002;pâine albă;3.4\n"
+            + "P003;brânză;12.345";
+
+    @Test
+    void testParsesPricesIntoExactCents() throws IOException {
+        List<String> rows = parse(new ByteArrayInputStream(FEED.getBytes(StandardCharsets.UTF_8)));
+
+        assertEquals(List.of("P001|lapte zuzu|990", "P002|pâine albă|340", "P003|brânză|1235"), rows);
+    }
+
+    @Test
+    void testLinesSplitAcrossReadsAreJoined() throws IOException {
+        byte[] bytes = FEED.getBytes(StandardCharsets.UTF_8);
+        // hand out one byte per read so every line and multi-byte character is split
+        InputStream trickle = new ByteArrayInputStream(bytes) {
+            @Override
+            public synchronized int read(byte[] b, int off, int len) {
+                return super.read(b, off, Math.min(len, 1));
+            }
+        };
+
+        assertEquals(parse(new ByteArrayInputStream(bytes)), parse(trickle));
+    }
+
+    @Test
+    void testRejectsMalformedNumbers() throws IOException {
+        List<String> errors = new ArrayList<>();
+        String feed = "id;quantity\nA;1,5\nB;abc\n";
+
+        CsvParser.parse(new ByteArrayInputStream(feed.getBytes(StandardCharsets.UTF_8)), true, record -> {
+            try {
+                record.getFloat(1);
+            } catch (NumberFormatException e) {
+                errors.add(record.getLine());
+            }
+        });
+
+        assertEquals(List.of("B;abc"), errors);
+    }
+
+    @Test
+    void testByteOrderMarkIsStrippedWhenTheFirstReadIsShort() throws IOException {
+        InputStream trickle = new ByteArrayInputStream("\uFEFFid;price\n".getBytes(StandardCharsets.UTF_8)) {
+            @Override
+            public synchronized int read(byte[] b, int off, int len) {
+                return super.read(b, off, Math.min(len, 1));
+            }
+        };
+        List<String> fields = new ArrayList<>();
+        CsvParser.parse(trickle, false, record -> fields.add(record.getString(0)));
+
+        assertEquals(List.of("id"), fields);
+    }
+
+    @Test
+    void testRejectsPricesTooLargeForCents() throws IOException {
+        List<String> errors = new ArrayList<>();
+        // 2^64 + 0.50 would wrap around to 50 cents in a long
+        String feed = "id;price\nA;21474836.47\nB;21474836.48\nC;18446744073709551616.50\nD;00000000000012.5\n";
+
+        CsvParser.parse(new ByteArrayInputStream(feed.getBytes(StandardCharsets.UTF_8)), true, record -> {
+            try {
+                record.getCents(1);
+            } catch (NumberFormatException e) {
+                errors.add(record.getString(0));
+            }
+        });
+
+        assertEquals(List.of("B", "C"), errors);
+    }
+
+    private static List<String> parse(InputStream in) throws IOException {
+        List<String> rows = new ArrayList<>();
+        CsvParser.parse(in, true, record ->
+                rows.add(record.getString(0) + "|" + record.getSharedString(1) + "|" + record.getCents(2)));
+        return rows;
+    }
+}
@@ -0,0 +1,105 @@
+package org.example;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FeedGeneratorTest {
+
+    @TempDir
+    Path tempDir;
+
+    private static FeedGenerator generator(long seed) {
+        FeedGenerator generator = new FeedGenerator(seed);
+        generator.setStoreCount(4);
+        generator.setSkuCount(300);
+        generator.setDayCount(3);
+        generator.setDiscountDensity(0.3);
+        return generator;
+    }
+
+    @Test
+    void testSameSeedWritesSameFiles() throws IOException {
+        List<Path> first = generator(7).generate(tempDir.resolve("first"));
+        List<Path> second = generator(7).generate(tempDir.resolve("second"));
+        List<Path> other = generator(8).generate(tempDir.resolve("other"));
+
+        assertEquals(24, first.size());
+        for (int i = 0; i < first.size(); i++) {
+            assertEquals(first.get(i).getFileName(), second.get(i).getFileName());
+            assertEquals(-1, Files.mismatch(first.get(i), second.get(i)));
+        }
+        assertNotEquals(-1, Files.mismatch(first.get(0), other.get(0)));
+    }
+
+    @Test
+    void testGeneratedFeedsLoadAsGenerated() throws IOException {
+        FeedGenerator generator = generator(7);
+        Path feedDirectory = tempDir;
+        generator.generate(feedDirectory);
+
+        PriceComparator priceComparator = new PriceComparator();
+        priceComparator.setCurrentDate(generator.getEndDate());
+        priceComparator.setFeedDirectory(feedDirectory);
+        priceComparator.loadAllData();
+        PriceSnapshot snapshot = priceComparator.getSnapshot();
+
+        assertEquals(Set.of("kaufland", "lidl", "profi", "mega"), Set.copyOf(snapshot.getStores()));
+        int lastDay = (int) generator.getEndDate().toEpochDay();
+        for (int store = 0; store < 4; store++) {
+            for (int sku = 0; sku < 300; sku++) {
+                Price price = snapshot.getPriceAsOf(generator.getStore(store), generator.getProductId(sku), lastDay);
+                assertEquals(generator.carries(store, sku), price != null);
+                if (price != null) {
+                    assertEquals(generator.getPrice(store, sku, 2), price.getPrice());
+                }
+            }
+        }
+        assertFalse(priceComparator.getActiveDiscounts().isEmpty());
+        assertTrue(snapshot.getAllCategories().contains("panificație"));
+    }
+
+    @Test
+    void testNamesWithoutDiacritics() throws IOException {
+        FeedGenerator generator = generator(7);
+        generator.setDiacritics(false);
+        generator.setStartDate(LocalDate.parse("2025-06-01"));
+        Path feedDirectory = tempDir;
+        generator.generate(feedDirectory);
+
+        String feed = Files.readString(feedDirectory.resolve("prices").resolve("lidl_2025-06-01.csv"));
+        assertTrue(feed.contains(";paine alba"));
+        assertFalse(feed.matches("(?s).*[ăâîșțĂÂÎȘȚ].*"));
+        assertEquals("paine alba", generator.getProductName(6));
+        assertThrows(IllegalArgumentException.class, () -> generator.setDiscountDensity(1.5));
+    }
+
+    @Test
+    void testMainTakesCoverageDiacriticsAndStartDate() throws IOException {
+        FeedGenerator.main(new String[]{tempDir.toString(), "2", "100", "1", "0.1", "7", "0.5", "false", "2025-06-01"});
+
+        FeedGenerator generator = new FeedGenerator(7);
+        generator.setStoreCount(2);
+        generator.setSkuCount(100);
+        generator.setDayCount(1);
+        generator.setStoreCoverage(0.5);
+        generator.setDiacritics(false);
+        generator.setStartDate(LocalDate.parse("2025-06-01"));
+        List<Path> expected = generator.generate(tempDir.resolve("expected"));
+
+        for (Path file : expected) {
+            Path written = tempDir.resolve(file.getParent().getFileName()).resolve(file.getFileName());
+            assertEquals(-1, Files.mismatch(file, written), file.getFileName().toString());
+        }
+        assertThrows(IllegalArgumentException.class, () -> FeedGenerator.main(
+                new String[]{tempDir.toString(), "2", "100", "1", "0.1", "7", "0.5", "no"}));
+    }
+}
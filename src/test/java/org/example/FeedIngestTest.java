@@ -0,0 +1,173 @@
+package org.example;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.example.TestFeeds.*;
+
+class FeedIngestTest {
+
+    @TempDir
+    Path feedDirectory;
+    private PriceComparator priceComparator;
+
+    @BeforeEach
+    void setUp() {
+        priceComparator = new PriceComparator();
+        priceComparator.setQuiet(true);
+        priceComparator.setCurrentDate(LocalDate.parse("2025-05-08"));
+        priceComparator.setFeedDirectory(feedDirectory);
+    }
+
+    private PriceComparator reload() {
+        PriceComparator reloaded = new PriceComparator();
+        reloaded.setQuiet(true);
+        reloaded.setCurrentDate(priceComparator.getCurrentDate());
+        reloaded.setFeedDirectory(feedDirectory);
+        reloaded.loadAllData();
+        return reloaded;
+    }
+
+    @Test
+    void testIngestedFeedMatchesFullReload() throws IOException {
+        writePrices(feedDirectory, "mega_2025-05-01.csv",
+                "M001;lapte zuzu;lactate;Zuzu;1;l;9.90;RON",
+                "M002;pâine albă;panificație;Mega;500;g;3.00;RON");
+        priceComparator.loadAllData();
+        List<AlertMatch> events = new ArrayList<>();
+        priceComparator.addAlertListener(events::add);
+        priceComparator.addPriceAlert("cafea", 20.00);
+
+        Path prices = writePrices(feedDirectory, "mega_2025-05-08.csv",
+                "M001;lapte zuzu;lactate;Zuzu;1;l;9.50;RON",
+                "M002;pâine albă;panificație;Mega;500;g;3.00;RON",
+                "M003;cafea boabe;cafea;Mega;1;kg;45.00;RON");
+        Path discounts = writeDiscounts(feedDirectory, "mega_discounts_2025-05-08.csv",
+                "M003;cafea boabe;Mega;1;kg;cafea;2025-05-08;2025-05-14;60");
+
+        List<PriceChange> priceChanges = priceComparator.ingestFeed(prices);
+        assertEquals(List.of("M001 950", "M003 4500"), priceChanges.stream()
+                .map(c -> c.getProductId() + " " + c.getNewPrice()).collect(Collectors.toList()));
+        assertTrue(priceChanges.get(1).isNewProduct());
+        assertTrue(events.isEmpty());
+
+        List<PriceChange> discountChanges = priceComparator.ingestFeed(discounts);
+        assertEquals(1, discountChanges.size());
+        assertEquals(1800, discountChanges.get(0).getNewPrice());
+        assertEquals(1, events.size());
+        assertEquals("cafea boabe", events.get(0).getActualProductName());
+
+        PriceComparator reloaded = reload();
+        assertEquals(describe(reloaded.getPriceHistory("")), describe(priceComparator.getPriceHistory("")));
+        assertEquals(reloaded.comparePrices("cafea"), priceComparator.comparePrices("cafea"));
+        assertEquals(reloaded.findBestDealForProduct("lapte", 1).getFinalPrice(),
+                priceComparator.findBestDealForProduct("lapte", 1).getFinalPrice());
+        assertThrows(IllegalArgumentException.class, () -> priceComparator.ingestFeed(feedDirectory.resolve("notes.txt")));
+    }
+
+    @Test
+    void testReingestedFeedReplacesItsEarlierVersion() throws IOException {
+        writePrices(feedDirectory, "mega_2025-05-01.csv",
+                "M001;lapte zuzu;lactate;Zuzu;1;l;9.90;RON",
+                "M002;pâine albă;panificație;Mega;500;g;3.00;RON");
+        priceComparator.loadAllData();
+
+        Path discounts = writeDiscounts(feedDirectory, "mega_discounts_2025-05-08.csv",
+                "M001;lapte zuzu;Zuzu;1;l;lactate;2025-05-08;2025-05-14;10");
+        priceComparator.ingestFeed(discounts);
+        assertTrue(priceComparator.ingestFeed(discounts).isEmpty(), "The same file again changes nothing");
+        assertEquals(1, priceComparator.getSnapshot().getDiscountsByStore().get("mega").size());
+
+        writeDiscounts(feedDirectory, "mega_discounts_2025-05-08.csv",
+                "M002;pâine albă;Mega;500;g;panificație;2025-05-08;2025-05-14;20");
+        List<PriceChange> changes = priceComparator.ingestFeed(discounts);
+        assertEquals(List.of("M002 240", "M001 990"), changes.stream()
+                .map(c -> c.getProductId() + " " + c.getNewPrice()).collect(Collectors.toList()));
+
+        Path prices = writePrices(feedDirectory, "mega_2025-05-08.csv",
+                "M001;lapte zuzu;lactate;Zuzu;1;l;9.50;RON",
+                "M003;cafea boabe;cafea;Mega;1;kg;45.00;RON");
+        priceComparator.ingestFeed(prices);
+        writePrices(feedDirectory, "mega_2025-05-08.csv",
+                "M001;lapte zuzu;lactate;Zuzu;1;l;9.70;RON");
+        priceComparator.ingestFeed(prices);
+        assertEquals(-1, priceComparator.getSnapshot().getCatalog().findProduct("mega", "M003"),
+                "A product only the old version listed is dropped");
+        assertEquals(970, priceComparator.getSnapshot().getLatestPrice("mega", "M001", epochDay("2025-05-08")));
+
+        PriceComparator reloaded = reload();
+        assertEquals(describe(reloaded.getPriceHistory("")), describe(priceComparator.getPriceHistory("")));
+        assertEquals(reloaded.getActiveDiscounts().toString(), priceComparator.getActiveDiscounts().toString());
+        assertEquals(reloaded.comparePrices("lapte"), priceComparator.comparePrices("lapte"));
+    }
+
+    @Test
+    void testIngestedDiscountFilesKeepTheLoadOrder() throws IOException {
+        writeDiscounts(feedDirectory, "mega_discounts_2025-05-01.csv",
+                "M001;lapte zuzu;Zuzu;1;l;lactate;2025-05-01;2025-05-07;10",
+                "M002;pâine albă;Mega;500;g;panificație;2025-05-03;2025-05-05;20");
+        priceComparator.loadAllData();
+
+        // each file is added on top of the discounts before it, in as many levels as it takes
+        List<String[]> files = new ArrayList<>();
+        for (int day = 2; day <= 6; day++) {
+            files.add(new String[]{"mega_discounts_2025-05-0" + day + ".csv",
+                    "M00" + day + ";cafea boabe;Mega;1;kg;cafea;2025-05-0" + (day - 1) + ";2025-05-0" + (day + 2) + ";" + (day * 5),
+                    "M001;lapte zuzu;Zuzu;1;l;lactate;2025-05-03;2025-05-0" + day + ";" + (day + 10)});
+        }
+        for (int day = 1; day <= 3; day++) {
+            files.add(new String[]{"profi_discounts_2025-05-0" + day + ".csv",
+                    "P001;lapte zuzu;Zuzu;1;l;lactate;2025-05-03;2025-05-09;" + (day * 10)});
+        }
+        for (String[] file : files) {
+            priceComparator.ingestFeed(writeDiscounts(feedDirectory, file[0], Arrays.copyOfRange(file, 1, file.length)));
+            PriceComparator reloaded = reload();
+            for (int day = 1; day <= 9; day++) {
+                int epochDay = epochDay("2025-05-0" + day);
+                assertEquals(reloaded.getSnapshot().getActiveDiscounts(epochDay).toString(),
+                        priceComparator.getSnapshot().getActiveDiscounts(epochDay).toString(), file[0]);
+                assertEquals(reloaded.getSnapshot().getRecentDiscounts(epochDay).toString(),
+                        priceComparator.getSnapshot().getRecentDiscounts(epochDay).toString(), file[0]);
+            }
+        }
+        assertEquals(15, priceComparator.getSnapshot().getDiscountTimeline().size());
+    }
+
+    @Test
+    void testFailedIngestLeavesTheCatalogAsItWas() throws IOException {
+        writePrices(feedDirectory, "mega_2025-05-01.csv", "M001;lapte zuzu;lactate;Zuzu;1;l;9.90;RON");
+        priceComparator.loadAllData();
+        PriceSnapshot before = priceComparator.getSnapshot();
+
+        // the 257th distinct pack unit cannot be stored, after the rows before it were added
+        String[] rows = new String[300];
+        for (int i = 0; i < rows.length; i++) {
+            rows[i] = "X" + i + ";produs " + i + ";diverse;Marca " + i + ";1;u" + i + ";1.00;RON";
+        }
+        Path failing = writePrices(feedDirectory, "mega_2025-05-02.csv", rows);
+        assertThrows(IllegalStateException.class, () -> priceComparator.ingestFeed(failing));
+        assertSame(before, priceComparator.getSnapshot());
+        Files.delete(failing);
+
+        priceComparator.ingestFeed(writePrices(feedDirectory, "mega_2025-05-08.csv",
+                "M001;lapte zuzu;lactate;Zuzu;1;l;9.50;RON",
+                "M002;cafea boabe;cafea;Marca 1;1;kg;45.00;RON"));
+        ColumnarCatalog catalog = priceComparator.getSnapshot().getCatalog();
+        assertEquals(-1, catalog.findProduct("mega", "X0"), "Products of the failed file should be gone");
+        assertEquals("Marca 1", catalog.getBrand(catalog.getLatestDescription(catalog.findProduct("mega", "M002"))));
+        PriceComparator reloaded = reload();
+        assertEquals(describe(reloaded.getPriceHistory("")), describe(priceComparator.getPriceHistory("")));
+        assertEquals(reloaded.comparePrices("cafea"), priceComparator.comparePrices("cafea"));
+    }
+}
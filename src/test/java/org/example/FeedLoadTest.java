@@ -0,0 +1,79 @@
+package org.example;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.example.TestFeeds.*;
+
+class FeedLoadTest {
+
+    @TempDir
+    Path feedDirectory;
+
+    private PriceComparator load(LocalDate date, Executor executor) {
+        PriceComparator comparator = new PriceComparator();
+        comparator.setQuiet(true);
+        comparator.setCurrentDate(date);
+        comparator.setFeedDirectory(feedDirectory);
+        comparator.setIngestExecutor(executor);
+        comparator.loadAllData();
+        return comparator;
+    }
+
+    @Test
+    void testLoadsFeedsFromDirectory() throws IOException {
+        writePrices(feedDirectory, "mega_2025-05-08.csv", "M001;lapte zuzu;lactate;Zuzu;1;l;9.90;RON");
+        writeDiscounts(feedDirectory, "mega_discounts_2025-05-08.csv",
+                "M001;lapte zuzu;Zuzu;1;l;lactate;2025-05-08;2025-05-14;50");
+        Files.writeString(feedDirectory.resolve("notes.txt"), "not a feed");
+
+        PriceComparator priceComparator = load(LocalDate.parse("2025-05-08"), Runnable::run);
+
+        Map<String, List<Price>> milk = priceComparator.comparePrices("lapte");
+        assertEquals(Set.of("mega"), milk.keySet());
+        assertEquals(990, milk.get("mega").get(0).getPrice());
+
+        BestDeal deal = priceComparator.findBestDealForProduct("lapte", 1);
+        assertEquals(495, deal.getFinalPrice(), "Discount from the directory feed should apply");
+    }
+
+    @Test
+    void testParallelLoadMatchesSequentialLoad() throws IOException {
+        FeedGenerator generator = new FeedGenerator(11);
+        generator.setStoreCount(4);
+        generator.setSkuCount(300);
+        generator.setDayCount(5);
+        generator.setDiscountDensity(0.2);
+        generator.generate(feedDirectory);
+
+        PriceComparator sequential = load(generator.getEndDate(), Runnable::run);
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        PriceComparator parallel;
+        try {
+            parallel = load(generator.getEndDate(), pool);
+        } finally {
+            pool.shutdown();
+        }
+
+        assertEquals(describe(sequential.getPriceHistory("")), describe(parallel.getPriceHistory("")));
+        assertEquals(sequential.getSnapshot().getStores(), parallel.getSnapshot().getStores());
+        for (int sku = 0; sku < 300; sku += 37) {
+            String name = generator.getProductName(sku);
+            assertEquals(sequential.comparePrices(name), parallel.comparePrices(name), name);
+        }
+        assertFalse(sequential.getActiveDiscounts().isEmpty());
+        assertEquals(sequential.getActiveDiscounts().toString(), parallel.getActiveDiscounts().toString());
+    }
+}
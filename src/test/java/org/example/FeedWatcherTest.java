@@ -0,0 +1,72 @@
+package org.example;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.LocalDate;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.example.TestFeeds.*;
+
+class FeedWatcherTest {
+
+    @TempDir
+    Path feedDirectory;
+
+    @Test
+    void testFeedWatcherPublishesNewAndChangedFeeds() throws Exception {
+        PriceComparator priceComparator = new PriceComparator();
+        priceComparator.setQuiet(true);
+        priceComparator.setCurrentDate(LocalDate.parse("2025-05-08"));
+        Path first = writePrices(feedDirectory, "mega_2025-05-01.csv", "M001;lapte zuzu;lactate;Zuzu;1;l;9.90;RON");
+        priceComparator.setFeedDirectory(feedDirectory);
+        priceComparator.loadAllData();
+
+        // readers never wait for a reload and never see the catalog without milk
+        AtomicBoolean stop = new AtomicBoolean();
+        AtomicInteger emptyReads = new AtomicInteger();
+        Thread reader = new Thread(() -> {
+            while (!stop.get()) {
+                if (priceComparator.comparePrices("lapte").isEmpty()) {
+                    emptyReads.incrementAndGet();
+                }
+            }
+        });
+        reader.start();
+
+        try (FeedWatcher watcher = priceComparator.watchFeedDirectory()) {
+            assertNotNull(watcher);
+            writePrices(feedDirectory, "mega_2025-05-08.csv",
+                    "M001;lapte zuzu;lactate;Zuzu;1;l;9.50;RON",
+                    "M003;cafea boabe;cafea;Mega;1;kg;45.00;RON");
+            waitUntil(() -> !priceComparator.comparePrices("cafea").isEmpty());
+            assertEquals(950, priceComparator.findBestDealForProduct("lapte zuzu", 1).getFinalPrice());
+
+            // a changed file cannot be applied on top, so everything is reloaded
+            writePrices(feedDirectory, "mega_2025-05-01.csv",
+                    "M001;lapte zuzu;lactate;Zuzu;1;l;9.90;RON",
+                    "M002;pâine albă;panificație;Mega;500;g;3.00;RON");
+            Files.setLastModifiedTime(first, FileTime.fromMillis(System.currentTimeMillis() + 10_000));
+            waitUntil(() -> !priceComparator.comparePrices("paine").isEmpty());
+            assertFalse(priceComparator.comparePrices("cafea").isEmpty());
+        } finally {
+            stop.set(true);
+            reader.join();
+        }
+        assertEquals(0, emptyReads.get());
+    }
+
+    private static void waitUntil(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.currentTimeMillis() < deadline, "Timed out waiting for the feed watcher");
+            Thread.sleep(20);
+        }
+    }
+}
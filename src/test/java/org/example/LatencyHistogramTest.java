@@ -0,0 +1,57 @@
+package org.example;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LatencyHistogramTest {
+
+    @Test
+    void testEveryValueFallsInABucketWithinThreePercent() {
+        Random random = new Random(1);
+        for (int i = 0; i < 100_000; i++) {
+            long value = (random.nextLong() >>> 1) >>> random.nextInt(63);
+            int index = LatencyHistogram.indexOf(value);
+            long highest = LatencyHistogram.highestValueOf(index);
+            assertTrue(highest >= value, value + " above its bucket");
+            assertTrue(highest - value <= value / 32, value + " in too wide a bucket");
+            if (index > 0) {
+                assertTrue(LatencyHistogram.highestValueOf(index - 1) < value, value + " below its bucket");
+            }
+        }
+        assertEquals(0, LatencyHistogram.indexOf(0));
+        assertEquals(Long.MAX_VALUE, LatencyHistogram.highestValueOf(LatencyHistogram.indexOf(Long.MAX_VALUE)));
+    }
+
+    @Test
+    void testPercentilesMatchSortedValues() {
+        Random random = new Random(2);
+        LatencyHistogram histogram = new LatencyHistogram();
+        long[] values = new long[10_000];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = 1_000 + (long) (Math.abs(random.nextGaussian()) * 50_000);
+            histogram.record(values[i]);
+        }
+        Arrays.sort(values);
+
+        LatencySummary summary = histogram.summarize();
+        assertEquals(values.length, summary.getCount());
+        assertEquals(values[values.length - 1], summary.getMaxNanos());
+        assertEquals(Arrays.stream(values).average().orElse(0), summary.getMeanNanos(), 1e-6);
+        assertWithin(values[4_999], summary.getP50Nanos());
+        assertWithin(values[8_999], summary.getP90Nanos());
+        assertWithin(values[9_899], summary.getP99Nanos());
+        assertWithin(values[9_989], summary.getP999Nanos());
+
+        histogram.reset();
+        assertEquals(0, histogram.summarize().getCount());
+        assertEquals(0, histogram.summarize().getP99Nanos());
+    }
+
+    private static void assertWithin(long expected, long actual) {
+        assertTrue(actual >= expected && actual - expected <= expected / 32, "expected about " + expected + " got " + actual);
+    }
+}
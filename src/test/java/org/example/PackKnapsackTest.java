@@ -0,0 +1,37 @@
+package org.example;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PackKnapsackTest {
+
+    @Test
+    void testMixesPackSizes() {
+        long[] sizes = {500, 1000};
+        int[] prices = {500, 800};
+
+        // 1.5 kg: 1 kg + 500 g (13.00) beats 3 x 500 g (15.00) and 2 x 1 kg (16.00)
+        assertArrayEquals(new int[]{1, 1}, PackKnapsack.cheapestCover(sizes, prices, 1500));
+        // 2 kg: 2 x 1 kg
+        assertArrayEquals(new int[]{0, 2}, PackKnapsack.cheapestCover(sizes, prices, 2000));
+        // 300 g still needs a whole pack
+        assertArrayEquals(new int[]{1, 0}, PackKnapsack.cheapestCover(sizes, prices, 300));
+    }
+
+    @Test
+    void testOverbuyingCanBeCheapest() {
+        // 1 kg: one 1.5 kg pack at 9.00 beats two 500 g packs at 5.00
+        assertArrayEquals(new int[]{0, 1}, PackKnapsack.cheapestCover(new long[]{500, 1500}, new int[]{500, 900}, 1000));
+    }
+
+    @Test
+    void testCoarseStepsStillCoverTheAmount() {
+        long[] sizes = {333_331, 1};
+        int[] prices = {100, 1};
+        int[] counts = PackKnapsack.cheapestCover(sizes, prices, 999_999);
+
+        assertTrue(counts[0] * sizes[0] + counts[1] * sizes[1] >= 999_999);
+        assertNull(PackKnapsack.cheapestCover(new long[0], new int[0], 10));
+    }
+}
@@ -2,20 +2,36 @@ package org.example;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 
 import java.io.ByteArrayOutputStream;
+import java.io.IOException;
 import java.io.PrintStream;
+import java.nio.file.Path;
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
 
 import static org.junit.jupiter.api.Assertions.*;
 
 class PriceComparatorTest {
 
     private PriceComparator priceComparator;
+    @TempDir
+    Path tempDir;
     private static final DateTimeFormatter DATE_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd");
 
     @BeforeEach
@@ -88,4 +104,372 @@ class PriceComparatorTest {
 
         assertTrue(plan.getTotalCost() > 0, "Total cost should be greater than zero");
     }
-}
\ No newline at end of file
+
+    @Test
+    void testEffectivePriceAppliesDiscountOnlyWhileValid() {
+        Price milk = priceComparator.comparePrices("lapte zuzu").get("lidl").get(0);
+        int may8 = (int) LocalDate.parse("2025-05-08", DATE_FORMATTER).toEpochDay();
+        int may20 = (int) LocalDate.parse("2025-05-20", DATE_FORMATTER).toEpochDay();
+
+        EffectivePrice discounted = priceComparator.getEffectivePrice("lidl", milk, may8);
+        assertTrue(discounted.isDiscounted(), "Lidl milk is discounted on 2025-05-08");
+        assertEquals(milk.getPrice(), discounted.getRegularPrice());
+        assertTrue(discounted.getFinalPrice() < discounted.getRegularPrice());
+
+        EffectivePrice expired = priceComparator.getEffectivePrice("lidl", milk, may20);
+        assertFalse(expired.isDiscounted(), "No discount should be active after it expires");
+        assertEquals(milk.getPrice(), expired.getFinalPrice());
+    }
+
+    @Test
+    void testActiveDiscountsFollowCurrentDate() {
+        List<Discount> active = priceComparator.getActiveDiscounts();
+        assertFalse(active.isEmpty(), "Some discounts should be running on 2025-05-08");
+        int may8 = (int) LocalDate.parse("2025-05-08", DATE_FORMATTER).toEpochDay();
+        active.forEach(discount -> assertTrue(discount.isValidOn(may8), discount.toString()));
+
+        priceComparator.setCurrentDate(LocalDate.parse("2030-01-01", DATE_FORMATTER));
+        assertTrue(priceComparator.getActiveDiscounts().isEmpty(), "Nothing should be running in 2030");
+    }
+
+    @Test
+    void testTopDiscountsMatchSortingTheRunningDiscounts() {
+        LocalDate may8 = LocalDate.parse("2025-05-08", DATE_FORMATTER);
+        List<Discount> expected = priceComparator.getActiveDiscounts().stream()
+                .sorted(Comparator.comparingDouble(discount -> -discount.getDiscountPercentage()))
+                .limit(5)
+                .collect(Collectors.toList());
+
+        List<RankedDiscount> top = priceComparator.topDiscounts(5, may8, DiscountFilter.ALL);
+        assertEquals(expected, top.stream().map(RankedDiscount::getDiscount).collect(Collectors.toList()));
+
+        List<RankedDiscount> lidl = priceComparator.topDiscounts(100, may8, DiscountFilter.store("LIDL"));
+        assertFalse(lidl.isEmpty());
+        lidl.forEach(ranked -> assertEquals("lidl", ranked.getStore()));
+
+        List<RankedDiscount> dairy = priceComparator.topDiscounts(3, may8, DiscountFilter.category("Lactate"));
+        assertFalse(dairy.isEmpty());
+        dairy.forEach(ranked -> assertEquals("lactate", ranked.getDiscount().getNormalizedCategory()));
+
+        assertTrue(priceComparator.topDiscounts(10, LocalDate.parse("2030-01-01", DATE_FORMATTER), DiscountFilter.ALL).isEmpty());
+        assertTrue(priceComparator.topDiscounts(0, may8, DiscountFilter.ALL).isEmpty());
+        assertEquals(priceComparator.getActiveDiscounts().size(),
+                priceComparator.topDiscounts(Integer.MAX_VALUE, may8, DiscountFilter.ALL).size());
+    }
+
+    @Test
+    void testPriceAsOfKeepsEveryDatedFile() {
+        Price milk = priceComparator.comparePrices("lapte zuzu").get("kaufland").get(0);
+        String id = milk.getProductId();
+
+        Price firstWeek = priceComparator.getPriceAsOf("kaufland", id, LocalDate.parse("2025-05-03", DATE_FORMATTER));
+        Price secondWeek = priceComparator.getPriceAsOf("kaufland", id, LocalDate.parse("2025-05-08", DATE_FORMATTER));
+
+        assertEquals(1010, firstWeek.getPrice(), "2025-05-01 file price should still be available");
+        assertEquals(1000, secondWeek.getPrice(), "2025-05-08 file price should be used from its date on");
+        assertNull(priceComparator.getPriceAsOf("kaufland", id, LocalDate.parse("2025-04-30", DATE_FORMATTER)));
+    }
+
+    @Test
+    void testValuePerUnitListsEachProductOnce() {
+        List<ValuePerUnitItem> items = priceComparator.analyzeValuePerUnit("zuzu");
+
+        assertEquals(3, items.size(), "One Zuzu milk per store");
+        assertEquals(3, items.stream().map(ValuePerUnitItem::getStore).distinct().count());
+    }
+
+    @Test
+    void testBestDealPrefersNewestExactNameMatch() {
+        // profi lists "vin alb demisec" twice: P049 (23.50) in the first file, P051 (23.00, 10% off) in the second
+        BestDeal deal = priceComparator.findBestDealForProduct("vin alb demisec", 1);
+
+        assertEquals("profi", deal.getStore());
+        assertEquals(2300, deal.getRegularPrice());
+        assertEquals(2070, deal.getFinalPrice());
+        assertTrue(deal.isDiscounted());
+    }
+
+    @Test
+    void testShoppingPlanWithVisitCostUsesFewerStores() {
+        List<ShoppingItem> list = Arrays.asList(
+                new ShoppingItem("lapte", 2),
+                new ShoppingItem("pâine", 1),
+                new ShoppingItem("vin alb demisec", 1),
+                new ShoppingItem("paste", 2),
+                new ShoppingItem("brânză", 1));
+
+        ShoppingPlan cheapestItems = priceComparator.generateOptimizedShoppingPlan(list);
+        ShoppingPlan oneTrip = priceComparator.generateOptimizedShoppingPlan(list, 100.00, 0);
+        ShoppingPlan singleStore = priceComparator.generateOptimizedShoppingPlan(list, 0, 1);
+
+        assertTrue(cheapestItems.getStoreItems().size() > 1);
+        assertEquals(1, oneTrip.getStoreItems().size());
+        assertEquals(1, singleStore.getStoreItems().size());
+        assertEquals(singleStore.getTotalCost() + 10000, oneTrip.getTotalCost(), 0.001);
+        assertTrue(singleStore.getTotalCost() >= cheapestItems.getTotalCost());
+    }
+
+    @Test
+    void testBatchPlansMatchSingleListPlans() {
+        List<List<ShoppingItem>> lists = Arrays.asList(
+                Arrays.asList(new ShoppingItem("lapte", 2), new ShoppingItem("pâine", 1)),
+                Arrays.asList(new ShoppingItem("paine", 3), new ShoppingItem("vin alb demisec", 1), new ShoppingItem("nimic", 1)),
+                Arrays.asList(new ShoppingItem("paste", 2), new ShoppingItem("brânză", 1), new ShoppingItem("lapte", 1)),
+                Arrays.asList());
+
+        List<ShoppingPlan> batch = priceComparator.generateOptimizedShoppingPlans(lists, 5.00, 2);
+
+        assertEquals(lists.size(), batch.size());
+        for (int i = 0; i < lists.size(); i++) {
+            assertEquals(describe(priceComparator.generateOptimizedShoppingPlan(lists.get(i), 5.00, 2)), describe(batch.get(i)));
+        }
+    }
+
+    @Test
+    void testBestDealCacheIsInvalidatedByDateAndReload() {
+        BestDealCache cache = priceComparator.getBestDealCache();
+
+        BestDeal current = priceComparator.findBestDealForProduct("vin alb demisec", 1);
+        assertSame(current, priceComparator.findBestDealForProduct("vin alb demisec", 1));
+        assertEquals(1, cache.getHits());
+        assertEquals(1, cache.getMisses());
+
+        // another quantity is another lookup, priced for that many bottles
+        BestDeal three = priceComparator.findBestDealForProduct("vin alb demisec", 3);
+        assertEquals(current.getStore(), three.getStore());
+        assertEquals(3 * current.getFinalPrice(), three.getFinalPrice());
+        assertEquals(3 * current.getRegularPrice(), three.getRegularPrice());
+        assertEquals(2, cache.getMisses());
+
+        // profi's 10% off starts on 2025-05-08
+        priceComparator.setCurrentDate(LocalDate.parse("2025-05-07", DATE_FORMATTER));
+        assertNotEquals("profi", priceComparator.findBestDealForProduct("vin alb demisec", 1).getStore());
+        assertEquals(3, cache.getMisses());
+
+        priceComparator.setCurrentDate(LocalDate.parse("2025-05-08", DATE_FORMATTER));
+        assertEquals(current.getFinalPrice(), priceComparator.findBestDealForProduct("vin alb demisec", 1).getFinalPrice());
+        priceComparator.loadAllData();
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    void testAmountDealsCombinePacksAndConvertUnits() {
+        BestDeal litres = priceComparator.findBestDealForAmount("lapte zuzu", 2.5, "l");
+        BestDeal millilitres = priceComparator.findBestDealForAmount("lapte zuzu", 2500, "ml");
+
+        assertEquals(1, litres.getPacks().size());
+        assertEquals(3, litres.getPacks().get(0).getCount());
+        assertEquals(3 * litres.getPacks().get(0).getFinalPrice(), litres.getFinalPrice());
+        assertEquals(litres.getFinalPrice(), millilitres.getFinalPrice());
+        assertNull(priceComparator.findBestDealForAmount("lapte zuzu", 1, "buc"));
+
+        ShoppingPlan plan = priceComparator.generateOptimizedShoppingPlan(
+                Arrays.asList(new ShoppingItem("lapte zuzu", 2.5, "l")));
+        ShoppingPlanItem item = plan.getStoreItems().get(litres.getStore()).get(0);
+        assertEquals(litres.getFinalPrice(), item.getFinalPrice());
+        assertEquals(3, item.getPacks().get(0).getCount());
+    }
+
+    @Test
+    void testAlertListenersHearAboutNewlyTriggeredAlerts() {
+        List<AlertMatch> events = new ArrayList<>();
+        priceComparator.addAlertListener(events::add);
+        priceComparator.setCurrentDate(LocalDate.parse("2025-05-07", DATE_FORMATTER));
+
+        priceComparator.addPriceAlert("vin alb demisec", 20.70);
+        assertTrue(events.isEmpty());
+        assertTrue(priceComparator.getTriggeredAlerts().isEmpty());
+
+        // profi's 10% off (23.00 -> 20.70) starts the next day
+        priceComparator.setCurrentDate(LocalDate.parse("2025-05-08", DATE_FORMATTER));
+        assertEquals(1, events.size());
+        assertEquals("profi", events.get(0).getStore());
+        assertEquals(20.70, events.get(0).getCurrentPrice(), 0.001);
+        assertTrue(events.get(0).hasDiscount());
+
+        // already triggered: reloading the same prices is not news
+        priceComparator.loadAllData();
+        assertEquals(1, events.size());
+        assertEquals(1, priceComparator.getTriggeredAlerts().size());
+
+        priceComparator.addPriceAlert("vin alb", 100.00);
+        assertEquals(1 + priceComparator.comparePrices("vin alb").values().stream().mapToInt(List::size).sum(), events.size());
+
+        priceComparator.removePriceAlert("vin alb demisec");
+        assertTrue(priceComparator.getTriggeredAlerts().stream().allMatch(m -> m.getAlert().getTargetPrice() == 100.00));
+    }
+
+    @Test
+    void testDateChangesFireExactlyTheNewlyTriggeredAlerts() {
+        String[][] alerts = {{"lapte", "9.00"}, {"vin", "21.00"}, {"paste", "5.00"}, {"brânză", "12.00"}, {"cafea", "30.00"}};
+        List<String> events = new ArrayList<>();
+        priceComparator.setCurrentDate(LocalDate.parse("2025-04-25", DATE_FORMATTER));
+        for (String[] alert : alerts) {
+            priceComparator.addPriceAlert(alert[0], Double.parseDouble(alert[1]));
+        }
+        priceComparator.addAlertListener(match -> events.add(triggeredBy(match)));
+
+        Map<String, Long> before = triggeredBy(priceComparator);
+        for (LocalDate date = LocalDate.parse("2025-04-26", DATE_FORMATTER);
+             !date.isAfter(LocalDate.parse("2025-05-20", DATE_FORMATTER)); date = date.plusDays(1)) {
+            events.clear();
+            priceComparator.setCurrentDate(date);
+            Set<String> now = triggered(priceComparator);
+
+            // the same as pricing everything from scratch on that day
+            PriceComparator fresh = new PriceComparator();
+            fresh.setCurrentDate(date);
+            fresh.loadAllData();
+            for (String[] alert : alerts) {
+                fresh.addPriceAlert(alert[0], Double.parseDouble(alert[1]));
+            }
+            assertEquals(triggered(fresh), now, date.toString());
+
+            // a product that was already below the target may get cheaper without a new event;
+            // counted, as a store may list two products under one name
+            Map<String, Long> stillTriggered = triggeredBy(priceComparator);
+            Map<String, Long> newlyTriggered = new HashMap<>();
+            Map<String, Long> previous = before;
+            stillTriggered.forEach((match, count) -> {
+                long added = count - previous.getOrDefault(match, 0L);
+                if (added > 0) {
+                    newlyTriggered.put(match, added);
+                }
+            });
+            assertEquals(newlyTriggered, events.stream().collect(Collectors.groupingBy(e -> e, Collectors.counting())),
+                    date.toString());
+            before = stillTriggered;
+        }
+    }
+
+    private static Set<String> triggered(PriceComparator comparator) {
+        return comparator.getTriggeredAlerts().stream().map(PriceComparatorTest::describe).collect(Collectors.toSet());
+    }
+
+    private static Map<String, Long> triggeredBy(PriceComparator comparator) {
+        return comparator.getTriggeredAlerts().stream()
+                .collect(Collectors.groupingBy(PriceComparatorTest::triggeredBy, Collectors.counting()));
+    }
+
+    private static String triggeredBy(AlertMatch match) {
+        return match.getAlert().getProductName() + " " + match.getStore() + " " + match.getActualProductName();
+    }
+
+    private static String describe(AlertMatch match) {
+        return match.getAlert().getProductName() + " " + match.getStore() + " " + match.getActualProductName()
+                + " " + match.getCurrentPrice();
+    }
+
+    @Test
+    void testAlertListenersMayCallBackFromAnotherThread() throws Exception {
+        ExecutorService other = Executors.newSingleThreadExecutor();
+        try {
+            AtomicInteger calls = new AtomicInteger();
+            // the listener waits for another thread that needs the comparator's write lock
+            priceComparator.addAlertListener(match -> {
+                calls.incrementAndGet();
+                try {
+                    other.submit(() -> priceComparator.ingestFeed(tempDir.resolve("mega_2025-05-09.csv")))
+                            .get(10, TimeUnit.SECONDS);
+                } catch (Exception e) {
+                    throw new AssertionError("Listener could not call back into the comparator", e);
+                }
+            });
+            TestFeeds.writePrices(tempDir, "mega_2025-05-09.csv", "M001;lapte mega;lactate;Mega;1;l;5.00;RON");
+            priceComparator.setCurrentDate(LocalDate.parse("2025-05-01", DATE_FORMATTER));
+            priceComparator.addPriceAlert("vin alb demisec", 20.70);
+            priceComparator.setCurrentDate(LocalDate.parse("2025-05-08", DATE_FORMATTER));
+            assertEquals(1, calls.get());
+        } finally {
+            other.shutdownNow();
+        }
+    }
+
+    @Test
+    void testRemovedAlertTermsAreDetachedFromProducts() {
+        int doc = priceComparator.getSnapshot().getSearchIndex().search("lapte zuzu", ProductSearchIndex.NAME)[0];
+        PriceAlert kept = priceComparator.addPriceAlert("lapte", 1.00);
+        for (int i = 0; i < 50; i++) {
+            PriceAlert churn = priceComparator.addPriceAlert("lapte zuzu", 1.00 + i);
+            priceComparator.removePriceAlertById(churn.getAlertId());
+        }
+        assertEquals(1, priceComparator.getAlertEngine().getTermCount(doc));
+        priceComparator.removePriceAlertById(kept.getAlertId());
+        assertEquals(0, priceComparator.getAlertEngine().getTermCount(doc));
+    }
+
+    @Test
+    void testAlertRegistryKeepsUsersApartUnderConcurrentChanges() throws Exception {
+        PriceAlert ana = priceComparator.addPriceAlert("ana", "lapte", 4.00);
+        PriceAlert dan = priceComparator.addPriceAlert("dan", "lapte", 4.00);
+
+        assertNotEquals(ana.getAlertId(), dan.getAlertId());
+        assertSame(dan, priceComparator.getPriceAlert(dan.getAlertId()));
+        assertEquals(Set.of(ana), priceComparator.getPriceAlerts("ana"));
+
+        int users = 4;
+        ExecutorService pool = Executors.newFixedThreadPool(users);
+        try {
+            List<Future<?>> changes = new ArrayList<>();
+            for (int t = 0; t < users; t++) {
+                String user = "user" + t;
+                changes.add(pool.submit(() -> {
+                    for (int i = 0; i < 200; i++) {
+                        PriceAlert alert = priceComparator.addPriceAlert(user, "pâine", i / 10.0);
+                        if (i % 2 == 0) {
+                            assertTrue(priceComparator.removePriceAlertById(alert.getAlertId()));
+                        }
+                    }
+                }));
+            }
+            for (int i = 0; i < 20; i++) {
+                priceComparator.setCurrentDate(LocalDate.parse(i % 2 == 0 ? "2025-05-01" : "2025-05-08", DATE_FORMATTER));
+            }
+            for (Future<?> change : changes) {
+                change.get(30, TimeUnit.SECONDS); // rethrows a failed assertion
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+
+        for (int t = 0; t < users; t++) {
+            assertEquals(100, priceComparator.getPriceAlerts("user" + t).size());
+        }
+        assertFalse(priceComparator.removePriceAlertById(ana.getAlertId() + "x"));
+        assertTrue(priceComparator.removePriceAlertById(ana.getAlertId()));
+        assertTrue(priceComparator.getPriceAlerts("ana").isEmpty());
+        assertSame(dan, priceComparator.getPriceAlert(dan.getAlertId()));
+    }
+
+    @Test
+    void testSearchIgnoresDiacritics() {
+        Map<String, List<Price>> bread = priceComparator.comparePrices("paine");
+        Map<String, List<Price>> accentedBread = priceComparator.comparePrices("  PÂINE ");
+
+        assertFalse(bread.isEmpty(), "Unaccented search should find pâine");
+        assertEquals(accentedBread, bread);
+        assertFalse(priceComparator.comparePrices("branza").isEmpty(), "Unaccented search should find brânză");
+    }
+
+    @Test
+    void testQuietLoadsAndIngestsPrintNothing() throws IOException {
+        ByteArrayOutputStream outContent = new ByteArrayOutputStream();
+        System.setOut(new PrintStream(outContent));
+
+        priceComparator.setQuiet(true);
+        priceComparator.loadAllData();
+        priceComparator.ingestFeed(TestFeeds.writePrices(tempDir, "mega_2025-05-08.csv",
+                "M001;lapte zuzu;lactate;Zuzu;1;l;9.50;RON"));
+        priceComparator.generateOptimizedShoppingPlans(List.of(List.of(new ShoppingItem("lapte", 1))));
+
+        assertEquals("", outContent.toString());
+    }
+
+    private static String describe(ShoppingPlan plan) {
+        return new TreeMap<>(plan.getStoreItems()).entrySet().stream()
+                .map(e -> e.getKey() + ": " + e.getValue().stream()
+                        .map(item -> item.getProductName() + " x" + item.getQuantity() + " " + item.getFinalPrice())
+                        .collect(Collectors.joining(", ")))
+                .collect(Collectors.joining("; ")) + " = " + plan.getTotalCost();
+    }
+}
@@ -0,0 +1,191 @@
+package org.example;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.example.TestFeeds.*;
+
+class PriceSeriesTest {
+
+    @TempDir
+    Path feedDirectory;
+
+    private static final int START = 19_000;
+
+    @Test
+    void testMatchesPlainMapForRandomDaysAndRanges() {
+        Random random = new Random(3);
+        PriceSeries series = new PriceSeries();
+        TreeMap<Integer, Integer> expected = new TreeMap<>();
+        int cents = 1000;
+        for (int i = 0; i < 1_000; i++) {
+            // mostly in day order; now and then a late or replaced file
+            int day = random.nextInt(10) == 0 && !expected.isEmpty()
+                    ? START + random.nextInt(expected.lastKey() - START + 1)
+                    : (expected.isEmpty() ? START : expected.lastKey() + 1 + random.nextInt(3));
+            cents = Math.max(1, cents + random.nextInt(201) - 100);
+            series.put(day, cents);
+            expected.put(day, cents);
+        }
+
+        assertEquals(expected.size(), series.size());
+        assertEquals((int) expected.firstKey(), series.getFirstDay());
+        assertEquals((int) expected.lastKey(), series.getLastDay());
+        for (int i = 0; i < 200; i++) {
+            int from = START - 5 + random.nextInt(expected.lastKey() - START + 10);
+            int to = from + random.nextInt(300);
+            List<String> scanned = new ArrayList<>();
+            series.scan(from, to, (day, price) -> scanned.add(day + "=" + price));
+            List<String> plain = new ArrayList<>();
+            expected.subMap(from, true, to, true).forEach((day, price) -> plain.add(day + "=" + price));
+            assertEquals(plain, scanned);
+
+            Map.Entry<Integer, Integer> asOf = expected.floorEntry(from);
+            assertEquals(asOf == null ? -1 : asOf.getValue(), series.priceAsOf(from));
+        }
+    }
+
+    @Test
+    void testCopiesAddToTheirOwnPointsOnly() {
+        PriceSeries series = new PriceSeries();
+        for (int i = 0; i < 200; i++) {
+            series.put(START + i, 1000 + i % 7);
+        }
+        series.freeze();
+        List<String> original = new ArrayList<>();
+        series.scan(Integer.MIN_VALUE, Integer.MAX_VALUE, (day, cents) -> original.add(day + "=" + cents));
+
+        // the first copy appends into the series' arrays, the second into arrays of its own
+        PriceSeries first = series.copy();
+        PriceSeries second = series.copy();
+        for (int i = 200; i < 300; i++) {
+            first.put(START + i, 500);
+            second.put(START + i, 700);
+        }
+        first.put(START + 10, 1); // a late day re-encodes the copy
+        first.put(START + 300, 600);
+
+        List<String> after = new ArrayList<>();
+        series.scan(Integer.MIN_VALUE, Integer.MAX_VALUE, (day, cents) -> after.add(day + "=" + cents));
+        assertEquals(original, after);
+        assertEquals(200, series.size());
+        assertEquals(1, first.priceAsOf(START + 10));
+        assertEquals(500, first.priceAsOf(START + 299));
+        assertEquals(600, first.priceAsOf(START + 300));
+        assertEquals(1003, second.priceAsOf(START + 10));
+        assertEquals(700, second.priceAsOf(START + 299));
+        assertEquals(300, second.size());
+        assertEquals(301, first.size());
+    }
+
+    @Test
+    void testDownsampleMatchesDayByDayPrices() {
+        PriceSeries series = new PriceSeries();
+        TreeMap<Integer, Integer> prices = new TreeMap<>();
+        Random random = new Random(4);
+        for (int day = START + 3; day < START + 400; day += 1 + random.nextInt(9)) {
+            int cents = 500 + random.nextInt(500);
+            series.put(day, cents);
+            prices.put(day, cents);
+        }
+
+        int from = START;
+        int to = START + 410;
+        List<PriceBucket> buckets = series.downsample(from, to, 30);
+        assertEquals(14, buckets.size());
+        for (PriceBucket bucket : buckets) {
+            int min = Integer.MAX_VALUE;
+            int max = Integer.MIN_VALUE;
+            int last = -1;
+            long sum = 0;
+            int days = 0;
+            for (int day = bucket.getStartDay(); day < bucket.getEndDay(); day++) {
+                Map.Entry<Integer, Integer> price = prices.floorEntry(day);
+                if (price == null) {
+                    continue;
+                }
+                min = Math.min(min, price.getValue());
+                max = Math.max(max, price.getValue());
+                last = price.getValue();
+                sum += price.getValue();
+                days++;
+            }
+            assertEquals(min, bucket.getMinCents(), bucket.toString());
+            assertEquals(max, bucket.getMaxCents(), bucket.toString());
+            assertEquals(last, bucket.getLastCents(), bucket.toString());
+            assertEquals(sum / (double) days, bucket.getMeanCents(), 1e-9, bucket.toString());
+        }
+        // the first bucket starts before the first price and only counts the days after it
+        assertEquals(START, buckets.get(0).getStartDay());
+        assertEquals(to + 1, buckets.get(buckets.size() - 1).getEndDay());
+    }
+
+    @Test
+    void testDailyHistoryTakesAFewBytesADay() {
+        PriceSeries series = new PriceSeries();
+        Random random = new Random(5);
+        int cents = 1299;
+        int days = 3 * 365;
+        for (int day = START; day < START + days; day++) {
+            if (random.nextInt(14) == 0) {
+                cents += random.nextInt(101) - 50;
+            }
+            series.put(day, cents);
+        }
+        assertTrue(series.getEncodedSize() < days * 2 + 100, "encoded size " + series.getEncodedSize());
+
+        PriceSeries copy = series.copy();
+        copy.put(START + days, 1);
+        assertEquals(days, series.size());
+        assertEquals(cents, series.priceAsOf(START + days + 10));
+        assertEquals(1, copy.priceAsOf(START + days + 10));
+    }
+
+    @Test
+    void testPriceSeriesFollowLoadedAndIngestedFeeds() throws IOException {
+        PriceComparator priceComparator = new PriceComparator();
+        priceComparator.setQuiet(true);
+        priceComparator.setCurrentDate(LocalDate.parse("2025-05-08"));
+        priceComparator.loadAllData();
+        PriceSeries milk = priceComparator.getPriceSeries("kaufland", priceComparator.comparePrices("lapte zuzu")
+                .get("kaufland").get(0).getProductId());
+        List<String> points = new ArrayList<>();
+        milk.scan(Integer.MIN_VALUE, Integer.MAX_VALUE, (day, cents) -> points.add(LocalDate.ofEpochDay(day) + "=" + cents));
+        assertEquals(List.of("2025-05-01=1010", "2025-05-08=1000"), points);
+        assertEquals(0, priceComparator.getPriceSeries("kaufland", "no such id").size());
+
+        writePrices(feedDirectory, "mega_2025-05-01.csv", "M001;lapte zuzu;lactate;Zuzu;1;l;9.90;RON");
+        priceComparator.setFeedDirectory(feedDirectory);
+        priceComparator.loadAllData();
+        PriceSnapshot before = priceComparator.getSnapshot();
+        priceComparator.ingestFeed(writePrices(feedDirectory, "mega_2025-05-08.csv",
+                "M001;lapte zuzu;lactate;Zuzu;1;l;9.50;RON",
+                "M002;cafea boabe;cafea;Mega;1;kg;45.00;RON"));
+
+        assertEquals(1, before.getPriceSeries("mega", "M001").size(), "Published series should not change");
+        assertThrows(IllegalStateException.class, () -> priceComparator.getPriceSeries("mega", "M001").put(20300, 100));
+        assertThrows(IllegalStateException.class, () -> priceComparator.getPriceSeries("mega", "no such id").put(20300, 100));
+        assertEquals(2, priceComparator.getPriceSeries("mega", "M001").size());
+        assertEquals(1, priceComparator.getPriceSeries("mega", "M002").size());
+        ColumnarCatalog catalog = priceComparator.getSnapshot().getCatalog();
+        assertEquals(1, catalog.getVersionCount(catalog.findProduct("mega", "M001")),
+                "A price change alone should not add a version");
+        assertEquals(2, catalog.getDescriptionCount(), "An unchanged name and pack should be stored once");
+        List<PriceBucket> weeks = priceComparator.downsamplePriceHistory("mega", "M001",
+                LocalDate.parse("2025-05-01"), LocalDate.parse("2025-05-14"), 7);
+        assertEquals(2, weeks.size());
+        assertEquals(990, weeks.get(0).getMaxCents());
+        assertEquals(950, weeks.get(1).getMinCents());
+        assertEquals(LocalDate.parse("2025-05-14"), weeks.get(1).getEndDate());
+    }
+}
@@ -0,0 +1,94 @@
+package org.example;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.example.TestFeeds.*;
+
+class PriceSnapshotTest {
+
+    private PriceComparator priceComparator;
+
+    @BeforeEach
+    void setUp() {
+        priceComparator = new PriceComparator();
+        priceComparator.setQuiet(true);
+        priceComparator.setCurrentDate(LocalDate.parse("2025-05-08"));
+        priceComparator.loadAllData();
+    }
+
+    @Test
+    void testSnapshotAnswersForAnyDayFromManyThreads() throws Exception {
+        PriceSnapshot snapshot = priceComparator.getSnapshot();
+        int may7 = epochDay("2025-05-07");
+        int may8 = epochDay("2025-05-08");
+
+        // profi's 10% off on wine starts on 2025-05-08; the current date does not matter
+        assertEquals("profi", snapshot.findBestDeal("vin alb demisec", may8).getStore());
+        assertNotEquals("profi", snapshot.findBestDeal("vin alb demisec", may7).getStore());
+        assertEquals(priceComparator.comparePrices("lapte"), snapshot.comparePrices("lapte"));
+
+        // reloads publish new snapshots while readers keep getting the same answers, unlocked
+        int expected = priceComparator.findBestDealForProduct("lapte zuzu", 1).getFinalPrice();
+        ExecutorService readers = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<Integer>> mismatches = new ArrayList<>();
+            for (int t = 0; t < 4; t++) {
+                mismatches.add(readers.submit(() -> {
+                    int count = 0;
+                    for (int i = 0; i < 2000; i++) {
+                        BestDeal deal = priceComparator.findBestDealForProduct("lapte zuzu", 1);
+                        if (deal == null || deal.getFinalPrice() != expected
+                                || priceComparator.comparePrices("lapte").size() != 3) {
+                            count++;
+                        }
+                    }
+                    return count;
+                }));
+            }
+            for (int i = 0; i < 5; i++) {
+                priceComparator.loadAllData();
+            }
+            for (Future<Integer> result : mismatches) {
+                assertEquals(0, (int) result.get());
+            }
+        } finally {
+            readers.shutdown();
+        }
+        assertNotSame(snapshot, priceComparator.getSnapshot());
+        assertEquals(expected, snapshot.findBestDeal("lapte zuzu", may8).getFinalPrice());
+    }
+
+    @Test
+    void testQueriesForAnEarlierDayUseThePricesListedThen() {
+        PriceSnapshot snapshot = priceComparator.getSnapshot();
+        int may3 = epochDay("2025-05-03");
+
+        // kaufland's milk was 10.10 in the 2025-05-01 file and 10.00 in the 2025-05-08 one
+        assertEquals(1010, snapshot.getPriceAsOf("kaufland", "P001", may3).getPrice());
+        assertEquals(1010, snapshot.getLatestPrice("kaufland", "P001", may3));
+        List<String> stores = snapshot.getStores();
+        BestDeal[] offers = snapshot.findOffers(new ShoppingItem("lapte zuzu", 1), may3);
+        assertEquals(1010, offers[stores.indexOf("kaufland")].getRegularPrice());
+        BestDeal[] current = snapshot.findOffers(new ShoppingItem("lapte zuzu", 1), epochDay("2025-05-08"));
+        assertEquals(1000, current[stores.indexOf("kaufland")].getRegularPrice());
+        for (BestDeal offer : offers) {
+            BestDeal cheapest = snapshot.findBestDeal("lapte zuzu", may3);
+            assertTrue(offer == null || cheapest.getFinalPrice() <= offer.getFinalPrice());
+        }
+
+        // nothing was listed before the first files
+        int april30 = epochDay("2025-04-30");
+        assertNull(snapshot.findBestDeal("lapte zuzu", april30));
+        assertEquals(-1, snapshot.getLatestPrice("kaufland", "P001", april30));
+        assertTrue(snapshot.analyzeValuePerUnit("lapte", april30).isEmpty());
+    }
+}
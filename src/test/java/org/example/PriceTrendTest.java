@@ -0,0 +1,140 @@
+package org.example;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.example.TestFeeds.*;
+
+class PriceTrendTest {
+
+    @TempDir
+    Path feedDirectory;
+
+    @Test
+    void testRunningExtremesMatchScanningTheHistory() {
+        Random random = new Random(6);
+        PriceTrend trend = new PriceTrend();
+        TreeMap<Integer, Integer> prices = new TreeMap<>();
+        int day = 20_000;
+        for (int i = 0; i < 2_000; i++) {
+            day += 1 + random.nextInt(5);
+            int cents = 800 + random.nextInt(40) * 5; // repeats, so ties are exercised
+            trend.add(day, cents);
+            prices.put(day, cents);
+
+            int now = day + random.nextInt(3);
+            int from = prices.firstKey() + random.nextInt(now - prices.firstKey() + 1);
+            assertEquals(scanLowest(prices, from, now), trend.lowestSince(from), "lowest since " + from);
+            assertEquals(scanHighest(prices, from, now), trend.highestSince(from), "highest since " + from);
+            assertEquals(cents, trend.getLatest());
+            int lowSince = trend.getLowSince();
+            assertEquals(cents, scanLowest(prices, lowSince, now));
+            if (lowSince > prices.firstKey()) {
+                assertTrue(prices.floorEntry(lowSince - 1).getValue() < cents, "a lower price right before " + lowSince);
+            }
+        }
+        assertEquals(prices.values().stream().mapToInt(Integer::intValue).min().orElse(0), trend.getAllTimeLow());
+        assertEquals(prices.values().stream().mapToInt(Integer::intValue).max().orElse(0), trend.getAllTimeHigh());
+        assertThrows(IllegalArgumentException.class, () -> trend.add(20_000, 100));
+    }
+
+    @Test
+    void testCopyAndRebuildFromSeries() {
+        PriceSeries series = new PriceSeries();
+        PriceTrend trend = new PriceTrend();
+        int[] cents = {500, 450, 480, 430, 600, 470};
+        for (int i = 0; i < cents.length; i++) {
+            series.put(100 + i * 7, cents[i]);
+            trend.add(100 + i * 7, cents[i]);
+        }
+        PriceTrend copy = trend.copy();
+        copy.add(200, 400);
+        assertEquals(430, trend.getAllTimeLow());
+        assertEquals(400, copy.getAllTimeLow());
+
+        PriceTrend rebuilt = PriceTrend.of(series);
+        assertEquals(trend.getLowSince(), rebuilt.getLowSince());
+        assertEquals(trend.highestSince(110), rebuilt.highestSince(110));
+        // as of day 121, the fourth price (430) was the latest and the lowest so far
+        PriceTrend past = PriceTrend.of(series, 121);
+        assertEquals(430, past.getLatest());
+        assertEquals(100, past.getLowSince());
+    }
+
+    @Test
+    void testTrendsFlagInflatedDiscountsAndRankNewLows() throws IOException {
+        writePrices(feedDirectory, "mega_2025-04-01.csv",
+                "M001;cafea boabe;cafea;Mega;1;kg;10.00;RON",
+                "M002;lapte zuzu;lactate;Zuzu;1;l;5.00;RON");
+        writePrices(feedDirectory, "mega_2025-04-20.csv",
+                "M001;cafea boabe;cafea;Mega;1;kg;12.00;RON",
+                "M002;lapte zuzu;lactate;Zuzu;1;l;4.00;RON");
+        writePrices(feedDirectory, "mega_2025-05-01.csv",
+                "M001;cafea boabe;cafea;Mega;1;kg;12.00;RON",
+                "M002;lapte zuzu;lactate;Zuzu;1;l;3.50;RON");
+        writeDiscounts(feedDirectory, "mega_discounts_2025-05-01.csv",
+                "M001;cafea boabe;Mega;1;kg;cafea;2025-05-01;2025-05-07;20");
+        PriceComparator priceComparator = new PriceComparator();
+        priceComparator.setQuiet(true);
+        priceComparator.setFeedDirectory(feedDirectory);
+        priceComparator.setCurrentDate(LocalDate.parse("2025-05-03"));
+        priceComparator.loadAllData();
+
+        // 20% off a base raised from 10.00 to 12.00 three weeks before is 4% below the real price
+        List<DiscountCheck> checks = priceComparator.checkActiveDiscounts();
+        assertEquals(1, checks.size());
+        assertTrue(checks.get(0).isInflated());
+        assertEquals(1000, checks.get(0).getLowestBeforeCents());
+        assertEquals(960, checks.get(0).getDiscountedCents());
+        assertEquals(4.0, checks.get(0).getRealPercentage(), 1e-9);
+
+        PriceStats milk = priceComparator.getPriceStats("mega", "M002", 30);
+        assertEquals(350, milk.getCurrentCents());
+        assertEquals(350, milk.getMinCents());
+        assertEquals(500, milk.getMaxCents());
+        assertEquals((16 * 500 + 11 * 400 + 3 * 350) / 30.0, milk.getMeanCents(), 1e-9);
+        assertEquals(-30.0, milk.getChangePercent(), 1e-9);
+        assertNull(priceComparator.getPriceStats("mega", "M404", 30));
+
+        List<PriceLow> lows = priceComparator.findLowestInDays(30, 10);
+        assertEquals(List.of("M002"), lows.stream().map(PriceLow::getProductId).collect(Collectors.toList()));
+        assertEquals(30.0, lows.get(0).getDropPercent(), 1e-9);
+        assertEquals(lows.toString(), priceComparator.findLowestInDays(30, Integer.MAX_VALUE).toString());
+        assertTrue(priceComparator.findLowestInDays(60, 10).isEmpty(), "History is shorter than the window");
+
+        // a new file updates the trends without reloading the history
+        priceComparator.setCurrentDate(LocalDate.parse("2025-05-04"));
+        priceComparator.ingestFeed(writePrices(feedDirectory, "mega_2025-05-04.csv",
+                "M001;cafea boabe;cafea;Mega;1;kg;9.00;RON"));
+        assertEquals(List.of("M002 30.0", "M001 25.0"), priceComparator.findLowestInDays(30, 10).stream()
+                .map(low -> low.getProductId() + " " + low.getDropPercent()).collect(Collectors.toList()));
+        // and the past is still answered as it was
+        assertEquals(1, priceComparator.getSnapshot().findLowestInDays(30, epochDay("2025-05-03"), 10).size());
+    }
+
+    private static int scanLowest(TreeMap<Integer, Integer> prices, int from, int to) {
+        int lowest = prices.floorEntry(from).getValue();
+        for (Map.Entry<Integer, Integer> price : prices.subMap(from, false, to, true).entrySet()) {
+            lowest = Math.min(lowest, price.getValue());
+        }
+        return lowest;
+    }
+
+    private static int scanHighest(TreeMap<Integer, Integer> prices, int from, int to) {
+        int highest = prices.floorEntry(from).getValue();
+        for (Map.Entry<Integer, Integer> price : prices.subMap(from, false, to, true).entrySet()) {
+            highest = Math.max(highest, price.getValue());
+        }
+        return highest;
+    }
+}
@@ -0,0 +1,53 @@
+package org.example;
+
+import org.junit.jupiter.api.Test;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.openmbean.TabularData;
+import java.lang.management.ManagementFactory;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class QueryMetricsTest {
+
+    @Test
+    void testMetricsRecordQueriesAndAreExposedOverJmx() throws Exception {
+        PriceComparator priceComparator = new PriceComparator();
+        priceComparator.setQuiet(true);
+        priceComparator.setCurrentDate(LocalDate.parse("2025-05-08"));
+        priceComparator.loadAllData();
+
+        priceComparator.comparePrices("lapte");
+        priceComparator.findBestDealForProduct("lapte", 1);
+        priceComparator.findBestDealForProduct("lapte", 1);
+        priceComparator.getPriceHistory("lapte");
+        priceComparator.generateOptimizedShoppingPlan(List.of(new ShoppingItem("lapte", 1), new ShoppingItem("cafea", 1)));
+
+        MetricsSnapshot metrics = priceComparator.getMetrics();
+        assertEquals(1, metrics.getLatency("comparePrices").getCount());
+        assertEquals(2, metrics.getLatency("findBestDealForProduct").getCount());
+        assertEquals(1, metrics.getLatency("generateOptimizedShoppingPlan").getCount());
+        assertEquals(0, metrics.getLatency("analyzeValuePerUnit").getCount());
+        assertTrue(metrics.getLatency("alertRefresh").getCount() >= 1, "Load should re-price the alerts");
+        assertEquals(1, metrics.getCacheHits());
+        assertEquals(1, metrics.getCacheMisses());
+        int lapteRows = priceComparator.comparePrices("lapte").values().stream().mapToInt(List::size).sum();
+        assertTrue(metrics.getRowsScanned() >= lapteRows + priceComparator.getPriceHistory("lapte").size());
+        assertTrue(metrics.getDiscountsEvaluated() > 0);
+        assertTrue(metrics.format().contains("price_comparator_query_seconds_count{query=\"comparePrices\"} 1\n"));
+
+        ObjectName name = priceComparator.registerMetricsMBean("test-" + System.nanoTime());
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        try {
+            assertEquals(1L, server.getAttribute(name, "CacheHits"));
+            assertTrue(server.getAttribute(name, "LatencyMicros") instanceof TabularData);
+            server.invoke(name, "reset", null, null);
+            assertEquals(0, priceComparator.getMetrics().getLatency("comparePrices").getCount());
+        } finally {
+            server.unregisterMBean(name);
+        }
+    }
+}
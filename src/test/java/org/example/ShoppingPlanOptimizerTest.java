@@ -0,0 +1,115 @@
+package org.example;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ShoppingPlanOptimizerTest {
+
+    private static final long NO = ShoppingPlanOptimizer.UNAVAILABLE;
+
+    @Test
+    void testVisitCostConsolidatesStores() {
+        long[][] costs = {
+                {100, 150},
+                {300, 200}
+        };
+
+        // without a visit cost each item goes to its cheapest store
+        assertArrayEquals(new int[]{0, 1}, new ShoppingPlanOptimizer(costs, 2, 0, 0).solve());
+        // 100 + 200 + 2 visits = 500 loses to 150 + 200 + 1 visit = 450
+        assertArrayEquals(new int[]{1, 1}, new ShoppingPlanOptimizer(costs, 2, 100, 0).solve());
+    }
+
+    @Test
+    void testMaxStoresLimitsThePlan() {
+        long[][] costs = {
+                {100, 500, NO},
+                {900, 100, 300},
+                {NO, NO, NO}
+        };
+
+        assertArrayEquals(new int[]{0, 1, -1}, new ShoppingPlanOptimizer(costs, 3, 0, 0).solve());
+        // one store: 500 + 100 beats 100 + 900
+        assertArrayEquals(new int[]{1, 1, -1}, new ShoppingPlanOptimizer(costs, 3, 0, 1).solve());
+
+        long[][] disjoint = {
+                {100, NO},
+                {NO, 100}
+        };
+        assertNull(new ShoppingPlanOptimizer(disjoint, 2, 0, 1).solve());
+    }
+
+    @Test
+    void testMatchesExhaustiveSearch() {
+        Random random = new Random(42);
+        for (int round = 0; round < 200; round++) {
+            int stores = 1 + random.nextInt(8);
+            int items = 1 + random.nextInt(12);
+            long visitCost = random.nextInt(500);
+            int maxStores = random.nextInt(stores + 1);
+            long[][] costs = new long[items][stores];
+            for (long[] item : costs) {
+                for (int s = 0; s < stores; s++) {
+                    item[s] = random.nextInt(5) == 0 ? NO : 50 + random.nextInt(1000);
+                }
+            }
+
+            int[] assignment = new ShoppingPlanOptimizer(costs, stores, visitCost, maxStores).solve();
+            long expected = bruteForce(costs, stores, visitCost, maxStores);
+            if (expected == NO) {
+                assertNull(assignment);
+            } else {
+                assertEquals(expected, total(costs, assignment, stores, visitCost), "round " + round);
+            }
+        }
+    }
+
+    private static long total(long[][] costs, int[] assignment, int stores, long visitCost) {
+        boolean[] used = new boolean[stores];
+        long total = 0;
+        for (int i = 0; i < costs.length; i++) {
+            if (assignment[i] >= 0) {
+                used[assignment[i]] = true;
+                total += costs[i][assignment[i]];
+            }
+        }
+        for (boolean store : used) {
+            total += store ? visitCost : 0;
+        }
+        return total;
+    }
+
+    private static long bruteForce(long[][] costs, int stores, long visitCost, int maxStores) {
+        int limit = maxStores > 0 ? maxStores : stores;
+        long best = NO;
+        for (int mask = 0; mask < 1 << stores; mask++) {
+            if (Integer.bitCount(mask) > limit) {
+                continue;
+            }
+            long total = visitCost * Integer.bitCount(mask);
+            for (long[] item : costs) {
+                long cheapest = NO;
+                boolean soldAnywhere = false;
+                for (int s = 0; s < stores; s++) {
+                    soldAnywhere |= item[s] != NO;
+                    if ((mask & (1 << s)) != 0) {
+                        cheapest = Math.min(cheapest, item[s]);
+                    }
+                }
+                if (!soldAnywhere) {
+                    continue;
+                }
+                if (cheapest == NO) {
+                    total = NO;
+                    break;
+                }
+                total += cheapest;
+            }
+            best = Math.min(best, total);
+        }
+        return best;
+    }
+}
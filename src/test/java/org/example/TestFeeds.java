@@ -0,0 +1,50 @@
+package org.example;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.stream.Collectors;
+
+// Small feed files for tests, with the headers the loaders expect. Rows are given without
+// their line ends.
+final class TestFeeds {
+    static final String PRICE_HEADER =
+            "product_id;product_name;product_category;brand;package_quantity;package_unit;price;currency";
+    static final String DISCOUNT_HEADER =
+            "product_id;product_name;brand;package_quantity;package_unit;product_category;from_date;to_date;percentage_of_discount";
+
+    private TestFeeds() {
+    }
+
+    // a {store}_{date}.csv file; rows are id;name;category;brand;quantity;unit;price;currency
+    static Path writePrices(Path directory, String fileName, String... rows) throws IOException {
+        return write(directory.resolve(fileName), PRICE_HEADER, rows);
+    }
+
+    // a {store}_discounts_{date}.csv file; rows are id;name;brand;quantity;unit;category;from;to;percentage
+    static Path writeDiscounts(Path directory, String fileName, String... rows) throws IOException {
+        return write(directory.resolve(fileName), DISCOUNT_HEADER, rows);
+    }
+
+    private static Path write(Path file, String header, String[] rows) throws IOException {
+        StringBuilder text = new StringBuilder(header).append('\n');
+        for (String row : rows) {
+            text.append(row).append('\n');
+        }
+        return Files.writeString(file, text);
+    }
+
+    static int epochDay(String date) {
+        return (int) LocalDate.parse(date).toEpochDay();
+    }
+
+    // one line per point, for comparing histories
+    static List<String> describe(List<PricePoint> points) {
+        return points.stream()
+                .map(p -> p.getDate() + " " + p.getStore() + " " + p.getProductName() + " " + p.getBrand() + " "
+                        + p.getCategory() + " " + p.getRegularPrice() + " " + p.getFinalPrice())
+                .collect(Collectors.toList());
+    }
+}